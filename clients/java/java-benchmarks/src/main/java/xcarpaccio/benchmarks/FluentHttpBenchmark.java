@@ -0,0 +1,64 @@
+package xcarpaccio.benchmarks;
+
+import net.codestory.http.convert.TypeConvert;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * java-fluent-http: {@code context.extract} reads the body as a String then binds it with {@link TypeConvert},
+ * and {@code Payload} renders objects with the same mapper.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FluentHttpBenchmark {
+
+    @Benchmark
+    public FluentOrder decodeExtract(GeneratedOrders orders) {
+        orders.advance();
+        return TypeConvert.fromJson(new String(orders.body(), StandardCharsets.UTF_8), FluentOrder.class);
+    }
+
+    @Benchmark
+    public byte[] encodePayload(GeneratedOrders orders) {
+        orders.advance();
+        return TypeConvert.toByteArray(new Answer(orders.order().total()));
+    }
+
+    @Benchmark
+    public byte[] pipeline(GeneratedOrders orders) {
+        orders.advance();
+        FluentOrder order = TypeConvert.fromJson(new String(orders.body(), StandardCharsets.UTF_8), FluentOrder.class);
+        return TypeConvert.toByteArray(new Answer(order.total()));
+    }
+
+    /**
+     * Same shape as java-fluent-http's {@code xcarpaccio.Order}.
+     */
+    public static class FluentOrder extends PrimitiveOrder {
+        public List<String> names;
+    }
+
+    public static class Answer {
+        public Double total;
+
+        public Answer(double total) {
+            this.total = total;
+        }
+    }
+}
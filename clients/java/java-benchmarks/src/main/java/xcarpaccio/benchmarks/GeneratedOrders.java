@@ -0,0 +1,92 @@
+package xcarpaccio.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import xcarpaccio.pricing.OrderGenerator;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.pricing.Reduction;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed set of orders shaped like the server's, cycled through by each benchmark thread.
+ */
+@State(Scope.Thread)
+public class GeneratedOrders {
+    // a power of two
+    @Param("1024")
+    public int count;
+
+    @Param("STANDARD")
+    public Reduction reduction;
+
+    private String[] jsons;
+    private byte[][] bodies;
+    private byte[][] corruptBodies;
+    private PrimitiveOrder[] orders;
+    private int next;
+
+    @Setup
+    public void generate() {
+        OrderGenerator generator = new OrderGenerator(42);
+        jsons = new String[count];
+        bodies = new byte[count][];
+        corruptBodies = new byte[count][];
+        orders = new PrimitiveOrder[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new PrimitiveOrder();
+            generator.next(orders[i], reduction);
+            jsons[i] = OrderGenerator.toJson(orders[i]);
+            bodies[i] = jsons[i].getBytes(StandardCharsets.UTF_8);
+            corruptBodies[i] = corrupt(jsons[i], i % 11).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return the order corrupted like the server's {@code BadRequest.corruptOrder} does in {@code mode}
+     */
+    private static String corrupt(String json, int mode) {
+        switch (mode) {
+            case 0: return "{}";
+            case 1: return "[true,false,true,false,true,false,true,false,true,false,true,false,true,false,true,false,true]";
+            case 2: return json.replaceFirst("\"quantities\":\\[[^]]*]", "\"quantities\":{\"error\":\"datacenter unreachable\"}");
+            case 3: return json.replaceFirst("\"quantities\":\\[[^,\\]]*,?", "\"quantities\":[");
+            case 4: return json.replaceFirst("\"prices\":\\[[^,\\]]*,?", "\"prices\":[");
+            case 5: return json.replaceFirst("\"country\":\"..\"", "\"country\":\"Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch\"");
+            case 6: return json.replaceFirst(",\"country\":\"..\"", "");
+            case 7: return json.replaceFirst("\"prices\":\\[[^]]*],", "");
+            case 8: return json.replaceFirst("\"quantities\":\\[[^]]*],", "");
+            case 9: return json.replaceFirst(",\"reduction\":\"[^\"]*\"", "");
+            default: return "null";
+        }
+    }
+
+    /**
+     * Moves to the next order, the accessors below then return its different forms.
+     */
+    public int advance() {
+        next = (next + 1) & (count - 1);
+        return next;
+    }
+
+    public String json() {
+        return jsons[next];
+    }
+
+    public byte[] body() {
+        return bodies[next];
+    }
+
+    /**
+     * @return the body of the order corrupted like the server does when {@code badRequest} is active
+     */
+    public byte[] corruptBody() {
+        return corruptBodies[next];
+    }
+
+    public PrimitiveOrder order() {
+        return orders[next];
+    }
+}
@@ -0,0 +1,91 @@
+package xcarpaccio.benchmarks;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xcarpaccio.Result;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * java-httpserver: the codehaus Jackson binding it used to rely on, and its {@link OrderCodec}, which every client
+ * encodes its bills with.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpServerBenchmark {
+    private static final byte[] TOTAL_PREFIX = "{\"total\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OrderCodec codec = new OrderCodec();
+    private final byte[] encoded = new byte[OrderCodec.MAX_ENCODED_LENGTH];
+
+    @Benchmark
+    public PrimitiveOrder decodeCodehausJackson(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        return objectMapper.readValue(orders.body(), PrimitiveOrder.class);
+    }
+
+    @Benchmark
+    public PrimitiveOrder decodeOrderCodec(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        return codec.decode(new ByteArrayInputStream(orders.body()));
+    }
+
+    @Benchmark
+    public int rejectOrderCodec(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        return codec.decode(new ByteArrayInputStream(orders.corruptBody())) == null ? codec.rejectedAt() : -1;
+    }
+
+    @Benchmark
+    public byte[] encodeCodehausJackson(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        return objectMapper.writeValueAsString(new Result(orders.order().total())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * How {@link OrderCodec} encoded before {@code JsonNumber}: a {@code Double.toString} per bill, with Java's digits.
+     */
+    @Benchmark
+    public int encodeDoubleToString(GeneratedOrders orders) {
+        orders.advance();
+        System.arraycopy(TOTAL_PREFIX, 0, encoded, 0, TOTAL_PREFIX.length);
+        int size = TOTAL_PREFIX.length;
+        String digits = Double.toString(orders.order().total());
+        for (int i = 0; i < digits.length(); i++) {
+            encoded[size++] = (byte) digits.charAt(i);
+        }
+        encoded[size++] = '}';
+        return size;
+    }
+
+    @Benchmark
+    public int encodeOrderCodec(GeneratedOrders orders) {
+        orders.advance();
+        return codec.encode(orders.order().total());
+    }
+
+    @Benchmark
+    public int pipeline(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        PrimitiveOrder order = codec.decode(new ByteArrayInputStream(orders.body()));
+        return order != null && order.canBePriced() ? codec.encode(order.total()) : 0;
+    }
+}
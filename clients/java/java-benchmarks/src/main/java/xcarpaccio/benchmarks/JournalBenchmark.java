@@ -0,0 +1,95 @@
+package xcarpaccio.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.journal.JournalReader;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link Journal} adds to the order hot path: the java-nio pipeline on a body in place, without and with
+ * journaling the order and its answer into segments of the temporary directory. The writer thread runs alongside,
+ * the records it cannot keep up with are dropped and counted apart.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+    private final OrderCodec codec = new OrderCodec();
+    private Path directory;
+    private Journal journal;
+
+    @Setup(Level.Iteration)
+    public void start() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new Journal(directory, 64 << 20, 4096, 1000, AsyncLog.shared()).start();
+    }
+
+    /**
+     * Deletes the segments of the iteration, they would fill the disk over a run.
+     */
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException, IOException {
+        journal.stop();
+        for (Path segment : JournalReader.segments(directory)) {
+            Files.delete(segment);
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int pipeline(GeneratedOrders orders) {
+        orders.advance();
+        byte[] body = orders.body();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        return order != null && order.canBePriced() ? codec.encode(order.total()) : 0;
+    }
+
+    @Benchmark
+    public int journaled(GeneratedOrders orders, Records records) {
+        orders.advance();
+        byte[] body = orders.body();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        int length = order != null && order.canBePriced() ? codec.encode(order.total()) : 0;
+        if (journal.order(body, 0, body.length, 200, codec.encoded(), 0, length, 1000)) {
+            records.journaled++;
+        } else {
+            records.dropped++;
+        }
+        return length;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Records {
+        public long journaled;
+        public long dropped;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            journaled = 0;
+            dropped = 0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package xcarpaccio.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * java-spark: the Gson {@link JsonObject} tree and pretty printing it used to rely on, and its order route now on
+ * {@link OrderCodec}, answering a copy of the encoded bill.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SparkBenchmark {
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final OrderCodec codec = new OrderCodec();
+
+    @Benchmark
+    public JsonObject decodeGsonTree(GeneratedOrders orders) {
+        orders.advance();
+        return gson.fromJson(orders.json(), JsonObject.class);
+    }
+
+    @Benchmark
+    public String encodeGsonPretty(GeneratedOrders orders) {
+        orders.advance();
+        JsonObject bill = new JsonObject();
+        bill.addProperty("total", orders.order().total());
+        return gson.toJson(bill);
+    }
+
+    @Benchmark
+    public byte[] pipeline(GeneratedOrders orders) {
+        orders.advance();
+        byte[] body = orders.body();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        return order != null && order.canBePriced() ? Arrays.copyOf(codec.encoded(), codec.encode(order.total())) : null;
+    }
+}
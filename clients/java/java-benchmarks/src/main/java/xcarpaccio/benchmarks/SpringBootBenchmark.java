@@ -0,0 +1,117 @@
+package xcarpaccio.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * java-springboot: {@code @RequestBody} and the returned {@code Amount} both go through
+ * {@link MappingJackson2HttpMessageConverter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringBootBenchmark {
+    private final MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
+    private final ResponseBody response = new ResponseBody();
+
+    @Benchmark
+    public Object decodeRequestBody(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        return converter.read(SpringOrder.class, new RequestBody(orders.body()));
+    }
+
+    @Benchmark
+    public int encodeResponseBody(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        response.reset();
+        converter.write(new Amount(orders.order().total()), MediaType.APPLICATION_JSON_UTF8, response);
+        return response.body.size();
+    }
+
+    @Benchmark
+    public int pipeline(GeneratedOrders orders) throws IOException {
+        orders.advance();
+        SpringOrder order = (SpringOrder) converter.read(SpringOrder.class, new RequestBody(orders.body()));
+        response.reset();
+        converter.write(new Amount(order.total()), MediaType.APPLICATION_JSON_UTF8, response);
+        return response.body.size();
+    }
+
+    /**
+     * Same shape as the {@code xcarpaccio.Order} java-springboot bound with {@code @RequestBody} before it decoded
+     * orders with {@code OrderCodec}.
+     */
+    public static class SpringOrder extends PrimitiveOrder {
+    }
+
+    public static class Amount {
+        public Double total;
+
+        public Amount(Double total) {
+            this.total = total;
+        }
+    }
+
+    private static class RequestBody implements HttpInputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final byte[] body;
+
+        RequestBody(byte[] body) {
+            this.body = body;
+            headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static class ResponseBody implements HttpOutputMessage {
+        private HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+
+        void reset() {
+            headers = new HttpHeaders();
+            body.reset();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -1,9 +0,0 @@
-package xcarpaccio;
-
-public class Answer {
-	public Double total;
-
-	public Answer(double total) {
-		this.total = total;
-	}
-}
@@ -1,12 +1,32 @@
 package xcarpaccio;
 
+import xcarpaccio.logging.AsyncLog;
+
 public class Logger {
+    private final AsyncLog asyncLog = AsyncLog.shared();
 
     public void log(String message) {
-        System.out.println(message);
+        asyncLog.log(message);
     }
 
     public void error(String message) {
-        System.err.println(message);
+        asyncLog.error(message);
+    }
+
+    /**
+     * Logs the raw request body when the order is sampled, the bytes are only decoded by the log's writer thread.
+     */
+    public void logOrder(String method, String uri, byte[] body) {
+        if (!asyncLog.sampleOrder()) {
+            return;
+        }
+        AsyncLog.Entry entry = asyncLog.info();
+        if (entry != null) {
+            try {
+                entry.append(method).append(' ').append(uri).append(' ').append(body, 0, body.length);
+            } finally {
+                entry.publish();
+            }
+        }
     }
 }
@@ -1,6 +1,7 @@
 package xcarpaccio;
 
 import net.codestory.http.WebServer;
+import xcarpaccio.pricing.RulesFile;
 
 public class MyFluentHttpServer {
 
@@ -13,6 +14,7 @@ public class MyFluentHttpServer {
     }
 
     public static void main( String[] args ) {
+        RulesFile.watchFromEnvironment();
         new MyFluentHttpServer();
     }
 }
@@ -1,38 +1,151 @@
 package xcarpaccio;
 
 import net.codestory.http.Configuration;
+import net.codestory.http.Context;
+import net.codestory.http.filters.PayloadSupplier;
 import net.codestory.http.payload.Payload;
 import net.codestory.http.routes.Routes;
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 public class WebConfiguration implements Configuration {
+    // the game does not penalise a declined order
+    private static final Payload DECLINED = new Payload("application/json", "", 200);
+    private static final Payload PONG = new Payload("text/html;charset=UTF-8", "pong", 200);
+    private static final Payload FEEDBACK_QUEUED = new Payload(204);
+    private static final Payload FEEDBACK_REFUSED = new Payload(503);
+    // a corrupt order, the server expects a 400
+    private static final Payload REJECTED = new Payload(400);
+    private static final Payload READY = new Payload("text/plain;charset=UTF-8", Warmup.READY, 200);
+    // until the warm-up is over
+    private static final Payload WARMING_UP = new Payload("text/plain;charset=UTF-8", Warmup.WARMING_UP, 503);
+    private static final byte[] NO_ANSWER = {};
+    private static final ThreadLocal<OrderCodec> CODECS = ThreadLocal.withInitial(OrderCodec::new);
 
     private final Logger logger = new Logger();
+    private final FeedbackQueue feedback = FeedbackQueue.shared();
+    private final Metrics metrics = Metrics.shared();
+    private final AdmissionControl admission = AdmissionControl.shared();
+    private final Journal journal = Journal.shared();
+    private final Warmup warmup = Warmup.shared();
 
     @Override
     public void configure(Routes routes) {
         routes.
-                get("/ping", "pong").
+                filter(this::measure).
+                get("/ping", (context) -> PONG).
                 post("/feedback", (context) -> {
-                    Message message = context.extract(Message.class);
-                    logger.log(message.type + ": " + message.content);
-                    return new Payload(204);
+                    // parsed and logged by the queue's thread, a full queue tells the server to back off
+                    byte[] body = context.request().contentAsBytes();
+                    journal.feedback(body, 0, body.length);
+                    return feedback.offer(body) ? FEEDBACK_QUEUED : FEEDBACK_REFUSED;
                 }).
-                post("/order", (context -> {
-                    String method = context.method();
-                    String uri = context.uri();
-                    String body = context.extract(String.class);
-                    logger.log(method + " " + uri + " " + body);
-                    Order order = context.extract(Order.class);
-                    logger.log("Unserialized order: " + order);
-
-                    // Use the following line to choose not to handle an order
-                    return new Payload("application/json", "", 200);
-
-                    // Use the following lines to return a total:
-//                    double total = 42.0;
-//                    Answer answer = new Answer(total);
-//                    return new Payload("application/json", answer, 200);
-                }))
+                post("/order", this::answerOrder).
+                get("/rules", (context) -> new Payload("application/json", PricingRules.current().toJson(), 200)).
+                post("/rules", this::installRules).
+                put("/rules", this::installRules).
+                get("/metrics", (context) -> new Payload(Metrics.CONTENT_TYPE, metrics.scrape(), 200)).
+                get("/stats/earnings", (context) -> new Payload("application/json", feedback.earnings().toJson(System.currentTimeMillis()), 200)).
+                get("/ready", (context) -> warmup.ready() ? READY : WARMING_UP)
         ;
     }
+
+    /**
+     * Traces the order with {@link OrderTrace} until the payload is returned, fluent-http writes it after.
+     */
+    private Payload answerOrder(Context context) throws IOException {
+        long start = System.nanoTime();
+        OrderTrace trace = OrderTrace.start();
+        long admitted = admission.admit();
+        if (admitted == AdmissionControl.DECLINED) {
+            // would be answered too late, declined before the body is even read
+            metrics.shed();
+            trace.outcome(OrderTrace.Outcome.SHED).end(DECLINED.code());
+            return DECLINED;
+        }
+        int status = 500;
+        try {
+            // read once, logged as bytes and decoded without binding
+            byte[] body = context.request().contentAsBytes();
+            logger.logOrder(context.method(), context.uri(), body);
+            trace.mark(OrderTrace.Phase.READ);
+            Payload payload = answer(body, trace, start);
+            status = payload.code();
+            return payload;
+        } finally {
+            admission.done(admitted);
+            trace.end(status);
+        }
+    }
+
+    private Payload answer(byte[] body, OrderTrace trace, long start) {
+        OrderCodec codec = CODECS.get();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        trace.mark(OrderTrace.Phase.DECODE).order(order);
+        if (order == null) {
+            trace.outcome(OrderTrace.Outcome.REJECTED);
+            return journaled(body, REJECTED, NO_ANSWER, start);
+        }
+        boolean priceable = order.canBePriced();
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        if (!priceable) {
+            metrics.declined();
+            trace.outcome(OrderTrace.Outcome.DECLINED);
+            // Use the following line to choose not to handle an order
+            return journaled(body, DECLINED, NO_ANSWER, start);
+        }
+
+        double total = order.total();
+        trace.mark(OrderTrace.Phase.PRICE);
+        // the total as the server writes it, a Payload sends a byte array as it is
+        byte[] bill = Arrays.copyOf(codec.encoded(), codec.encode(total));
+        trace.mark(OrderTrace.Phase.ENCODE).outcome(OrderTrace.Outcome.PRICED);
+        return journaled(body, new Payload("application/json", bill, 200), bill, start);
+    }
+
+    private Payload journaled(byte[] body, Payload payload, byte[] answer, long start) {
+        journal.order(body, 0, body.length, payload.code(), answer, 0, answer.length, System.nanoTime() - start);
+        return payload;
+    }
+
+    /**
+     * Records every request in the metrics, by route and status code.
+     */
+    private Payload measure(String uri, Context context, PayloadSupplier next) throws Exception {
+        Metrics.Route route = metrics.route(uri);
+        long start = route.begin();
+        int status = 500;
+        try {
+            Payload payload = next.get();
+            status = payload.code();
+            return payload;
+        } finally {
+            route.end(start, status);
+        }
+    }
+
+    /**
+     * Replaces the pricing rules with rules in the shape of the server's configuration.json.
+     */
+    private Payload installRules(Context context) throws IOException {
+        try {
+            PricingRules.install(PricingRules.parse(context.extract(String.class)));
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            return new Payload("text/plain", e.getMessage(), 400);
+        }
+        String rules = PricingRules.current().toJson();
+        logger.log("Rules installed: " + rules);
+        return new Payload("application/json", rules, 200);
+    }
 }
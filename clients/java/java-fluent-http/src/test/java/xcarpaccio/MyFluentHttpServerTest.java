@@ -1,13 +1,15 @@
 package xcarpaccio;
 
-import static com.jayway.restassured.RestAssured.given;
-import static com.jayway.restassured.RestAssured.when;
-import static com.jayway.restassured.http.ContentType.JSON;
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static io.restassured.http.ContentType.JSON;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 
 import org.junit.Test;
-import com.jayway.restassured.RestAssured;
+import io.restassured.RestAssured;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.warmup.Warmup;
 
 public class MyFluentHttpServerTest {
 
@@ -28,6 +30,21 @@ public class MyFluentHttpServerTest {
         ;
     }
 
+    @Test public void
+    should_report_ready_once_the_shared_warm_up_is_over() throws InterruptedException {
+        // 503 while warming up, at most WARMUP_MILLIS
+        for (int i = 0; i < 300 && !Warmup.shared().ready(); i++) {
+            Thread.sleep(100);
+        }
+
+        when().
+                get("/ready").
+        then().
+                statusCode(200).
+                body(equalTo("ready"))
+        ;
+    }
+
     @Test public void
     should_post_feedback() {
         given().
@@ -47,9 +64,108 @@ public class MyFluentHttpServerTest {
                 body("{\"prices\":[31.01],\"quantities\":[8],\"names\":[\"Tea\"],\"country\":\"IT\",\"reduction\":\"STANDARD\"}").
         when().
                 post("/order").
+        then().
+                statusCode(200).
+                body(equalTo("{\"total\":310.1}"))
+        ;
+    }
+
+    @Test public void
+    should_skip_the_fields_an_order_does_not_need() {
+        given().
+                contentType(JSON).
+                body("{\"id\":{\"seq\":[1,2]},\"prices\":[31.01],\"quantities\":[8],\"names\":null,\"country\":\"IT\",\"reduction\":\"STANDARD\"}").
+        when().
+                post("/order").
+        then().
+                statusCode(200).
+                body(equalTo("{\"total\":310.1}"))
+        ;
+    }
+
+    @Test public void
+    should_reject_an_order_that_is_not_json() {
+        given().
+                contentType(JSON).
+                body("{\"prices\":[31.01").
+        when().
+                post("/order").
+        then().
+                statusCode(400)
+        ;
+    }
+
+    @Test public void
+    should_reject_an_order_without_its_fields() {
+        given().
+                contentType(JSON).
+                body("{}").
+        when().
+                post("/order").
+        then().
+                statusCode(400)
+        ;
+    }
+
+    @Test public void
+    should_not_answer_an_order_from_an_unknown_country() {
+        given().
+                contentType(JSON).
+                body("{\"prices\":[31.01],\"quantities\":[8],\"names\":[\"Tea\"],\"country\":\"US\",\"reduction\":\"STANDARD\"}").
+        when().
+                post("/order").
         then().
                 statusCode(200).
                 body(equalTo(""))
         ;
     }
+
+    @Test public void
+    should_price_orders_with_the_posted_rules() {
+        try {
+            given().
+                    body("{\"taxes\":{\"IT\":\"price => price > 100 ? price * 2 : price\"}}").
+            when().
+                    post("/rules").
+            then().
+                    statusCode(200)
+            ;
+            given().
+                    contentType(JSON).
+                    body("{\"prices\":[31.01],\"quantities\":[8],\"country\":\"IT\",\"reduction\":\"PAY THE PRICE\"}").
+            when().
+                    post("/order").
+            then().
+                    statusCode(200).
+                    body(equalTo("{\"total\":496.16}"))
+            ;
+        } finally {
+            PricingRules.install(PricingRules.defaults());
+        }
+    }
+
+    @Test public void
+    should_reject_invalid_rules() {
+        given().
+                body("{\"taxes\":{\"US\":1.2}}").
+        when().
+                post("/rules").
+        then().
+                statusCode(400).
+                body(equalTo("Unknown country US"))
+        ;
+    }
+
+    @Test public void
+    should_expose_metrics_of_the_answered_requests() {
+        when().
+                get("/ping");
+        when().
+                get("/metrics").
+        then().
+                statusCode(200).
+                body(containsString("# TYPE seller_http_request_duration_seconds histogram")).
+                body(containsString("seller_http_requests_total{route=\"/ping\",status=\"200\"} "))
+        ;
+    }
 }
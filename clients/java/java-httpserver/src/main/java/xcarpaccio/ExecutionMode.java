@@ -0,0 +1,77 @@
+package xcarpaccio;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@link MyHttpServer} runs its exchanges. Selected with the {@code EXECUTOR} environment variable.
+ */
+public enum ExecutionMode {
+    /**
+     * Every exchange runs on the HttpServer dispatcher thread (JDK default).
+     */
+    SAME_THREAD {
+        @Override
+        public Executor createExecutor(int threads, int queueSize) {
+            return null;
+        }
+    },
+    /**
+     * Bounded pool with a bounded queue. When the queue is full the dispatcher thread runs the exchange
+     * itself, which slows down accepting instead of dropping connections.
+     */
+    FIXED {
+        @Override
+        public Executor createExecutor(int threads, int queueSize) {
+            return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    },
+    /**
+     * Fork/join pool of {@code threads} workers, idle ones steal exchanges from the busy ones. Its queues are
+     * unbounded, {@code queueSize} is ignored.
+     */
+    WORK_STEALING {
+        @Override
+        public Executor createExecutor(int threads, int queueSize) {
+            return Executors.newWorkStealingPool(threads);
+        }
+    },
+    /**
+     * One virtual thread per exchange, requires a JDK 21+ runtime.
+     */
+    VIRTUAL {
+        @Override
+        public Executor createExecutor(int threads, int queueSize) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new UnsupportedOperationException("Virtual threads require a JDK 21+ runtime", e);
+            }
+        }
+    };
+
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    public abstract Executor createExecutor(int threads, int queueSize);
+
+    public static ExecutionMode parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return SAME_THREAD;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    static void shutdown(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+}
@@ -5,7 +5,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 import java.io.IOException;
 
 public class FeedbackMessage {
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private String type;
     private String content;
@@ -36,7 +36,7 @@ public class FeedbackMessage {
     }
 
     public String json() throws IOException {
-        return objectMapper.writeValueAsString(this);
+        return OBJECT_MAPPER.writeValueAsString(this);
     }
 
     @Override
@@ -0,0 +1,117 @@
+package xcarpaccio;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The listening sockets {@link MyHttpServer} accepts connections on. Configured with the {@code ACCEPTORS} (default 1),
+ * {@code BACKLOG} (default 0, the JDK default of 50) and {@code REUSE_PORT} (default false) environment variables.
+ * <p>
+ * With several acceptors every one is a JDK {@code HttpServer} of its own, with its dispatcher thread, its executor and
+ * its listening queue, all bound to the same port with {@code SO_REUSEPORT}: the kernel spreads the incoming connections
+ * across them. {@code REUSE_PORT} alone lets several seller JVMs share the port the same way.
+ * <p>
+ * {@code SO_REUSEPORT} requires a JDK 9+ runtime and an OS that has it (Linux, macOS). The JDK {@code HttpServer} does
+ * not expose its channel, it is set through reflection, which a JDK 16+ runtime only allows with
+ * {@code --add-opens jdk.httpserver/sun.net.httpserver=ALL-UNNAMED}.
+ */
+public final class Listeners {
+    public static final Listeners SINGLE = new Listeners(1, 0, false);
+
+    private final int acceptors;
+    private final int backlog;
+    private final boolean reusePort;
+
+    /**
+     * @param backlog   connections waiting to be accepted by every acceptor, 0 or less for the JDK default
+     * @param reusePort always on with more than one acceptor
+     */
+    public Listeners(int acceptors, int backlog, boolean reusePort) {
+        if (acceptors < 1) {
+            throw new IllegalArgumentException("At least one acceptor expected, not " + acceptors);
+        }
+        this.acceptors = acceptors;
+        this.backlog = backlog;
+        this.reusePort = reusePort || acceptors > 1;
+    }
+
+    public static Listeners fromEnvironment() {
+        String acceptors = System.getenv("ACCEPTORS");
+        String backlog = System.getenv("BACKLOG");
+        return new Listeners(acceptors != null ? Integer.parseInt(acceptors) : 1,
+                backlog != null ? Integer.parseInt(backlog) : 0,
+                Boolean.parseBoolean(System.getenv("REUSE_PORT")));
+    }
+
+    public int acceptors() {
+        return acceptors;
+    }
+
+    /**
+     * Binds one {@code HttpServer} per acceptor. On port 0 the first one picks the port, the others join it.
+     *
+     * @throws UnsupportedOperationException when {@code SO_REUSEPORT} cannot be set on this runtime
+     */
+    List<HttpServer> bind(InetSocketAddress address) throws IOException {
+        List<HttpServer> servers = new ArrayList<>(acceptors);
+        try {
+            for (int i = 0; i < acceptors; i++) {
+                HttpServer server = HttpServer.create();
+                if (reusePort) {
+                    enableReusePort(server);
+                }
+                server.bind(address, backlog);
+                servers.add(server);
+                address = server.getAddress();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (HttpServer server : servers) {
+                server.stop(0);
+            }
+            throw e;
+        }
+        return servers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void enableReusePort(HttpServer server) throws IOException {
+        SocketOption<Boolean> option;
+        try {
+            option = (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("SO_REUSEPORT requires a JDK 9+ runtime", e);
+        }
+        ServerSocketChannel channel;
+        try {
+            // HttpServerImpl.server is the ServerImpl, which holds the unbound channel
+            Field impl = server.getClass().getDeclaredField("server");
+            impl.setAccessible(true);
+            Object serverImpl = impl.get(server);
+            Field schan = serverImpl.getClass().getDeclaredField("schan");
+            schan.setAccessible(true);
+            channel = (ServerSocketChannel) schan.get(serverImpl);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // InaccessibleObjectException on a JDK 16+ runtime without --add-opens
+            throw new UnsupportedOperationException("SO_REUSEPORT cannot be set on the JDK HttpServer, run with "
+                    + "--add-opens jdk.httpserver/sun.net.httpserver=ALL-UNNAMED", e);
+        }
+        if (!channel.supportedOptions().contains(option)) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported on " + System.getProperty("os.name"));
+        }
+        channel.setOption(option, true);
+    }
+
+    @Override
+    public String toString() {
+        return acceptors + (acceptors > 1 ? " acceptors" : " acceptor") + (reusePort ? " with SO_REUSEPORT" : "")
+                + (backlog > 0 ? ", backlog " + backlog : "");
+    }
+}
@@ -1,15 +1,49 @@
 package xcarpaccio;
 
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 public class Logger {
+    private final AsyncLog asyncLog;
+
+    public Logger() {
+        this(AsyncLog.shared());
+    }
+
+    public Logger(AsyncLog asyncLog) {
+        this.asyncLog = asyncLog;
+    }
+
     public void log(String message) {
-        System.out.println(message);
+        asyncLog.log(message);
     }
 
     public void log(Exception ex) {
-        ex.printStackTrace();
+        StringWriter stackTrace = new StringWriter();
+        ex.printStackTrace(new PrintWriter(stackTrace));
+        asyncLog.error(stackTrace.toString());
     }
 
     public void error(String message) {
-        System.err.println(message);
+        asyncLog.error(message);
+    }
+
+    /**
+     * Logs the raw request body when the order is sampled, without decoding it to a String.
+     */
+    public void logOrder(String method, String uri, byte[] body, int length) {
+        if (!asyncLog.sampleOrder()) {
+            return;
+        }
+        AsyncLog.Entry entry = asyncLog.info();
+        if (entry != null) {
+            try {
+                entry.append(method).append(' ').append(uri).append(' ').append(body, 0, length);
+            } finally {
+                entry.publish();
+            }
+        }
     }
 }
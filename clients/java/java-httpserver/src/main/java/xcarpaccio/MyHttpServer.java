@@ -3,131 +3,503 @@ package xcarpaccio;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import org.codehaus.jackson.map.ObjectMapper;
-
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.pricing.RulesFile;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static xcarpaccio.MyHttpServer.HttpResponse.badRequest;
+import static xcarpaccio.MyHttpServer.HttpResponse.declined;
 import static xcarpaccio.MyHttpServer.HttpResponse.ok;
 import static xcarpaccio.MyHttpServer.HttpResponse.error;
-import static xcarpaccio.StringUtils.stringify;
+import static xcarpaccio.MyHttpServer.HttpResponse.rejected;
+import static xcarpaccio.MyHttpServer.HttpResponse.unavailable;
 
 public class MyHttpServer
 {
     private final int port;
     private final Logger logger;
-
-    private HttpServer server;
+    private final ExecutionMode executionMode;
+    private final int threads;
+    private final int queueSize;
+    private final FeedbackQueue feedbackQueue;
+    private final Listeners listeners;
+    private final Warmup warmup = Warmup.shared();
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final List<Executor> executors = new ArrayList<>();
+    private final List<Acceptor> acceptors = new ArrayList<>();
+    // of every acceptor, summed by /metrics
+    private volatile List<Metrics> metrics = Collections.emptyList();
 
     public MyHttpServer(String port, Logger logger) {
         this(Integer.parseInt(port), logger);
     }
 
     public MyHttpServer(int port, Logger logger) {
+        this(port, logger, ExecutionMode.SAME_THREAD, ExecutionMode.DEFAULT_THREADS, ExecutionMode.DEFAULT_QUEUE_SIZE);
+    }
+
+    public MyHttpServer(int port, Logger logger, ExecutionMode executionMode, int threads, int queueSize) {
+        this(port, logger, executionMode, threads, queueSize, FeedbackQueue.shared());
+    }
+
+    public MyHttpServer(int port, Logger logger, ExecutionMode executionMode, int threads, int queueSize, FeedbackQueue feedbackQueue) {
+        this(port, logger, executionMode, threads, queueSize, feedbackQueue, Listeners.SINGLE);
+    }
+
+    /**
+     * @param threads   of the executor of every acceptor
+     * @param listeners one {@code HttpServer} per acceptor, each with its own dispatcher thread and executor, and
+     *                  its own metrics, admission control, journal, feedback queue and pricing rules, see {@link Acceptor}
+     */
+    public MyHttpServer(int port, Logger logger, ExecutionMode executionMode, int threads, int queueSize,
+                        FeedbackQueue feedbackQueue, Listeners listeners) {
         this.port = port;
         this.logger = logger;
+        this.executionMode = executionMode;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.feedbackQueue = feedbackQueue;
+        this.listeners = listeners;
     }
 
-    public void start() throws IOException {
-        server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/ping", new PingHttpHandler());
-        server.createContext("/feedback", new FeedbackHttpHandler());
-        server.createContext("/order", new OrderHttpHandler());
-        server.start();
+    public synchronized void start() throws IOException {
+        for (int i = 0; i < listeners.acceptors(); i++) {
+            executors.add(executionMode.createExecutor(threads, queueSize));
+        }
+        try {
+            servers.addAll(listeners.bind(new InetSocketAddress(port)));
+        } catch (IOException | RuntimeException e) {
+            for (Executor executor : executors) {
+                ExecutionMode.shutdown(executor);
+            }
+            executors.clear();
+            throw e;
+        }
+        for (int i = 0; i < servers.size(); i++) {
+            acceptors.add(servers.size() == 1 ? new Acceptor(feedbackQueue) : new Acceptor(i, servers.size(), feedbackQueue));
+        }
+        List<Metrics> all = new ArrayList<>();
+        for (Acceptor acceptor : acceptors) {
+            all.add(acceptor.metrics);
+        }
+        metrics = all;
+        for (int i = 0; i < servers.size(); i++) {
+            HttpServer server = servers.get(i);
+            Acceptor acceptor = acceptors.get(i);
+            server.createContext("/ping", new PingHttpHandler(acceptor));
+            server.createContext("/feedback", new FeedbackHttpHandler(acceptor));
+            server.createContext("/order", new OrderHttpHandler(acceptor));
+            server.createContext("/rules", new RulesHttpHandler(acceptor));
+            server.createContext("/metrics", new MetricsHttpHandler(acceptor));
+            server.createContext("/stats/earnings", new EarningsHttpHandler(acceptor));
+            server.createContext("/ready", new ReadyHttpHandler(acceptor));
+            Executor executor = executors.get(i);
+            server.setExecutor(executor != null ? new CountingExecutor(executor, acceptor.waiting) : null);
+            server.start();
+        }
 
-        logger.log("Server running on port " + port + "...");
+        logger.log("Server running on port " + port() + " (" + executionMode + ", " + listeners + ")...");
     }
 
-    public void shutdown() {
-        if(server != null) {
+    /**
+     * @return the port the server listens on, the one picked by the system when created with port 0
+     */
+    public int port() {
+        return servers.isEmpty() ? port : servers.get(0).getAddress().getPort();
+    }
+
+    public synchronized void shutdown() {
+        if(!servers.isEmpty()) {
             logger.log("Stopping server...");
-            server.stop(2);
+            for (HttpServer server : servers) {
+                server.stop(2);
+            }
+            for (Executor executor : executors) {
+                ExecutionMode.shutdown(executor);
+            }
+            for (Acceptor acceptor : acceptors) {
+                acceptor.stop();
+            }
+            servers.clear();
+            executors.clear();
+            acceptors.clear();
+        }
+    }
+
+    /**
+     * Installs {@code rules} in every acceptor, and as the {@link PricingRules#current() current rules} of the process.
+     */
+    public synchronized void install(PricingRules rules) {
+        PricingRules.install(rules);
+        for (Acceptor acceptor : acceptors) {
+            acceptor.rules = rules;
         }
     }
 
     public static void main( String[] args ) throws IOException {
         Logger logger = new Logger();
-        new MyHttpServer(System.getenv("PORT"), logger).start();
+        ExecutionMode executionMode = ExecutionMode.parse(System.getenv("EXECUTOR"));
+        int threads = intEnv("EXECUTOR_THREADS", ExecutionMode.DEFAULT_THREADS);
+        int queueSize = intEnv("EXECUTOR_QUEUE_SIZE", ExecutionMode.DEFAULT_QUEUE_SIZE);
+        MyHttpServer server = new MyHttpServer(Integer.parseInt(System.getenv("PORT")), logger, executionMode, threads,
+                queueSize, FeedbackQueue.shared(), Listeners.fromEnvironment());
+        RulesFile.watchFromEnvironment(server::install);
+        server.start();
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    /**
+     * What an acceptor records and prices with, its own so that acceptors share nothing on the way of a request:
+     * the process wide metrics, admission control, journal and feedback queue with a single acceptor; with several,
+     * metrics and a feedback queue per acceptor beside the first one's, a share of the admission control's
+     * parallelism, and a journal in {@code JOURNAL_DIR/acceptor-N}. Feedback queues record into the same
+     * {@link xcarpaccio.feedback.EarningsSeries} from their consumer threads, and {@code /metrics} sums the metrics.
+     */
+    private static final class Acceptor {
+        final Metrics metrics;
+        final AdmissionControl admission;
+        final Journal journal;
+        final FeedbackQueue feedbackQueue;
+        // exchanges handed to the executor that have not started yet
+        final AtomicInteger waiting = new AtomicInteger();
+        // read once per order, replaced by install
+        volatile PricingRules rules = PricingRules.current();
+        private final boolean ownsJournal;
+        private final boolean ownsFeedbackQueue;
+
+        Acceptor(FeedbackQueue feedbackQueue) {
+            this.metrics = Metrics.shared();
+            this.admission = AdmissionControl.shared();
+            this.journal = Journal.shared();
+            this.feedbackQueue = feedbackQueue;
+            this.ownsJournal = false;
+            this.ownsFeedbackQueue = false;
+        }
+
+        Acceptor(int index, int count, FeedbackQueue feedbackQueue) {
+            this.metrics = index == 0 ? Metrics.shared() : new Metrics();
+            this.admission = AdmissionControl.fromEnvironment(count);
+            this.journal = Journal.fromEnvironment("acceptor-" + index);
+            this.feedbackQueue = index == 0 ? feedbackQueue : feedbackQueue.sibling().start();
+            this.ownsJournal = true;
+            this.ownsFeedbackQueue = index > 0;
+        }
+
+        /**
+         * Stops the journal and feedback queue the acceptor started, after its {@code HttpServer}.
+         */
+        void stop() {
+            try {
+                if (ownsJournal) {
+                    journal.stop();
+                }
+                if (ownsFeedbackQueue) {
+                    feedbackQueue.stop();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Counts the exchanges waiting for a thread, the admission control adds them to the orders being answered.
+     */
+    private static class CountingExecutor implements Executor {
+        private final Executor executor;
+        private final AtomicInteger waiting;
+
+        CountingExecutor(Executor executor, AtomicInteger waiting) {
+            this.executor = executor;
+            this.waiting = waiting;
+        }
+
+        @Override
+        public void execute(final Runnable exchange) {
+            waiting.incrementAndGet();
+            // timed only while a recording of the orders runs
+            final long queuedAt = OrderTrace.enabled() ? System.nanoTime() : 0;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    waiting.decrementAndGet();
+                    OrderTrace.queued(queuedAt);
+                    exchange.run();
+                }
+            });
+        }
     }
 
     private abstract class AbstractHttpHandler implements HttpHandler {
-        protected final ObjectMapper objectMapper = new ObjectMapper();
+        protected final Acceptor acceptor;
+
+        AbstractHttpHandler(Acceptor acceptor) {
+            this.acceptor = acceptor;
+        }
+
         @Override
         public void handle(HttpExchange httpExchange) throws IOException {
-            HttpResponse response = doHandle(httpExchange);
-            respond(httpExchange, response);
+            Metrics.Route route = acceptor.metrics.route(httpExchange.getHttpContext().getPath());
+            long start = route.begin();
+            int status = 500;
+            try {
+                HttpResponse response = doHandle(httpExchange);
+                status = response.getStatusCode();
+                respond(httpExchange, response);
+            } finally {
+                route.end(start, status);
+                answered(status);
+            }
         }
 
         public abstract HttpResponse doHandle(HttpExchange request) throws IOException;
 
+        /**
+         * Called once the answer is written, or failed to be.
+         */
+        protected void answered(int status) {
+        }
+
         private void respond(HttpExchange httpExchange, HttpResponse response) throws IOException {
-            httpExchange.sendResponseHeaders(response.getStatusCode(), response.getBody().length);
+            httpExchange.sendResponseHeaders(response.getStatusCode(), response.getLength());
             OutputStream os = httpExchange.getResponseBody();
-            os.write(response.getBody());
+            os.write(response.getBody(), 0, response.getLength());
             os.close();
         }
     }
 
     private class PingHttpHandler extends AbstractHttpHandler {
+        PingHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
         @Override
         public HttpResponse doHandle(HttpExchange request) {
             return ok("pong");
         }
     }
 
+    /**
+     * Answers at once and leaves the parsing and logging to the {@link FeedbackQueue}, so feedback does not hold up orders.
+     */
     private class FeedbackHttpHandler extends AbstractHttpHandler {
+        private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+            @Override
+            protected byte[] initialValue() {
+                return new byte[1024];
+            }
+        };
+
+        FeedbackHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
         @Override
-        public HttpResponse doHandle(HttpExchange request) {
+        public HttpResponse doHandle(HttpExchange request) throws IOException {
+            byte[] buffer = buffers.get();
             InputStream body = request.getRequestBody();
-
-            try {
-                FeedbackMessage message = objectMapper.readValue(body, FeedbackMessage.class);
-                logger.log(message.getType() + ": " + message.getContent());
-            } catch (IOException exception) {
-                logger.error(exception.getMessage());
+            int length = 0;
+            int read;
+            while ((read = body.read(buffer, length, buffer.length - length)) >= 0) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffers.set(buffer);
+                }
             }
-
-            return ok();
+            acceptor.journal.feedback(buffer, 0, length);
+            return acceptor.feedbackQueue.offer(buffer, 0, length) ? ok() : unavailable();
         }
     }
 
     private class OrderHttpHandler extends AbstractHttpHandler {
+        private final ThreadLocal<OrderCodec> codecs = new ThreadLocal<OrderCodec>() {
+            @Override
+            protected OrderCodec initialValue() {
+                return new OrderCodec();
+            }
+        };
+
+        OrderHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
         @Override
         public HttpResponse doHandle(HttpExchange request) {
-
+            long start = System.nanoTime();
+            OrderTrace trace = OrderTrace.start();
+            long admitted = acceptor.admission.admit(acceptor.waiting.get());
+            if (admitted == AdmissionControl.DECLINED) {
+                // the body is left unread, the server drains it when the exchange is closed
+                acceptor.metrics.shed();
+                trace.outcome(OrderTrace.Outcome.SHED);
+                return declined();
+            }
             try {
-                String method = request.getRequestMethod();
-                String uri = request.getRequestURI().getPath();
-                String requestBody = stringify(request.getRequestBody());
-                logger.log(method + " " + uri + " " + requestBody);
-                Order incomingOrder = objectMapper.readValue(requestBody, Order.class);
-                logger.log("Unserialized order: " + incomingOrder);
-
-//              double total = 42; // TODO compute me correctly or you'll get a penalty
-//              Result result = new Result(total);
-//              return ok(objectMapper.writeValueAsString(result)); // Use this to respond to an order with a total
-
-                return ok(""); // Use this if you don't want to respond to an order, without penalty
+                OrderCodec codec = codecs.get();
+                HttpResponse response = answer(request, codec, trace);
+                acceptor.journal.order(codec.body(), 0, codec.bodyLength(), response.getStatusCode(),
+                        response.getBody(), 0, response.getLength(), System.nanoTime() - start);
+                return response;
             } catch (IOException e) {
+                // reading the body failed, a corrupt order does not get here
                 logger.log(e);
+                trace.outcome(OrderTrace.Outcome.FAILED);
                 return error();
+            } finally {
+                acceptor.admission.done(admitted);
             }
         }
+
+        /**
+         * Read, decode, validate, price and encode are the phases of the {@link OrderTrace}, write comes after.
+         */
+        private HttpResponse answer(HttpExchange request, OrderCodec codec, OrderTrace trace) throws IOException {
+            codec.read(request.getRequestBody());
+            logger.logOrder(request.getRequestMethod(), request.getRequestURI().getPath(), codec.body(), codec.bodyLength());
+            trace.mark(OrderTrace.Phase.READ);
+            PrimitiveOrder incomingOrder = codec.decode(codec.body(), 0, codec.bodyLength());
+            trace.mark(OrderTrace.Phase.DECODE).order(incomingOrder);
+
+            if (incomingOrder == null) {
+                // a corrupt order, the server expects a 400
+                trace.outcome(OrderTrace.Outcome.REJECTED);
+                return rejected();
+            }
+            boolean priceable = incomingOrder.canBePriced();
+            trace.mark(OrderTrace.Phase.VALIDATE);
+            if (!priceable) {
+                acceptor.metrics.declined();
+                trace.outcome(OrderTrace.Outcome.DECLINED);
+                return declined(); // Use this if you don't want to respond to an order, without penalty
+            }
+            double total = incomingOrder.total(acceptor.rules);
+            trace.mark(OrderTrace.Phase.PRICE);
+            HttpResponse response = ok(codec.encoded(), codec.encode(total));
+            trace.mark(OrderTrace.Phase.ENCODE).outcome(OrderTrace.Outcome.PRICED);
+            return response;
+        }
+
+        @Override
+        protected void answered(int status) {
+            OrderTrace.current().mark(OrderTrace.Phase.WRITE).end(status);
+        }
+    }
+
+    /**
+     * GET answers the pricing rules in place, POST or PUT replaces them with rules in the shape of the server's
+     * configuration.json.
+     */
+    private class RulesHttpHandler extends AbstractHttpHandler {
+        RulesHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
+        @Override
+        public HttpResponse doHandle(HttpExchange request) throws IOException {
+            String method = request.getRequestMethod();
+            if (method.equals("POST") || method.equals("PUT")) {
+                try {
+                    install(PricingRules.parse(read(request.getRequestBody())));
+                } catch (IllegalArgumentException e) {
+                    logger.error(e.getMessage());
+                    return badRequest(e.getMessage());
+                }
+                logger.log("Rules installed: " + acceptor.rules.toJson());
+            }
+            return ok(acceptor.rules.toJson());
+        }
+
+        private String read(InputStream body) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private class MetricsHttpHandler extends AbstractHttpHandler {
+        MetricsHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
+        @Override
+        public HttpResponse doHandle(HttpExchange request) {
+            request.getResponseHeaders().set("Content-Type", Metrics.CONTENT_TYPE);
+            return ok(Metrics.scrape(metrics));
+        }
     }
 
+    /**
+     * The cash the game server reported, second by second, see {@link xcarpaccio.feedback.EarningsSeries}.
+     */
+    private class EarningsHttpHandler extends AbstractHttpHandler {
+        EarningsHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
+        @Override
+        public HttpResponse doHandle(HttpExchange request) {
+            request.getResponseHeaders().set("Content-Type", "application/json");
+            return ok(acceptor.feedbackQueue.earnings().toJson(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * 503 until the {@link Warmup} is over.
+     */
+    private class ReadyHttpHandler extends AbstractHttpHandler {
+        ReadyHttpHandler(Acceptor acceptor) {
+            super(acceptor);
+        }
+
+        @Override
+        public HttpResponse doHandle(HttpExchange request) {
+            return warmup.ready() ? ok(Warmup.READY) : unavailable(Warmup.WARMING_UP);
+        }
+    }
 
     public static class HttpResponse {
         private static final byte[] NO_CONTENT = new byte[]{};
+        private static final HttpResponse DECLINED = new HttpResponse(200, NO_CONTENT, 0);
+        private static final HttpResponse REJECTED = new HttpResponse(400, NO_CONTENT, 0);
 
         private final int statusCode;
         private final byte[] body;
+        private final int length;
 
-        private HttpResponse(int statusCode, byte[] body) {
+        private HttpResponse(int statusCode, byte[] body, int length) {
             this.statusCode = statusCode;
             this.body = body;
+            this.length = length;
         }
 
         public static HttpResponse ok() {
@@ -135,15 +507,52 @@ public class MyHttpServer
         }
 
         public static HttpResponse ok(byte[] body) {
-            return new HttpResponse(200, body);
+            return ok(body, body.length);
+        }
+
+        /**
+         * Answers the first {@code length} bytes of {@code body}, which may be a reused buffer.
+         */
+        public static HttpResponse ok(byte[] body, int length) {
+            return new HttpResponse(200, body, length);
+        }
+
+        /**
+         * Declines an order without penalty, the same preallocated answer every time.
+         */
+        public static HttpResponse declined() {
+            return DECLINED;
+        }
+
+        /**
+         * Rejects a corrupt order, the same preallocated answer every time.
+         */
+        public static HttpResponse rejected() {
+            return REJECTED;
+        }
+
+        public static HttpResponse badRequest(String message) {
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            return new HttpResponse(400, body, body.length);
+        }
+
+        /**
+         * Tells the caller to back off, without a body.
+         */
+        public static HttpResponse unavailable() {
+            return unavailable(NO_CONTENT);
+        }
+
+        public static HttpResponse unavailable(byte[] body) {
+            return new HttpResponse(503, body, body.length);
         }
 
         public static HttpResponse error() {
-            return new HttpResponse(500, NO_CONTENT);
+            return new HttpResponse(500, NO_CONTENT, 0);
         }
 
         public static HttpResponse ok(String body) {
-            return ok(body != null ? body.getBytes() : NO_CONTENT);
+            return ok(body != null ? body.getBytes(StandardCharsets.UTF_8) : NO_CONTENT);
         }
 
         public int getStatusCode() {
@@ -154,6 +563,10 @@ public class MyHttpServer
             return body;
         }
 
+        public int getLength() {
+            return length;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -161,13 +574,14 @@ public class MyHttpServer
 
             HttpResponse response = (HttpResponse) o;
 
-            return statusCode == response.statusCode && Arrays.equals(body, response.body);
+            return statusCode == response.statusCode && length == response.length
+                    && Arrays.equals(Arrays.copyOf(body, length), Arrays.copyOf(response.body, response.length));
         }
 
         @Override
         public int hashCode() {
             int result = statusCode;
-            result = 31 * result + (body != null ? Arrays.hashCode(body) : 0);
+            result = 31 * result + (body != null ? Arrays.hashCode(Arrays.copyOf(body, length)) : 0);
             return result;
         }
     }
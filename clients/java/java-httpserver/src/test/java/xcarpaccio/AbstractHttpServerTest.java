@@ -25,6 +25,27 @@ public abstract class AbstractHttpServerTest
     }
 
     protected String post(String path, String body) throws IOException {
+        HttpURLConnection connection = send(path, body);
+        try {
+            return stringify(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return the status code of the response, which may be an error
+     */
+    protected int postForStatus(String path, String body) throws IOException {
+        HttpURLConnection connection = send(path, body);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection send(String path, String body) throws IOException {
         URL url = new URL(path);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setDoOutput(true);
@@ -37,9 +58,7 @@ public abstract class AbstractHttpServerTest
         connection.setUseCaches(false);
         try( DataOutputStream wr = new DataOutputStream( connection.getOutputStream())) {
             wr.write( body.getBytes(UTF_8) );
-            return stringify(connection.getInputStream());
-        } finally {
-            connection.disconnect();
         }
+        return connection;
     }
 }
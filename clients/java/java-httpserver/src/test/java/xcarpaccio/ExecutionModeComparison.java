@@ -0,0 +1,134 @@
+package xcarpaccio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop throughput/latency comparison of the {@link ExecutionMode}s. Not a unit test, run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=xcarpaccio.ExecutionModeComparison \
+ *     -Dexec.args="[clients] [requests per client] [modes...]"
+ * </pre>
+ */
+public class ExecutionModeComparison {
+    private static final int PORT = 8011;
+    private static final byte[] ORDER = "{\"prices\":[15.99,3.5],\"quantities\":[1,2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}".getBytes();
+
+    public static void main(String[] args) throws Exception {
+        // without it Nagle + delayed ACKs add ~40ms to every exchange and hide the differences between modes
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        List<ExecutionMode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(ExecutionMode.parse(args[i]));
+        }
+        if (modes.isEmpty()) {
+            modes.addAll(Arrays.asList(ExecutionMode.values()));
+        }
+
+        System.out.println(String.format("%-14s %10s %10s %10s %10s", "mode", "req/s", "p50 (us)", "p99 (us)", "max (us)"));
+        for (ExecutionMode mode : modes) {
+            MyHttpServer server = new MyHttpServer(PORT, new SilentLogger(), mode, ExecutionMode.DEFAULT_THREADS, ExecutionMode.DEFAULT_QUEUE_SIZE);
+            try {
+                server.start();
+            } catch (UnsupportedOperationException e) {
+                System.out.println(String.format("%-14s %s", mode, e.getMessage()));
+                continue;
+            }
+            try {
+                run(clients, requests / 10); // warm-up
+                long[] latencies = new long[clients * requests];
+                long elapsed = run(clients, requests, latencies);
+                Arrays.sort(latencies);
+                System.out.println(String.format("%-14s %10.0f %10d %10d %10d", mode,
+                        latencies.length / (elapsed / 1e9),
+                        percentile(latencies, 0.50) / 1000,
+                        percentile(latencies, 0.99) / 1000,
+                        latencies[latencies.length - 1] / 1000));
+            } finally {
+                server.shutdown();
+            }
+        }
+    }
+
+    private static void run(int clients, int requests) throws Exception {
+        run(clients, requests, new long[clients * requests]);
+    }
+
+    private static long run(final int clients, final int requests, final long[] latencies) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                final int offset = c * requests;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        for (int r = 0; r < requests; r++) {
+                            long begin = System.nanoTime();
+                            postOrder();
+                            latencies[offset + r] = System.nanoTime() - begin;
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void postOrder() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + "/order").openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(ORDER);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[256];
+            while (in.read(buffer) >= 0) {
+                // drain so the connection can be kept alive
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static class SilentLogger extends Logger {
+        @Override
+        public void log(String message) {
+        }
+
+        @Override
+        public void log(Exception ex) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+
+        @Override
+        public void logOrder(String method, String uri, byte[] body, int length) {
+        }
+    }
+}
@@ -1,19 +1,46 @@
 package xcarpaccio;
 
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.After;
 import org.junit.Before;
-import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.tracing.OrderEvent;
+import xcarpaccio.warmup.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.StandardSocketOptions;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.BDDMockito.then;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class MyHttpServerTest extends AbstractHttpServerTest
 {
     private static final int TEST_PORT = 8001;
     private static final String LOCALHOST = "http://localhost:" + TEST_PORT;
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     private MyHttpServer server;
     private Logger logger;
 
@@ -27,6 +54,7 @@ public class MyHttpServerTest extends AbstractHttpServerTest
     @After
     public  void stopServer() {
         server.shutdown();
+        PricingRules.install(PricingRules.defaults());
     }
 
     @Test
@@ -35,25 +63,188 @@ public class MyHttpServerTest extends AbstractHttpServerTest
     }
 
     @Test
-    public void should_print_received_message_via_post() throws Exception {
-        post(LOCALHOST + "/feedback", new FeedbackMessage("info", "test").json());
+    public void should_report_ready_once_the_shared_warm_up_is_over() throws Exception {
+        // 503 while warming up, at most WARMUP_MILLIS
+        for (int i = 0; i < 300 && !Warmup.shared().ready(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(get(LOCALHOST + "/ready")).isEqualTo("ready");
+    }
+
+    @Test
+    public void should_respond_pong_when_exchanges_run_on_a_fixed_pool() throws Exception {
+        MyHttpServer pooledServer = new MyHttpServer(TEST_PORT + 1, logger, ExecutionMode.FIXED, 2, 4);
+        pooledServer.start();
+        try {
+            assertThat(get("http://localhost:" + (TEST_PORT + 1) + "/ping")).isEqualTo("pong");
+        } finally {
+            pooledServer.shutdown();
+        }
+    }
+
+    @Test
+    public void should_answer_on_every_acceptor_sharing_the_port() throws Exception {
+        assumeTrue("SO_REUSEPORT requires a JDK 9+ runtime", reusePortAvailable());
+        MyHttpServer acceptorsServer = new MyHttpServer(0, logger, ExecutionMode.SAME_THREAD, ExecutionMode.DEFAULT_THREADS,
+                ExecutionMode.DEFAULT_QUEUE_SIZE, FeedbackQueue.shared(), new Listeners(3, 128, true));
+        acceptorsServer.start();
+        try {
+            String url = "http://localhost:" + acceptorsServer.port();
+            long priced = count(get(url + "/metrics"), "seller_http_requests_total{route=\"/order\",status=\"200\"}");
+            post(url + "/rules", "{\"taxes\":{\"ES\":\"function(price) { return price * 2; }\"}}");
+            for (int i = 0; i < 10; i++) {
+                assertThat(get(url + "/ping")).isEqualTo("pong");
+                // every acceptor prices with the posted rules, whichever one received them
+                assertThat(post(url + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}"))
+                        .isEqualTo("{\"total\":14}");
+            }
+
+            // and /metrics sums the acceptors
+            assertThat(count(get(url + "/metrics"), "seller_http_requests_total{route=\"/order\",status=\"200\"}"))
+                    .isEqualTo(priced + 10);
+        } finally {
+            acceptorsServer.shutdown();
+        }
+    }
+
+    @Test
+    public void should_refuse_several_acceptors_without_SO_REUSEPORT() throws Exception {
+        assumeFalse(reusePortAvailable());
+        MyHttpServer acceptorsServer = new MyHttpServer(TEST_PORT + 4, logger, ExecutionMode.SAME_THREAD, ExecutionMode.DEFAULT_THREADS,
+                ExecutionMode.DEFAULT_QUEUE_SIZE, FeedbackQueue.shared(), new Listeners(2, 0, false));
+        try {
+            acceptorsServer.start();
+            fail("Two acceptors bound without SO_REUSEPORT");
+        } catch (UnsupportedOperationException e) {
+            assertThat(e).hasMessage("SO_REUSEPORT requires a JDK 9+ runtime");
+        } finally {
+            acceptorsServer.shutdown();
+        }
+        // nothing was left bound
+        MyHttpServer single = new MyHttpServer(TEST_PORT + 4, logger);
+        single.start();
+        single.shutdown();
+    }
+
+    @Test
+    public void should_queue_received_message_via_post() throws Exception {
+        FeedbackQueue feedback = new FeedbackQueue(16, 60000, new AsyncLog(16, 1, new PrintStream(new ByteArrayOutputStream()), System.err)).start();
+        MyHttpServer feedbackServer = new MyHttpServer(TEST_PORT + 2, logger, ExecutionMode.SAME_THREAD, ExecutionMode.DEFAULT_THREADS, ExecutionMode.DEFAULT_QUEUE_SIZE, feedback);
+        feedbackServer.start();
+        try {
+            post("http://localhost:" + (TEST_PORT + 2) + "/feedback", new FeedbackMessage("info", "test").json());
+        } finally {
+            feedbackServer.shutdown();
+        }
+        feedback.stop();
 
-        then(logger).should().log("info: test");
+        assertThat(feedback.counts()).containsOnly(entry("info test", 1L));
+    }
+
+    @Test
+    public void should_serve_the_earnings_reported_by_feedback() throws Exception {
+        FeedbackQueue feedback = new FeedbackQueue(16, 60000, new AsyncLog(16, 1, new PrintStream(new ByteArrayOutputStream()), System.err)).start();
+        MyHttpServer feedbackServer = new MyHttpServer(TEST_PORT + 3, logger, ExecutionMode.SAME_THREAD, ExecutionMode.DEFAULT_THREADS, ExecutionMode.DEFAULT_QUEUE_SIZE, feedback);
+        feedbackServer.start();
+        try {
+            post("http://localhost:" + (TEST_PORT + 3) + "/feedback", new FeedbackMessage("INFO", "Hey, bob earned 8.33").json());
+            feedback.stop();
+
+            assertThat(get("http://localhost:" + (TEST_PORT + 3) + "/stats/earnings"))
+                    .startsWith("{\"start\":")
+                    .contains("\"messages\":{\"EARNED\":[")
+                    .endsWith("\"totalEarned\":8.33,\"totalLost\":0}");
+        } finally {
+            feedbackServer.shutdown();
+        }
     }
 
     @Test
-    @Ignore
     public void should_deserialize_JSON_order_and_render_total() throws Exception {
         String body = post(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
 
-        assertThat(body).isEqualTo("{\"total\":7.0}");
+        assertThat(body).isEqualTo("{\"total\":8.33}");
     }
 
     @Test
-    @Ignore
-    public void should_reject_an_order() throws Exception {
-        String body = post(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+    public void should_reject_an_order_from_an_unknown_country() throws Exception {
+        String body = post(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"US\",\"reduction\":\"STANDARD\"}");
 
         assertThat(body).isEqualTo("");
     }
+
+    @Test
+    public void should_answer_400_to_corrupt_orders_without_logging_an_error() throws Exception {
+        assertThat(postForStatus(LOCALHOST + "/order", "{}")).isEqualTo(400);
+        assertThat(postForStatus(LOCALHOST + "/order", "[true,false,true]")).isEqualTo(400);
+        assertThat(postForStatus(LOCALHOST + "/order", "null")).isEqualTo(400);
+        assertThat(postForStatus(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2,1],\"country\":\"ES\",\"reduction\":\"STANDARD\"}")).isEqualTo(400);
+
+        verify(logger, never()).log(any(Exception.class));
+    }
+
+    @Test
+    public void should_price_orders_with_the_posted_rules() throws Exception {
+        String rules = post(LOCALHOST + "/rules", "{\"taxes\":{\"ES\":\"function(price) { return price * 2; }\"}}");
+        String body = post(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(rules).isEqualTo("{\"taxes\":{\"ES\":\"function(price) { return price * 2; }\"}}");
+        assertThat(body).isEqualTo("{\"total\":14}");
+    }
+
+    @Test
+    public void should_record_the_phases_of_the_orders_in_a_flight_recording() throws Exception {
+        assumeTrue("JDK Flight Recorder is needed", FlightRecorder.isAvailable());
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(OrderEvent.class);
+            recording.start();
+
+            post(LOCALHOST + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+            recording.stop();
+            Path file = folder.newFile("orders.jfr").toPath();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("xcarpaccio.Order"))
+                    .collect(Collectors.toList());
+        }
+
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("country")).isEqualTo("ES");
+        assertThat(event.getInt("items")).isEqualTo(1);
+        assertThat(event.getString("outcome")).isEqualTo("priced");
+        assertThat(event.getInt("status")).isEqualTo(200);
+        assertThat(event.getDuration("read")).isGreaterThan(Duration.ZERO);
+        assertThat(event.getDuration("write")).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    public void should_expose_metrics_of_the_answered_requests() throws Exception {
+        get(LOCALHOST + "/ping");
+
+        assertThat(get(LOCALHOST + "/metrics"))
+                .contains("# TYPE seller_http_request_duration_seconds histogram")
+                .contains("seller_http_requests_total{route=\"/ping\",status=\"200\"} ");
+    }
+
+    private static long count(String metrics, String series) {
+        for (String line : metrics.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Long.parseLong(line.substring(series.length() + 1));
+            }
+        }
+        return 0;
+    }
+
+    private static boolean reusePortAvailable() {
+        try {
+            StandardSocketOptions.class.getField("SO_REUSEPORT");
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
 }
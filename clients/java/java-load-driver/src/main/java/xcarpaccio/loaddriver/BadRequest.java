@@ -0,0 +1,94 @@
+package xcarpaccio.loaddriver;
+
+import xcarpaccio.pricing.PrimitiveOrder;
+
+/**
+ * The eleven ways the game server's {@code BadRequest.corruptOrder} breaks an order, numbered like its modes.
+ * A seller is expected to answer each of them with a 400.
+ */
+final class BadRequest {
+    static final int MODES = 11;
+
+    private static final String UNKNOWN_COUNTRY = "Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch";
+
+    private BadRequest() {
+    }
+
+    /**
+     * @return the body the server would send, as its {@code JSON.stringify} writes it
+     */
+    static String corrupt(PrimitiveOrder order, int mode) {
+        switch (mode) {
+            case 0:
+                return "{}";
+            case 1:
+                StringBuilder booleans = new StringBuilder("[");
+                for (int i = 0; i < 17; i++) {
+                    booleans.append(i > 0 ? "," : "").append(i % 2 == 0);
+                }
+                return booleans.append(']').toString();
+            case 2:
+                return object(prices(order, 0), "{\"error\":\"datacenter unreachable\"}", order.getCountry(), order.getReduction());
+            case 3:
+                return object(prices(order, 0), quantities(order, 1), order.getCountry(), order.getReduction());
+            case 4:
+                return object(prices(order, 1), quantities(order, 0), order.getCountry(), order.getReduction());
+            case 5:
+                return object(prices(order, 0), quantities(order, 0), UNKNOWN_COUNTRY, order.getReduction());
+            case 6:
+                return object(prices(order, 0), quantities(order, 0), null, order.getReduction());
+            case 7:
+                return object(null, quantities(order, 0), order.getCountry(), order.getReduction());
+            case 8:
+                return object(prices(order, 0), null, order.getCountry(), order.getReduction());
+            case 9:
+                return object(prices(order, 0), quantities(order, 0), order.getCountry(), null);
+            case 10:
+                return "null";
+            default:
+                throw new IllegalArgumentException("Unknown corrupt mode " + mode);
+        }
+    }
+
+    private static String prices(PrimitiveOrder order, int from) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = from; i < order.pricesCount(); i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            Json.appendNumber(json, order.price(i));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String quantities(PrimitiveOrder order, int from) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = from; i < order.quantitiesCount(); i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            json.append(order.quantity(i));
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Leaves out the {@code null} fields, like {@code delete copy.field} does.
+     */
+    private static String object(String prices, String quantities, String country, String reduction) {
+        StringBuilder json = new StringBuilder(256).append('{');
+        if (prices != null) {
+            json.append("\"prices\":").append(prices);
+        }
+        if (quantities != null) {
+            json.append(json.length() > 1 ? "," : "").append("\"quantities\":").append(quantities);
+        }
+        if (country != null) {
+            Json.appendString(json.append(json.length() > 1 ? "," : "").append("\"country\":"), country);
+        }
+        if (reduction != null) {
+            Json.appendString(json.append(json.length() > 1 ? "," : "").append("\"reduction\":"), reduction);
+        }
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,44 @@
+package xcarpaccio.loaddriver;
+
+/**
+ * The few bits of {@code JSON.stringify} the driver needs to talk like the game server.
+ */
+final class Json {
+    private Json() {
+    }
+
+    /**
+     * Appends a number as JavaScript prints it when it is integral, {@link Double#toString(double)} otherwise.
+     */
+    static StringBuilder appendNumber(StringBuilder json, double value) {
+        if (value == (long) value) {
+            return json.append((long) value);
+        }
+        return json.append(value);
+    }
+
+    static String number(double value) {
+        return appendNumber(new StringBuilder(24), value).toString();
+    }
+
+    static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+}
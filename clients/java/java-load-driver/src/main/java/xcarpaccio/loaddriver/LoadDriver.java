@@ -0,0 +1,192 @@
+package xcarpaccio.loaddriver;
+
+import xcarpaccio.pricing.OrderGenerator;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for the game server to find how many orders per second a seller takes.
+ * <p>
+ * Orders leave at a fixed rate whatever the sellers do (open loop), and each latency is measured from the time the
+ * order was scheduled rather than from the time it could be sent, so a stalled seller cannot hide its stall by
+ * holding back the next orders (coordinated omission). The rate goes up step by step, and each step reports the
+ * latency percentiles, the errors and penalties, and the cash each seller would have made, scored like the server.
+ */
+public class LoadDriver {
+    private static final double SATURATED_RATIO = 0.95;
+
+    private final Options options;
+    private final List<Seller> sellers = new ArrayList<>();
+    private final OrderGenerator generator;
+    private final Random modes;
+    private final PrimitiveOrder order = new PrimitiveOrder();
+    private long iteration;
+
+    LoadDriver(Options options) {
+        this.options = options;
+        this.generator = new OrderGenerator(options.seed);
+        this.modes = new Random(options.seed);
+        Referee referee = new Referee(options.offlinePenalty);
+        for (Map.Entry<String, String> seller : options.sellers.entrySet()) {
+            sellers.add(new Seller(seller.getKey(), seller.getValue(), options.connections, options.timeoutMillis, referee, options.feedback));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(1);
+            return;
+        }
+        if (options.rules != null) {
+            PricingRules.install(PricingRules.parse(new String(Files.readAllBytes(Paths.get(options.rules)), StandardCharsets.UTF_8)));
+        }
+        new LoadDriver(options).run();
+    }
+
+    void run() throws InterruptedException {
+        try {
+            if (options.warmup > 0) {
+                System.out.println(String.format("Warming up at %d orders/s for %d s", options.rates[0], options.warmup));
+                runStep(options.rates[0], options.warmup);
+            }
+            for (int rate : options.rates) {
+                report(rate, runStep(rate, options.duration));
+            }
+        } finally {
+            for (Seller seller : sellers) {
+                seller.shutdown();
+            }
+        }
+    }
+
+    private Map<Seller, StepResult> runStep(int rate, int seconds) throws InterruptedException {
+        Map<Seller, StepStats> stats = new LinkedHashMap<>();
+        for (Seller seller : sellers) {
+            stats.put(seller, new StepStats());
+        }
+        long orders = (long) rate * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < orders; i++) {
+            long intended = start + (long) (i * 1e9 / rate);
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Shot shot = nextShot(intended);
+            for (Seller seller : sellers) {
+                seller.send(shot, stats.get(seller));
+            }
+        }
+
+        // give the sellers as long as the step lasted to catch up, then forget the orders they never got
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Map<Seller, StepResult> results = new LinkedHashMap<>();
+        for (Seller seller : sellers) {
+            StepStats sellerStats = stats.get(seller);
+            awaitAnswers(sellerStats, orders, deadline);
+            int unsent = sellerStats.completed.sum() < orders ? seller.discardQueued() : 0;
+            awaitAnswers(sellerStats, orders - unsent, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis + 1000));
+            results.put(seller, new StepResult(sellerStats, start, unsent));
+        }
+        return results;
+    }
+
+    private Shot nextShot(long intended) {
+        iteration++;
+        generator.next(order, options.reduction);
+        double expectedBill = order.total();
+        boolean badRequest = options.badRequestPeriod > 0 && iteration % options.badRequestPeriod == 0;
+        String body = badRequest
+                ? BadRequest.corrupt(order, options.modes[modes.nextInt(options.modes.length)])
+                : OrderGenerator.toJson(order);
+        return new Shot(intended, body.getBytes(StandardCharsets.UTF_8), expectedBill, badRequest);
+    }
+
+    private static void awaitAnswers(StepStats stats, long expected, long deadline) throws InterruptedException {
+        while (stats.completed.sum() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void report(int rate, Map<Seller, StepResult> results) {
+        System.out.println();
+        System.out.println(String.format("%d orders/s for %d s, latencies in ms from the scheduled send time", rate, options.duration));
+        System.out.println(String.format("%-16s %9s %10s %8s %8s %8s %8s %12s %8s %9s %8s %12s",
+                "seller", "answered", "answers/s", "p50", "p99", "p99.9", "max", "service p99", "errors", "penalties", "unsent", "cash"));
+        for (Map.Entry<Seller, StepResult> entry : results.entrySet()) {
+            StepResult result = entry.getValue();
+            StepStats stats = result.stats;
+            double throughput = result.throughput();
+            boolean saturated = result.unsent > 0 || throughput < rate * SATURATED_RATIO;
+            System.out.println(String.format("%-16s %9d %10.1f %8.2f %8.2f %8.2f %8.2f %12.2f %8d %9d %8d %12.2f%s",
+                    entry.getKey().name, stats.completed.sum(), throughput,
+                    millis(stats.latency.getValueAtPercentile(50)),
+                    millis(stats.latency.getValueAtPercentile(99)),
+                    millis(stats.latency.getValueAtPercentile(99.9)),
+                    millis(stats.latency.getMaxValue()),
+                    millis(stats.service.getValueAtPercentile(99)),
+                    stats.errors(), stats.penalties(), result.unsent, stats.cash.sum(),
+                    saturated ? "  saturated" : ""));
+            StringBuilder outcomes = new StringBuilder("  ");
+            for (Outcome outcome : Outcome.values()) {
+                long count = stats.count(outcome);
+                if (count > 0) {
+                    outcomes.append(' ').append(outcome).append('=').append(count);
+                }
+            }
+            if (stats.feedbackDropped.sum() > 0) {
+                outcomes.append(" FEEDBACK_DROPPED=").append(stats.feedbackDropped.sum());
+            }
+            System.out.println(outcomes);
+            if (options.histogram) {
+                stats.latency.outputPercentileDistribution(System.out, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class StepResult {
+        final StepStats stats;
+        final long startNanos;
+        final int unsent;
+
+        StepResult(StepStats stats, long startNanos, int unsent) {
+            this.stats = stats;
+            this.startNanos = startNanos;
+            this.unsent = unsent;
+        }
+
+        /**
+         * @return answers per second, from the start of the step to the last answer
+         */
+        double throughput() {
+            long answered = stats.completed.sum();
+            return answered == 0 ? 0 : answered / ((stats.lastAnswerNanos() - startNanos) / 1e9);
+        }
+    }
+}
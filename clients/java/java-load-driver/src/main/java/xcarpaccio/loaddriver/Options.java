@@ -0,0 +1,130 @@
+package xcarpaccio.loaddriver;
+
+import xcarpaccio.pricing.Reduction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the {@link LoadDriver}, every option is {@code --name=value}.
+ */
+final class Options {
+    static final String USAGE = "Usage: java -jar load-driver.jar [options]\n"
+            + "  --seller=<name>=<url>     seller to load, repeat it for several sellers (seller=http://localhost:8080)\n"
+            + "  --rates=<n,...>           orders per second of each step (100)\n"
+            + "  --duration=<seconds>      length of each step (30)\n"
+            + "  --warmup=<seconds>        unreported run at the first rate (10)\n"
+            + "  --reduction=<reduction>   STANDARD, HALF PRICE or PAY THE PRICE (STANDARD)\n"
+            + "  --bad-requests=<n>        corrupt one order in n, 0 for none (5)\n"
+            + "  --modes=<n,...>           corrupt modes to pick from (0,1,2,3,4,5,6,7,8,9,10)\n"
+            + "  --connections=<n>         concurrent requests per seller (64)\n"
+            + "  --timeout=<millis>        connect and read timeout, the seller is offline past it (5000)\n"
+            + "  --offline-penalty=<cash>  charged when a seller is offline (0)\n"
+            + "  --feedback=<true|false>   post the server's feedback messages (true)\n"
+            + "  --seed=<n>                seed of the generated orders (42)\n"
+            + "  --rules=<file>            compute the expected bills with these rules, as the sellers' RULES_FILE\n"
+            + "  --histogram               print the whole latency distribution of each step";
+
+    final Map<String, String> sellers = new LinkedHashMap<>();
+    int[] rates = {100};
+    int duration = 30;
+    int warmup = 10;
+    Reduction reduction = Reduction.STANDARD;
+    int badRequestPeriod = 5;
+    int[] modes = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    int connections = 64;
+    int timeoutMillis = 5000;
+    double offlinePenalty = 0;
+    boolean feedback = true;
+    long seed = 42;
+    String rules;
+    boolean histogram;
+
+    static Options parse(String... args) {
+        Options options = new Options();
+        for (String arg : args) {
+            if (arg.equals("--histogram")) {
+                options.histogram = true;
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Invalid option " + arg);
+            }
+            String value = arg.substring(equals + 1);
+            switch (arg.substring(2, equals)) {
+                case "seller":
+                    int separator = value.indexOf('=');
+                    if (separator < 0) {
+                        throw new IllegalArgumentException("Expected --seller=<name>=<url> but got " + arg);
+                    }
+                    options.sellers.put(value.substring(0, separator), value.substring(separator + 1));
+                    break;
+                case "rates":
+                    options.rates = ints(value);
+                    break;
+                case "duration":
+                    options.duration = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Integer.parseInt(value);
+                    break;
+                case "reduction":
+                    options.reduction = Reduction.fromLabel(value);
+                    if (options.reduction == null) {
+                        throw new IllegalArgumentException("Unknown reduction " + value);
+                    }
+                    break;
+                case "bad-requests":
+                    options.badRequestPeriod = Integer.parseInt(value);
+                    break;
+                case "modes":
+                    options.modes = ints(value);
+                    for (int mode : options.modes) {
+                        if (mode < 0 || mode >= BadRequest.MODES) {
+                            throw new IllegalArgumentException("Unknown corrupt mode " + mode);
+                        }
+                    }
+                    break;
+                case "connections":
+                    options.connections = Integer.parseInt(value);
+                    break;
+                case "timeout":
+                    options.timeoutMillis = Integer.parseInt(value);
+                    break;
+                case "offline-penalty":
+                    options.offlinePenalty = Double.parseDouble(value);
+                    break;
+                case "feedback":
+                    options.feedback = Boolean.parseBoolean(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "rules":
+                    options.rules = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (options.sellers.isEmpty()) {
+            options.sellers.put("seller", "http://localhost:8080");
+        }
+        return options;
+    }
+
+    private static int[] ints(String values) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String value : values.split(",")) {
+            parsed.add(Integer.parseInt(value.trim()));
+        }
+        int[] ints = new int[parsed.size()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = parsed.get(i);
+        }
+        return ints;
+    }
+}
@@ -0,0 +1,33 @@
+package xcarpaccio.loaddriver;
+
+/**
+ * How the game server scores an answer, see {@code SellerCashUpdater} and {@code BadRequest.updateSellersCash}.
+ */
+enum Outcome {
+    /** right bill */
+    EARNED(false, false),
+    /** 404: the seller declines the order, no gain no loss */
+    DECLINED(false, false),
+    /** 200 without a body: the server never sees a bill, no gain no loss */
+    EMPTY(false, true),
+    /** 200 with a body that is not a bill, the seller is only notified */
+    INVALID_BILL(false, true),
+    /** a bill with another total */
+    WRONG_BILL(true, true),
+    /** neither 200 nor 404 */
+    NO_BILL(true, true),
+    /** 400 to a corrupted order */
+    BAD_REQUEST_REJECTED(false, false),
+    /** anything but 400 to a corrupted order */
+    BAD_REQUEST_MISSED(true, true),
+    /** the seller could not be reached or did not answer in time, the offline penalty applies */
+    OFFLINE(false, true);
+
+    final boolean penalty;
+    final boolean error;
+
+    Outcome(boolean penalty, boolean error) {
+        this.penalty = penalty;
+        this.error = error;
+    }
+}
@@ -0,0 +1,97 @@
+package xcarpaccio.loaddriver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Scores answers with the rules and messages of the game server's {@code dispatcher.js} and {@code seller.js}.
+ */
+final class Referee {
+    private static final Gson GSON = new Gson();
+
+    private final double offlinePenalty;
+
+    Referee(double offlinePenalty) {
+        this.offlinePenalty = offlinePenalty;
+    }
+
+    Verdict judge(String seller, double expectedBill, int status, String body) {
+        if (status == 200) {
+            if (body.isEmpty()) {
+                return Verdict.silent(Outcome.EMPTY, 0);
+            }
+            JsonElement total;
+            try {
+                total = total(body);
+            } catch (IOException | RuntimeException e) {
+                return Verdict.error(Outcome.INVALID_BILL, 0, "The object \"" + body + "\" is not a valid json object");
+            }
+            if (total == null) {
+                return Verdict.error(Outcome.INVALID_BILL, 0, "The field \"total\" in the response is missing.");
+            }
+            if (!total.isJsonPrimitive() || !total.getAsJsonPrimitive().isNumber()) {
+                return Verdict.error(Outcome.INVALID_BILL, 0, "\"Total\" is not a number.");
+            }
+            double expected = fixPrecision(expectedBill, 2);
+            double actual = fixPrecision(total.getAsDouble(), 2);
+            if (actual == expected) {
+                return Verdict.info(Outcome.EARNED, expected, "Hey, " + seller + " earned " + Json.number(expected));
+            }
+            double loss = fixPrecision(expected * 0.5, 2);
+            return Verdict.error(Outcome.WRONG_BILL, -loss, "Goddamn, " + seller + " replied " + Json.number(actual)
+                    + " but right answer was " + Json.number(expected) + ". " + Json.number(loss) + " will be charged.");
+        }
+        if (status == 404) {
+            return Verdict.silent(Outcome.DECLINED, 0);
+        }
+        double loss = fixPrecision(fixPrecision(expectedBill, 2) * 0.5, 2);
+        return Verdict.error(Outcome.NO_BILL, -loss, "Goddamn, " + seller
+                + " has neither sent us a valid bill nor responded 404. " + Json.number(loss) + " will be charged.");
+    }
+
+    /**
+     * Unlike regular orders, the amounts of bad requests are not rounded by the server.
+     */
+    Verdict judgeBadRequest(String seller, double expectedBill, int status) {
+        if (status == 400) {
+            return Verdict.info(Outcome.BAD_REQUEST_REJECTED, expectedBill, "Hey, " + seller + " earned " + Json.number(expectedBill));
+        }
+        double loss = expectedBill * 0.5;
+        return Verdict.error(Outcome.BAD_REQUEST_MISSED, -loss, "Hey, " + seller + " lose " + Json.number(loss)
+                + " because he/she does not know how to handle correctly a bad request");
+    }
+
+    Verdict offline() {
+        return Verdict.silent(Outcome.OFFLINE, -offlinePenalty);
+    }
+
+    /**
+     * @return {@code total} when the body is a JSON object, even a {@code null} one, or {@code null} when it is absent
+     */
+    private static JsonElement total(String body) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(body));
+        JsonElement bill = GSON.getAdapter(JsonElement.class).read(reader);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IOException("trailing characters");
+        }
+        return bill.isJsonObject() ? ((JsonObject) bill).get("total") : null;
+    }
+
+    /**
+     * {@code parseFloat(number.toFixed(precision))}: rounds the exact binary value half away from zero.
+     */
+    static double fixPrecision(double number, int precision) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            return number;
+        }
+        return new BigDecimal(number).setScale(precision, RoundingMode.HALF_UP).doubleValue();
+    }
+}
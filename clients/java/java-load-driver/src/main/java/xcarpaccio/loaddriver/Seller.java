@@ -0,0 +1,96 @@
+package xcarpaccio.loaddriver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A seller under load, with its own connections so that a slow seller does not delay the others.
+ * <p>
+ * Orders are queued without bound: when the seller falls behind the schedule they wait, and that wait shows in
+ * the latencies instead of silently lowering the rate.
+ */
+final class Seller {
+    final String name;
+    private final Referee referee;
+    private final boolean feedback;
+    private final ThreadPoolExecutor orders;
+    private final ThreadPoolExecutor feedbacks;
+    private final ThreadLocal<HttpConnection> connections;
+
+    Seller(String name, String url, int connections, int timeoutMillis, Referee referee, boolean feedback) {
+        this.name = name;
+        this.connections = ThreadLocal.withInitial(() -> new HttpConnection(url, timeoutMillis));
+        this.referee = referee;
+        this.feedback = feedback;
+        this.orders = pool(name + "-order", connections, Integer.MAX_VALUE);
+        // like the server, feedback is fire and forget: it is dropped rather than queued behind a slow seller
+        this.feedbacks = pool(name + "-feedback", 2, 1024);
+    }
+
+    void send(Shot shot, StepStats stats) {
+        orders.execute(() -> {
+            long sent = System.nanoTime();
+            Verdict verdict;
+            try {
+                HttpConnection.Answer answer = post("/order", shot.body);
+                verdict = shot.badRequest
+                        ? referee.judgeBadRequest(name, shot.expectedBill, answer.status)
+                        : referee.judge(name, shot.expectedBill, answer.status, answer.body);
+            } catch (IOException e) {
+                verdict = referee.offline();
+            }
+            stats.record(shot, sent, System.nanoTime(), verdict);
+            if (feedback && verdict.hasFeedback()) {
+                sendFeedback(verdict, stats);
+            }
+        });
+    }
+
+    /**
+     * Forgets the orders that are still queued.
+     *
+     * @return how many there were
+     */
+    int discardQueued() {
+        return orders.getQueue().drainTo(new ArrayList<Runnable>());
+    }
+
+    void shutdown() {
+        orders.shutdownNow();
+        feedbacks.shutdownNow();
+    }
+
+    private void sendFeedback(Verdict verdict, StepStats stats) {
+        try {
+            feedbacks.execute(() -> {
+                try {
+                    post("/feedback", verdict.feedbackJson().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException ignored) {
+                    // the server does not care either
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stats.feedbackDropped.increment();
+        }
+    }
+
+    private HttpConnection.Answer post(String path, byte[] body) throws IOException {
+        return connections.get().post(path, body);
+    }
+
+    private static ThreadPoolExecutor pool(String name, int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
@@ -0,0 +1,19 @@
+package xcarpaccio.loaddriver;
+
+/**
+ * One order of the schedule, sent to every seller.
+ */
+final class Shot {
+    /** when the order should have been sent, latencies are measured from it */
+    final long intendedNanos;
+    final byte[] body;
+    final double expectedBill;
+    final boolean badRequest;
+
+    Shot(long intendedNanos, byte[] body, double expectedBill, boolean badRequest) {
+        this.intendedNanos = intendedNanos;
+        this.body = body;
+        this.expectedBill = expectedBill;
+        this.badRequest = badRequest;
+    }
+}
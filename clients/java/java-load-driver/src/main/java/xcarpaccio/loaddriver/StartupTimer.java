@@ -0,0 +1,102 @@
+package xcarpaccio.loaddriver;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a seller takes to start: the time from launching its command to its first successful
+ * {@code /ping}, which is how long it stays offline for the game server after a restart.
+ * <pre>
+ * java -cp load-driver.jar xcarpaccio.loaddriver.StartupTimer [--url=<ping url>] [--runs=<n>] -- command...
+ * </pre>
+ */
+public final class StartupTimer {
+    static final String USAGE = "Usage: java -cp load-driver.jar xcarpaccio.loaddriver.StartupTimer [options] -- <command...>\n"
+            + "  --url=<url>           pinged until it answers 200 (http://localhost:8080/ping)\n"
+            + "  --runs=<n>            starts of the command, the median is reported (5)\n"
+            + "  --timeout=<seconds>   give up on a start after it (60)";
+
+    private static final long POLL_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080/ping";
+        int runs = 5;
+        int timeoutSeconds = 60;
+        List<String> command = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--")) {
+                command.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                break;
+            } else if (arg.startsWith("--url=")) {
+                url = arg.substring("--url=".length());
+            } else if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Integer.parseInt(arg.substring("--timeout=".length()));
+            } else {
+                System.err.println(arg.equals("--help") ? USAGE : "Invalid option " + arg + "\n" + USAGE);
+                System.exit(arg.equals("--help") ? 0 : 1);
+            }
+        }
+        if (command.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        File output = File.createTempFile("startup-timer", ".log");
+        output.deleteOnExit();
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            millis[run] = time(command, new URL(url), TimeUnit.SECONDS.toNanos(timeoutSeconds), output);
+            System.out.println(String.format("run %d: %d ms", run + 1, millis[run]));
+        }
+        Arrays.sort(millis);
+        System.out.println(String.format("time to first /ping: min %d ms, median %d ms, max %d ms (output of the last run in %s)",
+                millis[0], millis[runs / 2], millis[runs - 1], output));
+    }
+
+    private static long time(List<String> command, URL url, long timeoutNanos, File output) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(output)).start();
+        try {
+            while (!ping(url)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The command exited with " + process.exitValue() + ", see " + output);
+                }
+                if (System.nanoTime() - start > timeoutNanos) {
+                    throw new IllegalStateException("No answer from " + url + ", see " + output);
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static boolean ping(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(1000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
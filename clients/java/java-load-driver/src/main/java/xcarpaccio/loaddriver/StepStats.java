@@ -0,0 +1,66 @@
+package xcarpaccio.loaddriver;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one seller did during one rate step.
+ */
+final class StepStats {
+    /** microseconds from the intended send time to the answer, so the time spent queued behind a slow seller counts */
+    final Histogram latency = new ConcurrentHistogram(3);
+    /** microseconds from the actual send time to the answer, what a closed-loop client would report */
+    final Histogram service = new ConcurrentHistogram(3);
+    final LongAdder completed = new LongAdder();
+    final DoubleAdder cash = new DoubleAdder();
+    final LongAdder feedbackDropped = new LongAdder();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final AtomicLong lastAnswerNanos = new AtomicLong(Long.MIN_VALUE);
+
+    StepStats() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    void record(Shot shot, long sentNanos, long answeredNanos, Verdict verdict) {
+        latency.recordValue(Math.max(0, answeredNanos - shot.intendedNanos) / 1000);
+        service.recordValue(Math.max(0, answeredNanos - sentNanos) / 1000);
+        outcomes[verdict.outcome.ordinal()].increment();
+        cash.add(verdict.cash);
+        lastAnswerNanos.accumulateAndGet(answeredNanos, Math::max);
+        completed.increment();
+    }
+
+    long count(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    long penalties() {
+        long penalties = 0;
+        for (Outcome outcome : Outcome.values()) {
+            if (outcome.penalty) {
+                penalties += count(outcome);
+            }
+        }
+        return penalties;
+    }
+
+    long errors() {
+        long errors = 0;
+        for (Outcome outcome : Outcome.values()) {
+            if (outcome.error) {
+                errors += count(outcome);
+            }
+        }
+        return errors;
+    }
+
+    long lastAnswerNanos() {
+        return lastAnswerNanos.get();
+    }
+}
@@ -0,0 +1,43 @@
+package xcarpaccio.loaddriver;
+
+/**
+ * The score of one answer: what happens to the seller's cash and the feedback message it gets, if any.
+ */
+final class Verdict {
+    final Outcome outcome;
+    final double cash;
+    final String feedbackType;
+    final String feedbackContent;
+
+    Verdict(Outcome outcome, double cash, String feedbackType, String feedbackContent) {
+        this.outcome = outcome;
+        this.cash = cash;
+        this.feedbackType = feedbackType;
+        this.feedbackContent = feedbackContent;
+    }
+
+    static Verdict silent(Outcome outcome, double cash) {
+        return new Verdict(outcome, cash, null, null);
+    }
+
+    static Verdict info(Outcome outcome, double cash, String content) {
+        return new Verdict(outcome, cash, "INFO", content);
+    }
+
+    static Verdict error(Outcome outcome, double cash, String content) {
+        return new Verdict(outcome, cash, "ERROR", content);
+    }
+
+    boolean hasFeedback() {
+        return feedbackType != null;
+    }
+
+    /**
+     * @return the {@code /feedback} body, as the server's {@code notify} posts it
+     */
+    String feedbackJson() {
+        StringBuilder json = new StringBuilder(128).append("{\"type\":");
+        Json.appendString(json, feedbackType).append(",\"content\":");
+        return Json.appendString(json, feedbackContent).append('}').toString();
+    }
+}
@@ -0,0 +1,43 @@
+package xcarpaccio.loaddriver;
+
+import org.junit.Test;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BadRequestTest {
+
+    private final PrimitiveOrder order = order();
+
+    @Test
+    public void should_corrupt_orders_like_the_server() {
+        assertThat(BadRequest.corrupt(order, 0)).isEqualTo("{}");
+        assertThat(BadRequest.corrupt(order, 1)).isEqualTo(
+                "[true,false,true,false,true,false,true,false,true,false,true,false,true,false,true,false,true]");
+        assertThat(BadRequest.corrupt(order, 2)).isEqualTo(
+                "{\"prices\":[15.99,3],\"quantities\":{\"error\":\"datacenter unreachable\"},\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 3)).isEqualTo(
+                "{\"prices\":[15.99,3],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 4)).isEqualTo(
+                "{\"prices\":[3],\"quantities\":[1,2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 5)).contains("\"country\":\"Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch\"");
+        assertThat(BadRequest.corrupt(order, 10)).isEqualTo("null");
+    }
+
+    @Test
+    public void should_delete_fields_like_the_server() {
+        assertThat(BadRequest.corrupt(order, 6)).isEqualTo("{\"prices\":[15.99,3],\"quantities\":[1,2],\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 7)).isEqualTo("{\"quantities\":[1,2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 8)).isEqualTo("{\"prices\":[15.99,3],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+        assertThat(BadRequest.corrupt(order, 9)).isEqualTo("{\"prices\":[15.99,3],\"quantities\":[1,2],\"country\":\"ES\"}");
+    }
+
+    private static PrimitiveOrder order() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setPrices(new double[]{15.99, 3});
+        order.setQuantities(new int[]{1, 2});
+        order.setCountry("ES");
+        order.setReduction("STANDARD");
+        return order;
+    }
+}
@@ -0,0 +1,65 @@
+package xcarpaccio.loaddriver;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefereeTest {
+
+    private final Referee referee = new Referee(500);
+
+    @Test
+    public void should_pay_the_rounded_bill_for_a_right_answer() {
+        Verdict verdict = referee.judge("bob", 8.3349999, 200, "{\"total\":8.33}");
+
+        assertThat(verdict.outcome).isEqualTo(Outcome.EARNED);
+        assertThat(verdict.cash).isEqualTo(8.33);
+        assertThat(verdict.feedbackJson()).isEqualTo("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}");
+    }
+
+    @Test
+    public void should_charge_half_the_bill_for_a_wrong_answer() {
+        Verdict verdict = referee.judge("bob", 100, 200, "{\"total\":99}");
+
+        assertThat(verdict.outcome).isEqualTo(Outcome.WRONG_BILL);
+        assertThat(verdict.cash).isEqualTo(-50.0);
+        assertThat(verdict.feedbackContent).isEqualTo("Goddamn, bob replied 99 but right answer was 100. 50 will be charged.");
+    }
+
+    @Test
+    public void should_charge_half_the_bill_when_neither_a_bill_nor_a_404() {
+        assertThat(referee.judge("bob", 100, 500, "").cash).isEqualTo(-50.0);
+        assertThat(referee.judge("bob", 100, 404, "").outcome).isEqualTo(Outcome.DECLINED);
+        assertThat(referee.judge("bob", 100, 404, "").cash).isEqualTo(0.0);
+    }
+
+    @Test
+    public void should_only_notify_invalid_bills() {
+        assertThat(referee.judge("bob", 100, 200, "total").feedbackContent).isEqualTo("The object \"total\" is not a valid json object");
+        assertThat(referee.judge("bob", 100, 200, "{}").feedbackContent).isEqualTo("The field \"total\" in the response is missing.");
+        assertThat(referee.judge("bob", 100, 200, "{\"total\":null}").feedbackContent).isEqualTo("\"Total\" is not a number.");
+        assertThat(referee.judge("bob", 100, 200, "{\"total\":\"100\"}").cash).isEqualTo(0.0);
+        assertThat(referee.judge("bob", 100, 200, "").hasFeedback()).isFalse();
+    }
+
+    @Test
+    public void should_expect_a_400_to_a_bad_request() {
+        assertThat(referee.judgeBadRequest("bob", 10.25, 400).cash).isEqualTo(10.25);
+        Verdict missed = referee.judgeBadRequest("bob", 10.25, 200);
+        assertThat(missed.cash).isEqualTo(-5.125);
+        assertThat(missed.feedbackContent).isEqualTo("Hey, bob lose 5.125 because he/she does not know how to handle correctly a bad request");
+    }
+
+    @Test
+    public void should_apply_the_offline_penalty() {
+        assertThat(referee.offline().cash).isEqualTo(-500.0);
+    }
+
+    @Test
+    public void should_round_like_javascript_to_fixed() {
+        assertThat(Referee.fixPrecision(1.005, 2)).isEqualTo(1.0);
+        assertThat(Referee.fixPrecision(2.675, 2)).isEqualTo(2.67);
+        assertThat(Referee.fixPrecision(0.125, 2)).isEqualTo(0.13);
+        assertThat(Referee.fixPrecision(-0.125, 2)).isEqualTo(-0.13);
+    }
+}
@@ -0,0 +1,48 @@
+package xcarpaccio.nio;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct buffers of one size, lent to connections while they have bytes to read or write and returned as soon as
+ * they are empty, so idle keep-alive connections hold no buffer.
+ * <p>
+ * Only used by the thread of its event loop, it does not synchronize.
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    /**
+     * @param maxPooled buffers kept for later, more are left to the garbage collector when returned
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollLast();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Takes back a buffer of the pool, any other buffer is ignored.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == bufferSize && free.size() < maxPooled) {
+            ((Buffer) buffer).clear();
+            free.addLast(buffer);
+        }
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    int pooled() {
+        return free.size();
+    }
+}
@@ -0,0 +1,52 @@
+package xcarpaccio.nio;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * The state of one client connection, owned by its event loop.
+ * <p>
+ * While an order is {@link #busy} on a worker, the worker owns {@link #request}, {@link #body} and
+ * {@link #response}, and the event loop neither reads nor parses the next pipelined request.
+ */
+final class Connection {
+    final SocketChannel channel;
+    final SelectionKey key;
+    final HttpRequest request = new HttpRequest();
+    final Response response = new Response();
+
+    // bytes read and not parsed yet, null when there are none
+    ByteBuffer in;
+    // bytes to write, null when there are none
+    ByteBuffer out;
+    // the body of the current request, copied out of the direct buffer
+    byte[] body = new byte[1024];
+
+    boolean busy;
+    // no more requests are read, the connection is closed once out is written
+    boolean closing;
+    boolean closed;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Copies the body of {@link #request} out of {@code in}.
+     */
+    void copyBody() {
+        int length = request.bodyLength;
+        if (body.length < length) {
+            body = Arrays.copyOf(body, Math.max(length, body.length * 2));
+        }
+        int position = in.position();
+        // through Buffer, ByteBuffer.position(int) is a JDK 9+ override that a JDK 8 runtime lacks
+        ((Buffer) in).position(request.bodyOffset);
+        in.get(body, 0, length);
+        ((Buffer) in).position(position);
+    }
+}
@@ -0,0 +1,336 @@
+package xcarpaccio.nio;
+
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.tracing.OrderTrace;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Accepts connections and reads, parses and answers their requests on a single thread with one selector.
+ * <p>
+ * Requests of a connection are answered in order, so pipelined requests get their responses in the order they
+ * were sent. Orders are priced inline, or on the {@code workers} when there are some: the connection then waits
+ * for its answer before the next request is parsed, and the worker hands it back through {@link #completed}.
+ */
+final class EventLoop implements Runnable {
+    private static final byte[] HTTP_1_1 = HttpRequest.ascii("HTTP/1.1 ");
+    private static final byte[] CONTENT_LENGTH = HttpRequest.ascii("\r\nContent-Length: ");
+    private static final byte[] CONTENT_TYPE = HttpRequest.ascii("\r\nContent-Type: ");
+    private static final byte[] CONNECTION_CLOSE = HttpRequest.ascii("\r\nConnection: close");
+    private static final byte[] CONNECTION_KEEP_ALIVE = HttpRequest.ascii("\r\nConnection: keep-alive");
+    private static final byte[] END_OF_HEADERS = HttpRequest.ascii("\r\n\r\n");
+    // status code and reason, indexed by status code
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    static {
+        for (int status = 100; status < STATUS_LINES.length; status++) {
+            STATUS_LINES[status] = HttpRequest.ascii(status + " " + reason(status));
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final BufferPool pool;
+    private final SellerHandler handler;
+    private final ThreadPoolExecutor workers;
+    private final AsyncLog log;
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param workers prices the orders, {@code null} to price them on the event loop
+     */
+    EventLoop(ServerSocketChannel server, BufferPool pool, SellerHandler handler, ThreadPoolExecutor workers, AsyncLog log) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.pool = pool;
+        this.handler = handler;
+        this.workers = workers;
+        this.log = log;
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    connection.busy = false;
+                    if (!connection.closed) {
+                        respond(connection);
+                        process(connection);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        connection = (Connection) key.attachment();
+                        if (key.isWritable()) {
+                            flush(connection);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                log.error("Event loop stopped: " + e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Stops accepting and closes every connection, without waiting for the answers in progress.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private void read(Connection connection) {
+        if (connection.in == null) {
+            connection.in = pool.acquire();
+        }
+        int read;
+        try {
+            read = connection.channel.read(connection.in);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        process(connection);
+    }
+
+    /**
+     * Answers the complete requests read so far, until one is handed over to a worker.
+     */
+    private void process(Connection connection) {
+        ByteBuffer in = connection.in;
+        while (!connection.busy && !connection.closing && in != null && in.position() > 0) {
+            ((Buffer) in).flip();
+            HttpRequest request = connection.request;
+            int parsed = request.parse(in);
+            if (parsed == HttpRequest.INCOMPLETE) {
+                in.compact();
+                break;
+            }
+            if (parsed != HttpRequest.COMPLETE) {
+                // the rest of the stream cannot be trusted
+                ((Buffer) in).clear();
+                connection.response.empty(parsed);
+                request.keepAlive = false;
+                request.http10 = false;
+                respond(connection);
+                break;
+            }
+            connection.copyBody();
+            ((Buffer) in).position(in.position() + request.length);
+            in.compact();
+            if (workers != null && SellerHandler.isOrder(request)) {
+                connection.busy = true;
+                // timed only while a recording of the orders runs
+                long queuedAt = OrderTrace.enabled() ? System.nanoTime() : 0;
+                workers.execute(() -> {
+                    OrderTrace.queued(queuedAt);
+                    handler.handle(connection.request, connection.body, workers.getQueue().size(), connection.response);
+                    completed.offer(connection);
+                    selector.wakeup();
+                });
+            } else {
+                handler.handle(request, connection.body, 0, connection.response);
+                respond(connection);
+            }
+        }
+        if (in != null && in.position() == 0) {
+            pool.release(in);
+            connection.in = null;
+        }
+        flush(connection);
+    }
+
+    /**
+     * Appends the response of the current request to the bytes to write.
+     */
+    private void respond(Connection connection) {
+        Response response = connection.response;
+        HttpRequest request = connection.request;
+        if (!request.keepAlive) {
+            connection.closing = true;
+        }
+        byte[] contentType = response.contentType;
+        byte[] statusLine = STATUS_LINES[response.status];
+        ByteBuffer out = writable(connection, HTTP_1_1.length + statusLine.length + CONTENT_LENGTH.length + 10
+                + (contentType != null ? CONTENT_TYPE.length + contentType.length : 0)
+                + CONNECTION_KEEP_ALIVE.length + END_OF_HEADERS.length + response.length);
+        out.put(HTTP_1_1).put(statusLine).put(CONTENT_LENGTH);
+        putInt(out, response.length);
+        if (contentType != null) {
+            out.put(CONTENT_TYPE).put(contentType);
+        }
+        if (!request.keepAlive) {
+            out.put(CONNECTION_CLOSE);
+        } else if (request.http10) {
+            out.put(CONNECTION_KEEP_ALIVE);
+        }
+        out.put(END_OF_HEADERS).put(response.body, 0, response.length);
+    }
+
+    /**
+     * @return the buffer to write into, with room for {@code size} more bytes
+     */
+    private ByteBuffer writable(Connection connection, int size) {
+        ByteBuffer out = connection.out;
+        if (out == null) {
+            out = pool.acquire();
+        }
+        if (out.remaining() < size) {
+            // larger than a pooled buffer, such as /metrics behind other answers: a heap buffer for this once
+            ((Buffer) out).flip();
+            ByteBuffer larger = ByteBuffer.allocate(out.remaining() + size);
+            larger.put(out);
+            pool.release(out);
+            out = larger;
+        }
+        connection.out = out;
+        return out;
+    }
+
+    /**
+     * Writes what the socket takes now, and waits for it to be writable again for the rest.
+     */
+    private void flush(Connection connection) {
+        ByteBuffer out = connection.out;
+        if (out != null) {
+            ((Buffer) out).flip();
+            try {
+                connection.channel.write(out);
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+            if (out.hasRemaining()) {
+                out.compact();
+            } else {
+                pool.release(out);
+                connection.out = null;
+            }
+        }
+        if (connection.out == null && connection.closing) {
+            close(connection);
+            return;
+        }
+        int ops = 0;
+        if (!connection.busy && !connection.closing) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.out != null) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        if (connection.key.interestOps() != ops) {
+            connection.key.interestOps(ops);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // nothing left to answer
+        }
+        // a worker never touches the buffers, they can go back to the pool even while it is busy
+        if (connection.in != null) {
+            pool.release(connection.in);
+            connection.in = null;
+        }
+        if (connection.out != null) {
+            pool.release(connection.out);
+            connection.out = null;
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close((Connection) key.attachment());
+                }
+            }
+            selector.close();
+            server.close();
+        } catch (IOException ignored) {
+            // stopping anyway
+        }
+    }
+
+    private static void putInt(ByteBuffer out, int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            case 505: return "HTTP Version Not Supported";
+            default: return "Status";
+        }
+    }
+}
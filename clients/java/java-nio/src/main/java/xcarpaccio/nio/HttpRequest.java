@@ -0,0 +1,214 @@
+package xcarpaccio.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An HTTP/1.x request parsed in place from the read buffer of a connection, the same instance is refilled by every
+ * request of the connection.
+ * <p>
+ * Only what the seller needs is kept: the method, the route, whether the connection stays open and where the body
+ * is. Requests may be pipelined, the next one starts {@link #length} bytes after this one. Bodies must have a
+ * {@code Content-Length}: chunked requests are answered {@code 501}.
+ */
+final class HttpRequest {
+    static final int COMPLETE = 0;
+    static final int INCOMPLETE = -1;
+
+    enum Method {
+        GET, POST, PUT, OTHER
+    }
+
+    private static final byte[] GET = ascii("GET");
+    private static final byte[] POST = ascii("POST");
+    private static final byte[] PUT = ascii("PUT");
+    private static final byte[] HTTP_1 = ascii("HTTP/1.");
+    private static final byte[] CONTENT_LENGTH = ascii("content-length");
+    private static final byte[] CONNECTION = ascii("connection");
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+
+    Method method;
+    Route route;
+    boolean http10;
+    boolean keepAlive;
+    // absolute index of the body in the buffer
+    int bodyOffset;
+    int bodyLength;
+    // bytes taken by the request, from the position of the buffer
+    int length;
+
+    /**
+     * Parses the request starting at the position of {@code in}, without moving it.
+     *
+     * @return {@link #COMPLETE}, {@link #INCOMPLETE} until more bytes are read, or the status code of the error to
+     * answer before closing the connection
+     */
+    int parse(ByteBuffer in) {
+        int start = in.position();
+        int limit = in.limit();
+        int p = start;
+        // empty lines before a request are tolerated
+        while (p < limit && (in.get(p) == '\r' || in.get(p) == '\n')) {
+            p++;
+        }
+        int headersEnd = headersEnd(in, p, limit);
+        if (headersEnd < 0) {
+            return limit - start >= in.capacity() ? 431 : INCOMPLETE;
+        }
+
+        int methodEnd = indexOf(in, ' ', p, headersEnd);
+        if (methodEnd <= p) {
+            return 400;
+        }
+        method = method(in, p, methodEnd);
+        int targetEnd = indexOf(in, ' ', methodEnd + 1, headersEnd);
+        if (targetEnd <= methodEnd + 1) {
+            return 400;
+        }
+        int lineEnd = indexOf(in, '\r', targetEnd, headersEnd);
+        if (lineEnd != targetEnd + 1 + HTTP_1.length + 1 || !regionMatches(in, targetEnd + 1, HTTP_1, false)) {
+            return 400;
+        }
+        byte minor = in.get(lineEnd - 1);
+        if (minor != '0' && minor != '1') {
+            return 505;
+        }
+        http10 = minor == '0';
+        keepAlive = !http10;
+        route = Route.of(in, methodEnd + 1, targetEnd);
+
+        int contentLength = 0;
+        boolean chunked = false;
+        int line = lineEnd + 2;
+        while (line < headersEnd - 2) {
+            int end = indexOf(in, '\r', line, headersEnd);
+            int colon = indexOf(in, ':', line, end);
+            if (colon <= line) {
+                return 400;
+            }
+            int value = colon + 1;
+            while (value < end && (in.get(value) == ' ' || in.get(value) == '\t')) {
+                value++;
+            }
+            int valueEnd = end;
+            while (valueEnd > value && (in.get(valueEnd - 1) == ' ' || in.get(valueEnd - 1) == '\t')) {
+                valueEnd--;
+            }
+            if (nameEquals(in, line, colon, CONTENT_LENGTH)) {
+                contentLength = parseLength(in, value, valueEnd);
+                if (contentLength < 0) {
+                    return 400;
+                }
+            } else if (nameEquals(in, line, colon, CONNECTION)) {
+                if (contains(in, value, valueEnd, CLOSE)) {
+                    keepAlive = false;
+                } else if (contains(in, value, valueEnd, KEEP_ALIVE)) {
+                    keepAlive = true;
+                }
+            } else if (nameEquals(in, line, colon, TRANSFER_ENCODING)) {
+                chunked = true;
+            }
+            line = end + 2;
+        }
+        if (chunked) {
+            return 501;
+        }
+        if ((long) headersEnd - start + contentLength > in.capacity()) {
+            return 413;
+        }
+        if (headersEnd + contentLength > limit) {
+            return INCOMPLETE;
+        }
+        bodyOffset = headersEnd;
+        bodyLength = contentLength;
+        length = headersEnd + contentLength - start;
+        return COMPLETE;
+    }
+
+    /**
+     * @return the index after the empty line ending the headers, or -1 when it has not been read yet
+     */
+    private static int headersEnd(ByteBuffer in, int from, int limit) {
+        for (int i = from; i + 3 < limit; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    private static Method method(ByteBuffer in, int start, int end) {
+        if (end - start == GET.length && regionMatches(in, start, GET, false)) {
+            return Method.GET;
+        }
+        if (end - start == POST.length && regionMatches(in, start, POST, false)) {
+            return Method.POST;
+        }
+        if (end - start == PUT.length && regionMatches(in, start, PUT, false)) {
+            return Method.PUT;
+        }
+        return Method.OTHER;
+    }
+
+    /**
+     * @return the length, or -1 when it is not a number that fits an int
+     */
+    private static int parseLength(ByteBuffer in, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = in.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            length = length * 10 + (b - '0');
+        }
+        return length;
+    }
+
+    private static boolean nameEquals(ByteBuffer in, int start, int end, byte[] lowerCaseName) {
+        return end - start == lowerCaseName.length && regionMatches(in, start, lowerCaseName, true);
+    }
+
+    private static boolean contains(ByteBuffer in, int start, int end, byte[] lowerCaseToken) {
+        for (int i = start; i + lowerCaseToken.length <= end; i++) {
+            if (regionMatches(in, i, lowerCaseToken, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int indexOf(ByteBuffer in, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (in.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean regionMatches(ByteBuffer in, int start, byte[] expected, boolean ignoreCase) {
+        if (start + expected.length > in.limit()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            byte b = in.get(start + i);
+            if (ignoreCase && b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,113 @@
+package xcarpaccio.nio;
+
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.RulesFile;
+import xcarpaccio.warmup.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A seller straight on {@code java.nio}: one event loop thread accepts the connections, parses their HTTP/1.1
+ * requests, keep-alive and pipelined, from pooled direct buffers and writes the answers from them too.
+ * <p>
+ * Orders are priced on the event loop, or on {@code workers} threads when there are some. Configured with the
+ * {@code PORT} (default 9000), {@code NIO_WORKERS} (default 0, orders are priced on the event loop) and
+ * {@code NIO_BUFFER_SIZE} (bytes, default 16384, the largest request accepted) environment variables.
+ */
+public class NioSeller {
+    public static final int DEFAULT_BUFFER_SIZE = 16384;
+    // buffers kept in the pool, enough for as many connections reading or writing at once
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    private final int port;
+    private final int workers;
+    private final int bufferSize;
+    private final FeedbackQueue feedbackQueue;
+    private final Journal journal;
+    private final Warmup warmup;
+    private final AsyncLog log = AsyncLog.shared();
+
+    private ServerSocketChannel server;
+    private ThreadPoolExecutor executor;
+    private EventLoop eventLoop;
+    private Thread thread;
+
+    public NioSeller(int port, int workers, int bufferSize) {
+        this(port, workers, bufferSize, FeedbackQueue.shared());
+    }
+
+    public NioSeller(int port, int workers, int bufferSize, FeedbackQueue feedbackQueue) {
+        this(port, workers, bufferSize, feedbackQueue, Journal.shared());
+    }
+
+    public NioSeller(int port, int workers, int bufferSize, FeedbackQueue feedbackQueue, Journal journal) {
+        this(port, workers, bufferSize, feedbackQueue, journal, Warmup.shared());
+    }
+
+    /**
+     * @param warmup answers {@code /ready}
+     */
+    public NioSeller(int port, int workers, int bufferSize, FeedbackQueue feedbackQueue, Journal journal, Warmup warmup) {
+        this.port = port;
+        this.workers = workers;
+        this.bufferSize = bufferSize;
+        this.feedbackQueue = feedbackQueue;
+        this.journal = journal;
+        this.warmup = warmup;
+    }
+
+    public NioSeller start() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        if (workers > 0) {
+            executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread worker = new Thread(runnable, "nio-worker");
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
+        SellerHandler handler = new SellerHandler(log, feedbackQueue, Metrics.shared(), AdmissionControl.shared(), journal, warmup);
+        eventLoop = new EventLoop(server, new BufferPool(bufferSize, MAX_POOLED_BUFFERS), handler, executor, log);
+        thread = new Thread(eventLoop, "nio-event-loop");
+        thread.start();
+        log.log("Server running on port " + port() + " (" + (workers > 0 ? workers + " workers" : "inline") + ")...");
+        return this;
+    }
+
+    /**
+     * @return the port the seller listens on, the one picked by the system when started on port 0
+     */
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public void stop() throws InterruptedException {
+        if (eventLoop != null) {
+            log.log("Stopping server...");
+            eventLoop.stop();
+            thread.join();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        RulesFile.watchFromEnvironment();
+        new NioSeller(intEnv("PORT", 9000), intEnv("NIO_WORKERS", 0), intEnv("NIO_BUFFER_SIZE", DEFAULT_BUFFER_SIZE)).start();
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
@@ -0,0 +1,50 @@
+package xcarpaccio.nio;
+
+import xcarpaccio.pricing.OrderCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The answer to the current request of a connection, reused for every request of the connection.
+ */
+final class Response {
+    static final byte[] NO_CONTENT = {};
+    static final byte[] TEXT = HttpRequest.ascii("text/plain; charset=utf-8");
+    static final byte[] JSON = HttpRequest.ascii("application/json");
+
+    int status;
+    // null to send no Content-Type
+    byte[] contentType;
+    byte[] body = NO_CONTENT;
+    int length;
+
+    private final byte[] bill = new byte[OrderCodec.MAX_ENCODED_LENGTH];
+
+    /**
+     * Answers {@code body}, which must not change until the response is written.
+     */
+    void set(int status, byte[] contentType, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.length = body.length;
+    }
+
+    /**
+     * Answers {@code {"total":<total>}}, encoded straight into the response.
+     */
+    void bill(double total) {
+        this.status = 200;
+        this.contentType = JSON;
+        this.body = bill;
+        this.length = OrderCodec.encode(total, bill, 0);
+    }
+
+    void text(int status, String message) {
+        set(status, TEXT, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void empty(int status) {
+        set(status, null, NO_CONTENT);
+    }
+}
@@ -0,0 +1,47 @@
+package xcarpaccio.nio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The paths the seller answers, matched on the bytes of the request target without decoding it.
+ */
+enum Route {
+    ROOT("/"),
+    ORDER("/order"),
+    FEEDBACK("/feedback"),
+    PING("/ping"),
+    RULES("/rules"),
+    METRICS("/metrics"),
+    STATS_EARNINGS("/stats/earnings"),
+    READY("/ready"),
+    OTHER("other");
+
+    private static final Route[] ROUTES = values();
+
+    final String path;
+    private final byte[] bytes;
+
+    Route(String path) {
+        this.path = path;
+        this.bytes = HttpRequest.ascii(path);
+    }
+
+    /**
+     * @return the route of the target between {@code start} and {@code end}, its query and trailing slash ignored
+     */
+    static Route of(ByteBuffer in, int start, int end) {
+        int query = HttpRequest.indexOf(in, '?', start, end);
+        if (query >= 0) {
+            end = query;
+        }
+        if (end - start > 1 && in.get(end - 1) == '/') {
+            end--;
+        }
+        for (Route route : ROUTES) {
+            if (route != OTHER && end - start == route.bytes.length && HttpRequest.regionMatches(in, start, route.bytes, false)) {
+                return route;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,204 @@
+package xcarpaccio.nio;
+
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers the routes of the seller from a parsed request and its body, on the event loop or on a worker.
+ */
+final class SellerHandler {
+    private static final byte[] PONG = HttpRequest.ascii("pong");
+    private static final byte[] METRICS_TYPE = HttpRequest.ascii(Metrics.CONTENT_TYPE);
+
+    private final AsyncLog log;
+    private final FeedbackQueue feedback;
+    private final Metrics metrics;
+    private final AdmissionControl admission;
+    private final Journal journal;
+    private final Warmup warmup;
+    private final Metrics.Route[] routes;
+    private final ThreadLocal<OrderCodec> codecs = ThreadLocal.withInitial(OrderCodec::new);
+
+    SellerHandler(AsyncLog log, FeedbackQueue feedback, Metrics metrics, AdmissionControl admission, Journal journal,
+                  Warmup warmup) {
+        this.log = log;
+        this.feedback = feedback;
+        this.metrics = metrics;
+        this.admission = admission;
+        this.journal = journal;
+        this.warmup = warmup;
+        Route[] values = Route.values();
+        this.routes = new Metrics.Route[values.length];
+        for (Route route : values) {
+            routes[route.ordinal()] = metrics.route(route.path);
+        }
+    }
+
+    /**
+     * @return whether the request is an order to price, the only work worth handing over to a worker
+     */
+    static boolean isOrder(HttpRequest request) {
+        return request.method == HttpRequest.Method.POST && (request.route == Route.ORDER || request.route == Route.ROOT);
+    }
+
+    /**
+     * @param body    the first {@code request.bodyLength} bytes are the body of the request
+     * @param waiting orders waiting for a worker, for the admission control
+     */
+    void handle(HttpRequest request, byte[] body, int waiting, Response response) {
+        Metrics.Route measured = routes[request.route.ordinal()];
+        long start = measured.begin();
+        try {
+            route(request, body, waiting, response);
+        } catch (RuntimeException e) {
+            log.error("Failed to answer " + request.method + " " + request.route.path + ": " + e);
+            response.empty(500);
+        } finally {
+            measured.end(start, response.status);
+        }
+    }
+
+    private void route(HttpRequest request, byte[] body, int waiting, Response response) {
+        HttpRequest.Method method = request.method;
+        switch (request.route) {
+            case ROOT:
+            case ORDER:
+                if (method == HttpRequest.Method.POST) {
+                    order(request, body, waiting, response);
+                    return;
+                }
+                break;
+            case FEEDBACK:
+                if (method == HttpRequest.Method.POST) {
+                    // parsed and logged by the queue's thread, a full queue tells the server to back off
+                    journal.feedback(body, 0, request.bodyLength);
+                    response.empty(feedback.offer(body, 0, request.bodyLength) ? 200 : 503);
+                    return;
+                }
+                break;
+            case PING:
+                if (method == HttpRequest.Method.GET) {
+                    response.set(200, Response.TEXT, PONG);
+                    return;
+                }
+                break;
+            case RULES:
+                if (method == HttpRequest.Method.POST || method == HttpRequest.Method.PUT) {
+                    installRules(body, request.bodyLength, response);
+                    return;
+                }
+                if (method == HttpRequest.Method.GET) {
+                    response.set(200, Response.JSON, PricingRules.current().toJson().getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                break;
+            case METRICS:
+                if (method == HttpRequest.Method.GET) {
+                    response.set(200, METRICS_TYPE, metrics.scrape().getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                break;
+            case STATS_EARNINGS:
+                if (method == HttpRequest.Method.GET) {
+                    response.set(200, Response.JSON, feedback.earnings().toJson(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                break;
+            case READY:
+                if (method == HttpRequest.Method.GET) {
+                    // 503 until the warm-up is over
+                    response.set(warmup.ready() ? 200 : 503, Response.TEXT, warmup.answer());
+                    return;
+                }
+                break;
+            default:
+                response.empty(404);
+                return;
+        }
+        response.empty(405);
+    }
+
+    /**
+     * The event loop has read the body and writes the answer with the others of the connection, the
+     * {@link OrderTrace} times decode, validate, price and encode.
+     */
+    private void order(HttpRequest request, byte[] body, int waiting, Response response) {
+        long start = System.nanoTime();
+        OrderTrace trace = OrderTrace.start();
+        long admitted = admission.admit(waiting);
+        if (admitted == AdmissionControl.DECLINED) {
+            metrics.shed();
+            // the game does not penalise a declined order
+            response.empty(200);
+            trace.outcome(OrderTrace.Outcome.SHED).end(200);
+            return;
+        }
+        try {
+            answer(request, body, response, trace);
+            journal.order(body, 0, request.bodyLength, response.status, response.body, 0, response.length, System.nanoTime() - start);
+        } finally {
+            admission.done(admitted);
+            trace.end(response.status);
+        }
+    }
+
+    private void answer(HttpRequest request, byte[] body, Response response, OrderTrace trace) {
+        if (log.sampleOrder()) {
+            AsyncLog.Entry entry = log.info();
+            if (entry != null) {
+                try {
+                    entry.append(request.method.name()).append(' ').append(request.route.path).append(' ')
+                            .append(body, 0, request.bodyLength);
+                } finally {
+                    entry.publish();
+                }
+            }
+        }
+        PrimitiveOrder order = codecs.get().decode(body, 0, request.bodyLength);
+        trace.mark(OrderTrace.Phase.DECODE).order(order);
+        if (order == null) {
+            // a corrupt order, the server expects a 400 and gets it as cheaply as a bill
+            response.empty(400);
+            trace.outcome(OrderTrace.Outcome.REJECTED);
+            return;
+        }
+        boolean priceable = order.canBePriced();
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        if (!priceable) {
+            metrics.declined();
+            response.empty(200);
+            trace.outcome(OrderTrace.Outcome.DECLINED);
+            return;
+        }
+        double total = order.total();
+        trace.mark(OrderTrace.Phase.PRICE);
+        response.bill(total);
+        trace.mark(OrderTrace.Phase.ENCODE).outcome(OrderTrace.Outcome.PRICED);
+    }
+
+    /**
+     * Replaces the pricing rules with rules in the shape of the server's configuration.json.
+     */
+    private void installRules(byte[] body, int length, Response response) {
+        try {
+            PricingRules.install(PricingRules.parse(new String(body, 0, length, StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            response.text(400, e.getMessage());
+            return;
+        }
+        String rules = PricingRules.current().toJson();
+        log.log("Rules installed: " + rules);
+        response.set(200, Response.JSON, rules.getBytes(StandardCharsets.UTF_8));
+    }
+}
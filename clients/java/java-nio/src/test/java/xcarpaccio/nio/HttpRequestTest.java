@@ -0,0 +1,77 @@
+package xcarpaccio.nio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpRequestTest {
+
+    private final HttpRequest request = new HttpRequest();
+
+    @Test
+    public void should_parse_a_request_with_a_body() {
+        ByteBuffer in = buffer("POST /order HTTP/1.1\r\nHost: localhost\r\ncontent-length:  4 \r\n\r\n{}{}GET");
+
+        assertThat(request.parse(in)).isEqualTo(HttpRequest.COMPLETE);
+        assertThat(request.method).isEqualTo(HttpRequest.Method.POST);
+        assertThat(request.route).isEqualTo(Route.ORDER);
+        assertThat(request.keepAlive).isTrue();
+        assertThat(request.bodyLength).isEqualTo(4);
+        assertThat(request.length).isEqualTo(in.limit() - 3);
+        assertThat(in.get(request.bodyOffset)).isEqualTo((byte) '{');
+    }
+
+    @Test
+    public void should_wait_for_the_headers_and_the_body() {
+        assertThat(request.parse(buffer("GET /ping HTTP/1.1\r\nHost: local"))).isEqualTo(HttpRequest.INCOMPLETE);
+        assertThat(request.parse(buffer("POST / HTTP/1.1\r\nContent-Length: 10\r\n\r\n{}"))).isEqualTo(HttpRequest.INCOMPLETE);
+    }
+
+    @Test
+    public void should_ignore_the_query_and_a_trailing_slash() {
+        request.parse(buffer("GET /metrics/?name=x HTTP/1.1\r\n\r\n"));
+        assertThat(request.route).isEqualTo(Route.METRICS);
+
+        request.parse(buffer("GET /metricsx HTTP/1.1\r\n\r\n"));
+        assertThat(request.route).isEqualTo(Route.OTHER);
+    }
+
+    @Test
+    public void should_keep_http_1_0_connections_open_only_when_asked() {
+        request.parse(buffer("GET /ping HTTP/1.0\r\n\r\n"));
+        assertThat(request.keepAlive).isFalse();
+
+        request.parse(buffer("GET /ping HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n"));
+        assertThat(request.keepAlive).isTrue();
+
+        request.parse(buffer("GET /ping HTTP/1.1\r\nConnection: close\r\n\r\n"));
+        assertThat(request.keepAlive).isFalse();
+    }
+
+    @Test
+    public void should_answer_the_status_of_invalid_requests() {
+        assertThat(request.parse(buffer("GET\r\n\r\n"))).isEqualTo(400);
+        assertThat(request.parse(buffer("GET /ping HTTP/2.0\r\n\r\n"))).isEqualTo(400);
+        assertThat(request.parse(buffer("GET /ping HTTP/1.2\r\n\r\n"))).isEqualTo(505);
+        assertThat(request.parse(buffer("POST / HTTP/1.1\r\nContent-Length: x\r\n\r\n"))).isEqualTo(400);
+        assertThat(request.parse(buffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"))).isEqualTo(501);
+        assertThat(request.parse(buffer("POST / HTTP/1.1\r\nContent-Length: 4096\r\n\r\n"))).isEqualTo(413);
+    }
+
+    @Test
+    public void should_refuse_headers_larger_than_the_buffer() {
+        ByteBuffer in = ByteBuffer.allocate(32);
+        in.put("GET /ping HTTP/1.1\r\nHost: localh".getBytes(StandardCharsets.US_ASCII)).flip();
+
+        assertThat(request.parse(in)).isEqualTo(431);
+    }
+
+    private static ByteBuffer buffer(String request) {
+        ByteBuffer in = ByteBuffer.allocateDirect(1024);
+        in.put(request.getBytes(StandardCharsets.US_ASCII)).flip();
+        return in;
+    }
+}
@@ -0,0 +1,275 @@
+package xcarpaccio.nio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.journal.JournalReader;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.warmup.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NioSellerTest {
+
+    private static final String ORDER = "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FeedbackQueue feedbackQueue = new FeedbackQueue(16, 60000, new AsyncLog(16, 0, new PrintStream(new ByteArrayOutputStream()), System.err));
+    private NioSeller seller;
+    private NioSeller workersSeller;
+
+    @Before
+    public void start() throws IOException {
+        feedbackQueue.start();
+        seller = new NioSeller(0, 0, 1024, feedbackQueue).start();
+        workersSeller = new NioSeller(0, 2, 1024, feedbackQueue).start();
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        seller.stop();
+        workersSeller.stop();
+        feedbackQueue.stop();
+    }
+
+    @Test
+    public void should_respond_pong_on_get_ping() throws IOException {
+        List<String> responses = exchange(seller, get("/ping"), 1);
+
+        assertThat(responses.get(0)).startsWith("HTTP/1.1 200 OK\r\n").contains("Content-Length: 4\r\n").endsWith("\r\n\r\npong");
+    }
+
+    @Test
+    public void should_answer_the_bill_of_an_order() throws IOException {
+        List<String> responses = exchange(seller, post("/order", ORDER), 1);
+
+        assertThat(responses.get(0)).contains("Content-Type: application/json\r\n").endsWith("\r\n\r\n{\"total\":8.33}");
+    }
+
+    @Test
+    public void should_answer_pipelined_requests_in_order() throws IOException {
+        List<String> responses = exchange(seller, get("/ping") + post("/", ORDER) + get("/nowhere") + get("/ping/?query"), 4);
+
+        assertThat(responses.get(0)).endsWith("pong");
+        assertThat(responses.get(1)).endsWith("{\"total\":8.33}");
+        assertThat(responses.get(2)).startsWith("HTTP/1.1 404 Not Found\r\n");
+        assertThat(responses.get(3)).endsWith("pong");
+    }
+
+    @Test
+    public void should_answer_pipelined_orders_in_order_on_workers() throws IOException {
+        String cheap = "{\"prices\":[1],\"quantities\":[1],\"country\":\"ES\",\"reduction\":\"STANDARD\"}";
+
+        List<String> responses = exchange(workersSeller, post("/order", ORDER) + get("/ping") + post("/order", cheap), 3);
+
+        assertThat(responses.get(0)).endsWith("{\"total\":8.33}");
+        assertThat(responses.get(1)).endsWith("pong");
+        assertThat(responses.get(2)).endsWith("{\"total\":1.19}");
+    }
+
+    @Test
+    public void should_wait_for_the_rest_of_a_request() throws IOException {
+        try (Socket socket = new Socket("localhost", seller.port())) {
+            String request = post("/order", ORDER);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.substring(0, 20).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            sleep(50);
+            out.write(request.substring(20, request.length() - 10).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            sleep(50);
+            out.write(request.substring(request.length() - 10).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            assertThat(read(socket.getInputStream())).endsWith("{\"total\":8.33}");
+        }
+    }
+
+    @Test
+    public void should_keep_the_connection_open_between_requests() throws IOException {
+        try (Socket socket = new Socket("localhost", seller.port())) {
+            for (int i = 0; i < 3; i++) {
+                socket.getOutputStream().write(post("/order", ORDER).getBytes(StandardCharsets.US_ASCII));
+                assertThat(read(socket.getInputStream())).endsWith("{\"total\":8.33}");
+            }
+        }
+    }
+
+    @Test
+    public void should_close_the_connection_when_asked() throws IOException {
+        try (Socket socket = new Socket("localhost", seller.port())) {
+            socket.getOutputStream().write("GET /ping HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            assertThat(read(socket.getInputStream())).contains("Connection: close\r\n").endsWith("pong");
+            assertThat(socket.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void should_reject_an_order_that_is_not_json() throws IOException {
+        List<String> responses = exchange(seller, post("/order", "{\"prices\":[3.5") + get("/ping"), 2);
+
+        assertThat(responses.get(0)).startsWith("HTTP/1.1 400 Bad Request\r\n");
+        assertThat(responses.get(1)).endsWith("pong");
+    }
+
+    @Test
+    public void should_reject_orders_that_are_not_orders() throws IOException {
+        List<String> responses = exchange(seller, post("/order", "{}") + post("/order", "null")
+                + post("/order", ORDER.replace("\"ES\"", "\"Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch\"")), 3);
+
+        for (String response : responses) {
+            assertThat(response).startsWith("HTTP/1.1 400 Bad Request\r\n");
+        }
+    }
+
+    @Test
+    public void should_reject_a_request_larger_than_a_buffer_and_close() throws IOException {
+        try (Socket socket = new Socket("localhost", seller.port())) {
+            socket.getOutputStream().write("POST /order HTTP/1.1\r\nContent-Length: 5000\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            assertThat(read(socket.getInputStream())).startsWith("HTTP/1.1 413 Payload Too Large\r\n");
+            assertThat(socket.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void should_queue_feedback() throws IOException {
+        List<String> responses = exchange(seller, post("/feedback", "{\"type\":\"INFO\",\"content\":\"test\"}"), 1);
+
+        assertThat(responses.get(0)).startsWith("HTTP/1.1 200 OK\r\n");
+        for (int i = 0; i < 100 && feedbackQueue.received() == 0; i++) {
+            sleep(10);
+        }
+        assertThat(feedbackQueue.received()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_serve_the_earnings_reported_by_feedback() throws IOException {
+        exchange(seller, post("/feedback", "{\"type\":\"ERROR\",\"content\":\"Goddamn, nio replied 8 but right answer was 8.33. 4.17 will be charged.\"}"), 1);
+        for (int i = 0; i < 100 && feedbackQueue.received() == 0; i++) {
+            sleep(10);
+        }
+
+        List<String> responses = exchange(seller, get("/stats/earnings"), 1);
+
+        assertThat(responses.get(0)).contains("Content-Type: application/json\r\n")
+                .contains("\"WRONG_BILL\":[").endsWith("\"totalEarned\":0,\"totalLost\":4.17}");
+    }
+
+    @Test
+    public void should_expose_metrics_of_the_answered_requests() throws IOException {
+        List<String> responses = exchange(seller, get("/ping") + get("/metrics"), 2);
+
+        assertThat(responses.get(1))
+                .contains("# TYPE seller_http_request_duration_seconds histogram")
+                .contains("seller_http_requests_total{route=\"/ping\",status=\"200\"} ");
+    }
+
+    @Test
+    public void should_journal_orders_with_their_answer_and_feedback() throws Exception {
+        AsyncLog log = new AsyncLog(16, 0, new PrintStream(new ByteArrayOutputStream()), System.err);
+        Journal journal = new Journal(folder.getRoot().toPath(), 1 << 16, 16, 0, log).start();
+        NioSeller journaled = new NioSeller(0, 0, 1024, feedbackQueue, journal).start();
+        try {
+            exchange(journaled, post("/order", ORDER) + post("/order", "{}") + post("/feedback", "{\"type\":\"INFO\",\"content\":\"test\"}"), 3);
+        } finally {
+            journaled.stop();
+            journal.stop();
+        }
+
+        JournalReader reader = new JournalReader(folder.getRoot().toPath());
+        JournalReader.Record bill = reader.next();
+        assertThat(bill.type()).isEqualTo(Journal.ORDER);
+        assertThat(new String(bill.body(), StandardCharsets.UTF_8)).isEqualTo(ORDER);
+        assertThat(bill.status()).isEqualTo(200);
+        assertThat(new String(bill.answer(), StandardCharsets.UTF_8)).isEqualTo("{\"total\":8.33}");
+        assertThat(bill.latencyNanos()).isPositive();
+        assertThat(reader.next().status()).isEqualTo(400);
+        assertThat(reader.next().type()).isEqualTo(Journal.FEEDBACK);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    public void should_report_ready_once_warmed_up() throws Exception {
+        Warmup warmup = new Warmup(60000, new AsyncLog(16, 0, new PrintStream(new ByteArrayOutputStream()), System.err));
+        NioSeller warming = new NioSeller(0, 0, 1024, feedbackQueue, Journal.disabled(), warmup).start();
+        try {
+            assertThat(exchange(warming, get("/ready"), 1).get(0)).startsWith("HTTP/1.1 503 Service Unavailable\r\n").endsWith("warming up");
+            assertThat(exchange(warming, get("/ping"), 1).get(0)).endsWith("pong");
+
+            warmup.run();
+
+            assertThat(exchange(warming, get("/ready"), 1).get(0)).startsWith("HTTP/1.1 200 OK\r\n").endsWith("\r\n\r\nready");
+        } finally {
+            warming.stop();
+        }
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String post(String path, String body) {
+        return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+    }
+
+    private static List<String> exchange(NioSeller seller, String requests, int responses) throws IOException {
+        try (Socket socket = new Socket("localhost", seller.port())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.UTF_8));
+            List<String> read = new ArrayList<>();
+            for (int i = 0; i < responses; i++) {
+                read.add(read(socket.getInputStream()));
+            }
+            return read;
+        }
+    }
+
+    /**
+     * @return the next response, headers and body
+     */
+    private static String read(InputStream in) throws IOException {
+        StringBuilder response = new StringBuilder();
+        while (!response.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed after " + response);
+            }
+            response.append((char) b);
+        }
+        String headers = response.toString();
+        int start = headers.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(headers.substring(start, headers.indexOf('\r', start)));
+        byte[] body = new byte[length];
+        for (int read = 0; read < length; ) {
+            read += in.read(body, read, length - read);
+        }
+        return headers + new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package xcarpaccio.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Declines orders that would not be answered within a latency budget, so that an overloaded seller sheds them
+ * cheaply instead of answering all of them late.
+ * <pre>
+ * long admitted = admission.admit();
+ * if (admitted == AdmissionControl.DECLINED) {
+ *     return DECLINED; // preallocated, the game does not penalise a declined order
+ * }
+ * try {
+ *     ...
+ * } finally {
+ *     admission.done(admitted);
+ * }
+ * </pre>
+ * The time an order would take is estimated from the orders being answered and the recent service time,
+ * a moving average of the time an order takes when it has a core to itself. Orders are always admitted while
+ * there are fewer of them than cores, so the estimate keeps being refreshed.
+ * <p>
+ * Configured with the {@code ADMISSION_BUDGET_MILLIS} (0, the default, admits every order) and
+ * {@code ADMISSION_PARALLELISM} (orders answered at once, default the number of cores) environment variables.
+ */
+public final class AdmissionControl {
+    public static final long DECLINED = Long.MIN_VALUE;
+
+    // weight of a new sample in the moving average, as a shift: 1/8
+    private static final int SMOOTHING_SHIFT = 3;
+
+    private static volatile AdmissionControl shared;
+
+    private final long budgetNanos;
+    private final int parallelism;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // updated without synchronization, a lost sample only delays the average
+    private volatile long serviceNanos;
+
+    /**
+     * @param budgetMillis latency above which orders are declined, 0 to admit every order
+     * @param parallelism  number of orders the seller answers at once
+     */
+    public AdmissionControl(long budgetMillis, int parallelism) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @return the process wide admission control
+     */
+    public static AdmissionControl shared() {
+        AdmissionControl admission = shared;
+        if (admission == null) {
+            synchronized (AdmissionControl.class) {
+                admission = shared;
+                if (admission == null) {
+                    admission = fromEnvironment(1);
+                    shared = admission;
+                }
+            }
+        }
+        return admission;
+    }
+
+    /**
+     * @param shares number of listeners that answer orders side by side, each with an admission control of its own
+     * @return an admission control configured from the environment, with a share of the parallelism
+     */
+    public static AdmissionControl fromEnvironment(int shares) {
+        return new AdmissionControl(intEnv("ADMISSION_BUDGET_MILLIS", 0),
+                intEnv("ADMISSION_PARALLELISM", Runtime.getRuntime().availableProcessors()) / Math.max(1, shares));
+    }
+
+    /**
+     * @return the time the order was admitted, to give back to {@link #done(long)}, or {@link #DECLINED}
+     */
+    public long admit() {
+        return admit(0);
+    }
+
+    /**
+     * @param waiting requests queued before reaching the handlers, such as the tasks of the server's executor
+     * @return the time the order was admitted, to give back to {@link #done(long)}, or {@link #DECLINED}
+     */
+    public long admit(int waiting) {
+        if (budgetNanos <= 0) {
+            return 0;
+        }
+        int queued = inFlight.get() + waiting;
+        if (queued >= parallelism && estimateNanos(queued) > budgetNanos) {
+            return DECLINED;
+        }
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records that an admitted order has been answered.
+     */
+    public void done(long admitted) {
+        if (budgetNanos <= 0 || admitted == DECLINED) {
+            return;
+        }
+        int concurrent = inFlight.getAndDecrement();
+        long elapsed = System.nanoTime() - admitted;
+        // with more orders than cores each of them only had a share of a core
+        long service = elapsed * parallelism / Math.max(parallelism, concurrent);
+        long average = serviceNanos;
+        serviceNanos = average == 0 ? service : average + ((service - average) >> SMOOTHING_SHIFT);
+    }
+
+    /**
+     * @return how long an order admitted now would take, behind the {@code queued} ones
+     */
+    long estimateNanos(int queued) {
+        return serviceNanos * Math.max(parallelism, queued + 1) / parallelism;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
@@ -0,0 +1,189 @@
+package xcarpaccio.feedback;
+
+import java.util.Arrays;
+
+/**
+ * What the game server says the seller earned and lost, second by second, to watch a change show up in the cash.
+ * <p>
+ * The last {@code capacity} seconds are kept in a ring of primitive arrays, one slot per second, so that memory stays
+ * the same over a game of hours: a slot is reset when its second comes round again. Totals are kept since the start.
+ * Written by the {@link FeedbackQueue} consumer only and read by {@code /stats/earnings}, both hold the lock for
+ * microseconds and request threads never take it.
+ * <pre>
+ * {"start":1554200130,"earned":[812.5,1020.17,...],"lost":[0,4.17,...],
+ *  "messages":{"EARNED":[3,4,...],"WRONG_BILL":[0,1,...],...},"totalEarned":1832.67,"totalLost":4.17}
+ * </pre>
+ * Configured with the {@code EARNINGS_SECONDS} (default 3600) environment variable.
+ */
+public final class EarningsSeries {
+
+    /**
+     * Why the server changed the cash of the seller, from the content of its message.
+     */
+    public enum Reason {
+        /** right bill, or 400 to a corrupt order */
+        EARNED,
+        /** a bill with another total */
+        WRONG_BILL,
+        /** neither a bill nor a 404 */
+        NO_BILL,
+        /** anything but 400 to a corrupt order */
+        BAD_REQUEST_MISSED,
+        /** any other message, it does not change the cash */
+        OTHER;
+
+        static Reason of(String content) {
+            if (content.contains(" earned ")) {
+                return EARNED;
+            }
+            if (content.contains(" but right answer was ")) {
+                return WRONG_BILL;
+            }
+            if (content.contains("neither sent us a valid bill")) {
+                return NO_BILL;
+            }
+            if (content.contains("handle correctly a bad request")) {
+                return BAD_REQUEST_MISSED;
+            }
+            return OTHER;
+        }
+    }
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final int capacity;
+    private final long[] seconds;
+    private final double[] earned;
+    private final double[] lost;
+    // capacity x reasons
+    private final int[] messages;
+    private long first = Long.MIN_VALUE;
+    private long latest = Long.MIN_VALUE;
+    private double totalEarned;
+    private double totalLost;
+
+    /**
+     * @param capacity seconds kept
+     */
+    public EarningsSeries(int capacity) {
+        this.capacity = capacity;
+        this.seconds = new long[capacity];
+        this.earned = new double[capacity];
+        this.lost = new double[capacity];
+        this.messages = new int[capacity * REASONS.length];
+        Arrays.fill(seconds, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param cash positive when earned, negative when lost
+     */
+    public synchronized void record(long epochMillis, Reason reason, double cash) {
+        if (cash > 0) {
+            totalEarned += cash;
+        } else {
+            totalLost -= cash;
+        }
+        long second = Math.floorDiv(epochMillis, 1000L);
+        if (first == Long.MIN_VALUE) {
+            first = second;
+        }
+        if (latest != Long.MIN_VALUE && second <= latest - capacity) {
+            // older than the ring, only in the totals
+            return;
+        }
+        latest = Math.max(latest, second);
+        int slot = (int) Math.floorMod(second, (long) capacity);
+        if (seconds[slot] != second) {
+            seconds[slot] = second;
+            earned[slot] = 0;
+            lost[slot] = 0;
+            for (int i = 0; i < REASONS.length; i++) {
+                messages[slot * REASONS.length + i] = 0;
+            }
+        }
+        if (cash > 0) {
+            earned[slot] += cash;
+        } else {
+            lost[slot] -= cash;
+        }
+        messages[slot * REASONS.length + reason.ordinal()]++;
+    }
+
+    public synchronized double earned(long epochSecond) {
+        int slot = slot(epochSecond);
+        return slot >= 0 ? earned[slot] : 0;
+    }
+
+    public synchronized double lost(long epochSecond) {
+        int slot = slot(epochSecond);
+        return slot >= 0 ? lost[slot] : 0;
+    }
+
+    public synchronized int messages(long epochSecond, Reason reason) {
+        int slot = slot(epochSecond);
+        return slot >= 0 ? messages[slot * REASONS.length + reason.ordinal()] : 0;
+    }
+
+    public synchronized double totalEarned() {
+        return totalEarned;
+    }
+
+    public synchronized double totalLost() {
+        return totalLost;
+    }
+
+    /**
+     * @return every second from the first message, or from {@code capacity} seconds ago, up to now, seconds without a
+     * message as zeros: when the feedback stops, the series shows it
+     */
+    public String toJson(long nowMillis) {
+        StringBuilder json = new StringBuilder(256);
+        synchronized (this) {
+            long end = Math.max(latest, Math.floorDiv(nowMillis, 1000L));
+            long start = first == Long.MIN_VALUE ? end + 1 : Math.max(first, end - capacity + 1);
+            json.append("{\"start\":").append(first == Long.MIN_VALUE ? end : start);
+            json.append(",\"earned\":[");
+            for (long second = start; second <= end; second++) {
+                int slot = slot(second);
+                appendCash(json.append(second > start ? "," : ""), slot >= 0 ? earned[slot] : 0);
+            }
+            json.append("],\"lost\":[");
+            for (long second = start; second <= end; second++) {
+                int slot = slot(second);
+                appendCash(json.append(second > start ? "," : ""), slot >= 0 ? lost[slot] : 0);
+            }
+            json.append("],\"messages\":{");
+            for (Reason reason : REASONS) {
+                json.append(reason.ordinal() > 0 ? "," : "").append('"').append(reason.name()).append("\":[");
+                for (long second = start; second <= end; second++) {
+                    int slot = slot(second);
+                    json.append(second > start ? "," : "").append(slot >= 0 ? messages[slot * REASONS.length + reason.ordinal()] : 0);
+                }
+                json.append(']');
+            }
+            appendCash(json.append("},\"totalEarned\":"), totalEarned);
+            appendCash(json.append(",\"totalLost\":"), totalLost);
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * @return the slot holding {@code epochSecond}, -1 when it holds another second
+     */
+    private int slot(long epochSecond) {
+        int slot = (int) Math.floorMod(epochSecond, (long) capacity);
+        return seconds[slot] == epochSecond ? slot : -1;
+    }
+
+    /**
+     * Cents, like the server rounds its amounts, without the noise of summing doubles.
+     */
+    private static void appendCash(StringBuilder json, double cash) {
+        double cents = Math.round(cash * 100) / 100.0;
+        if (cents == (long) cents) {
+            json.append((long) cents);
+        } else {
+            json.append(cents);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package xcarpaccio.feedback;
+
+import xcarpaccio.json.Json;
+import xcarpaccio.logging.AsyncLog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Takes the game server's feedback off the request threads: {@code /feedback} copies the raw body in and answers
+ * at once, and a daemon thread parses the messages and counts them by kind, so that the hundreds of
+ * "Hey, bob earned 123.45" become one line per kind in the log.
+ * <p>
+ * The queue is a bounded ring of preallocated slots. When it is full the message is dropped and counted rather than
+ * making the request thread wait; drops show in the reports and through {@link #dropped()}.
+ * The cash of each message goes into an {@link EarningsSeries}, second by second.
+ * Configured with the {@code FEEDBACK_QUEUE_SIZE} (messages, default 1024), {@code FEEDBACK_REPORT_SECONDS}
+ * (default 10) and {@code EARNINGS_SECONDS} (default 3600) environment variables.
+ */
+public final class FeedbackQueue {
+    private static final int SLOT_CAPACITY = 512;
+    private static final long IDLE_PARK_NANOS = 1000000;
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+    private static final Pattern EARNED = Pattern.compile("earned (-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?)");
+    private static final Pattern CHARGED = Pattern.compile("(-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?) will be charged");
+    private static final Pattern LOST = Pattern.compile("lose (-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?) because");
+
+    private static volatile FeedbackQueue shared;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final long reportNanos;
+    private final AsyncLog log;
+    private final EarningsSeries earnings;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final DoubleAdder cash = new DoubleAdder();
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private volatile Thread consumer;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity number of messages, rounded up to a power of two
+     */
+    public FeedbackQueue(int capacity, long reportMillis, AsyncLog log) {
+        this(capacity, reportMillis, log, new EarningsSeries(3600));
+    }
+
+    public FeedbackQueue(int capacity, long reportMillis, AsyncLog log, EarningsSeries earnings) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i - size);
+        }
+        this.mask = size - 1;
+        this.reportNanos = TimeUnit.MILLISECONDS.toNanos(reportMillis);
+        this.log = log;
+        this.earnings = earnings;
+    }
+
+    /**
+     * @return the process wide queue, its consumer thread is started on first use
+     */
+    public static FeedbackQueue shared() {
+        FeedbackQueue queue = shared;
+        if (queue == null) {
+            synchronized (FeedbackQueue.class) {
+                queue = shared;
+                if (queue == null) {
+                    queue = new FeedbackQueue(intEnv("FEEDBACK_QUEUE_SIZE", 1024),
+                            TimeUnit.SECONDS.toMillis(intEnv("FEEDBACK_REPORT_SECONDS", 10)), AsyncLog.shared(),
+                            new EarningsSeries(intEnv("EARNINGS_SECONDS", 3600)));
+                    queue.start();
+                    shared = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * @return a queue with the capacity, report period, log and {@link EarningsSeries} of this one, to be started
+     */
+    public FeedbackQueue sibling() {
+        return new FeedbackQueue(slots.length, TimeUnit.NANOSECONDS.toMillis(reportNanos), log, earnings);
+    }
+
+    public FeedbackQueue start() {
+        Thread thread = new Thread(this::consume, "feedback-consumer");
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Processes what is left in the queue, reports and stops the consumer thread.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    /**
+     * Copies a raw {@code /feedback} body into the queue.
+     *
+     * @return {@code false} when the queue is full and the message was dropped
+     */
+    public boolean offer(byte[] body, int offset, int length) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) sequence & mask];
+        slot.fill(body, offset, length);
+        slot.published = sequence;
+        return true;
+    }
+
+    public boolean offer(byte[] body) {
+        return offer(body, 0, body.length);
+    }
+
+    /**
+     * @return how many messages were dropped because the queue was full
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return how many messages were parsed, invalid ones included
+     */
+    public long received() {
+        return received.sum();
+    }
+
+    /**
+     * @return how many messages were not a JSON object with a type and a content
+     */
+    public long invalid() {
+        return invalid.sum();
+    }
+
+    /**
+     * @return the cash earned minus the cash charged, according to the messages
+     */
+    public double cash() {
+        return cash.sum();
+    }
+
+    /**
+     * @return the cash of the messages second by second, for {@code /stats/earnings}
+     */
+    public EarningsSeries earnings() {
+        return earnings;
+    }
+
+    /**
+     * @return how many messages of each kind were received, keyed by type and content with numbers replaced by #
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+            snapshot.put(count.getKey(), count.getValue().sum());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the content with its numbers replaced by {@code #}, so that messages of the same kind look the same
+     */
+    static String kind(String content) {
+        return NUMBER.matcher(content).replaceAll("#");
+    }
+
+    /**
+     * @return the cash a message announces, positive when earned and negative when charged
+     */
+    static double cashOf(String content) {
+        Matcher earned = EARNED.matcher(content);
+        if (earned.find()) {
+            return Double.parseDouble(earned.group(1));
+        }
+        Matcher charged = CHARGED.matcher(content);
+        if (charged.find()) {
+            return -Double.parseDouble(charged.group(1));
+        }
+        Matcher lost = LOST.matcher(content);
+        if (lost.find()) {
+            return -Double.parseDouble(lost.group(1));
+        }
+        return 0;
+    }
+
+    private void consume() {
+        long next = consumed;
+        long lastReport = System.nanoTime();
+        Map<String, Long> reported = new HashMap<>();
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published == next) {
+                process(new String(slot.bytes, 0, slot.length, StandardCharsets.UTF_8));
+                next++;
+                consumed = next;
+                continue;
+            }
+            boolean stopping = !running && claimed.get() == next;
+            if (stopping || System.nanoTime() - lastReport >= reportNanos) {
+                report(reported);
+                lastReport = System.nanoTime();
+            }
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void process(String body) {
+        received.increment();
+        Object message;
+        try {
+            message = Json.parse(body);
+        } catch (IllegalArgumentException e) {
+            message = null;
+        }
+        Object type = message instanceof Map ? ((Map<?, ?>) message).get("type") : null;
+        Object content = message instanceof Map ? ((Map<?, ?>) message).get("content") : null;
+        if (!(type instanceof String) || !(content instanceof String)) {
+            invalid.increment();
+            log.error("[feedback] invalid message " + body);
+            return;
+        }
+        String key = type + " " + kind((String) content);
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            // the first message of a kind is logged as is, the next ones are only counted
+            count = new LongAdder();
+            counts.put(key, count);
+            if ("ERROR".equals(type)) {
+                log.error("[feedback] " + type + ": " + content);
+            } else {
+                log.log("[feedback] " + type + ": " + content);
+            }
+        }
+        count.increment();
+        double amount = cashOf((String) content);
+        cash.add(amount);
+        earnings.record(System.currentTimeMillis(), EarningsSeries.Reason.of((String) content), amount);
+    }
+
+    /**
+     * Logs the kinds of messages received since the last report, nothing when there were none.
+     */
+    private void report(Map<String, Long> reported) {
+        List<String> kinds = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+            long sum = count.getValue().sum();
+            Long before = reported.get(count.getKey());
+            long since = sum - (before == null ? 0 : before);
+            if (since > 0) {
+                kinds.add("  " + since + " x " + count.getKey());
+                reported.put(count.getKey(), sum);
+                total += since;
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+        // one line per kind, a single entry could be truncated
+        log.log(String.format("[feedback] %d messages, %d dropped and %d invalid so far, cash %.2f",
+                total, dropped.sum(), invalid.sum(), cash.sum()));
+        for (String kind : kinds) {
+            log.log(kind);
+        }
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static final class Slot {
+        private byte[] bytes = new byte[SLOT_CAPACITY];
+        private int length;
+        private volatile long published;
+
+        private Slot(long published) {
+            this.published = published;
+        }
+
+        private void fill(byte[] body, int offset, int count) {
+            if (count > bytes.length) {
+                // rare: "The object ... is not a valid json object" quotes the seller's answer
+                bytes = new byte[count];
+            }
+            System.arraycopy(body, offset, bytes, 0, count);
+            length = count;
+        }
+    }
+}
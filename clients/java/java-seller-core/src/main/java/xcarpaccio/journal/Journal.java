@@ -0,0 +1,392 @@
+package xcarpaccio.journal;
+
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An append-only journal of the orders and feedback a seller receives, to find out after a game what happened.
+ * <p>
+ * Request threads copy the raw body, and for an order its answer, status and latency, into a bounded ring of
+ * preallocated slots, like {@link AsyncLog} does, and go on. A daemon thread appends the records to memory-mapped
+ * segment files, rolls to a new segment when one is full and forces the segment to disk once for all the records
+ * written since, at most every {@code forceMillis}. When the ring is full the record is dropped and counted rather than
+ * making the request thread wait. The records of a seller that dies are in the page cache and reach the file anyway,
+ * a crash of the machine loses at most the last {@code forceMillis}.
+ * <p>
+ * A segment starts with {@link #MAGIC} and {@link #VERSION}, then holds records, big-endian:
+ * <pre>
+ * int length of the rest of the record, byte type, long epoch millis
+ * ORDER:    short status, long latency nanos, int body length, body, answer
+ * FEEDBACK: body
+ * </pre>
+ * The length of a record is written last, a record cut short reads as 0, the end of the segment like its zero tail.
+ * {@link JournalReader} reads segments back, {@link JournalExport} exports them to NDJSON.
+ * Configured with the {@code JOURNAL_DIR} (none by default, the journal is then disabled), {@code JOURNAL_SEGMENT_MB}
+ * (default 64), {@code JOURNAL_QUEUE_SIZE} (records, default 4096) and {@code JOURNAL_FORCE_MILLIS} (default 1000)
+ * environment variables.
+ */
+public final class Journal {
+    public static final int MAGIC = 0x58434a4c;
+    public static final int VERSION = 1;
+    public static final byte ORDER = 1;
+    public static final byte FEEDBACK = 2;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 4 + 1 + 8;
+    static final int ORDER_HEADER_SIZE = 2 + 8 + 4;
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int SLOT_CAPACITY = 512;
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private static volatile Journal shared;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final Slot[] slots;
+    private final int mask;
+    private final long forceNanos;
+    private final AsyncLog log;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private volatile long written;
+    private volatile Thread writer;
+    private volatile boolean running = true;
+
+    // owned by the writer thread
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private boolean broken;
+
+    /**
+     * @param segmentSize bytes of a segment file, the largest record it can hold
+     * @param capacity    number of records the ring holds, rounded up to a power of two
+     * @param forceMillis how often the records written are forced to disk, 0 after every batch
+     */
+    public Journal(Path directory, int segmentSize, int capacity, long forceMillis, AsyncLog log) {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + ORDER_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment of " + segmentSize + " bytes too small for a record");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.enabled = true;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i - size);
+        }
+        this.mask = size - 1;
+        this.forceNanos = TimeUnit.MILLISECONDS.toNanos(forceMillis);
+        this.log = log;
+    }
+
+    private Journal() {
+        this.enabled = false;
+        this.directory = null;
+        this.segmentSize = 0;
+        this.slots = new Slot[0];
+        this.mask = 0;
+        this.forceNanos = 0;
+        this.log = null;
+    }
+
+    /**
+     * @return a journal that records nothing, its methods return at once
+     */
+    public static Journal disabled() {
+        return new Journal();
+    }
+
+    /**
+     * @return the process wide journal in {@code JOURNAL_DIR}, its writer thread is started on first use, or a
+     * disabled journal when the variable is not set
+     */
+    public static Journal shared() {
+        Journal journal = shared;
+        if (journal == null) {
+            synchronized (Journal.class) {
+                journal = shared;
+                if (journal == null) {
+                    journal = fromEnvironment(null);
+                    shared = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * @param subdirectory of {@code JOURNAL_DIR}, or {@code null} for the directory itself
+     * @return a started journal configured from the environment, or a disabled journal when {@code JOURNAL_DIR} is
+     * not set
+     */
+    public static Journal fromEnvironment(String subdirectory) {
+        String directory = System.getenv("JOURNAL_DIR");
+        if (directory == null || directory.isEmpty()) {
+            return disabled();
+        }
+        Path path = subdirectory != null ? Paths.get(directory, subdirectory) : Paths.get(directory);
+        Journal journal = new Journal(path, intEnv("JOURNAL_SEGMENT_MB", 64) << 20,
+                intEnv("JOURNAL_QUEUE_SIZE", 4096), intEnv("JOURNAL_FORCE_MILLIS", 1000), AsyncLog.shared());
+        journal.start();
+        AsyncLog.shared().log("Journal of orders and feedback in " + path);
+        return journal;
+    }
+
+    public Journal start() {
+        if (!enabled) {
+            return this;
+        }
+        Thread thread = new Thread(this::write, "journal-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Writes what is left in the ring, forces the segment to disk and stops the writer thread.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Copies an order, the raw body of the request, and the answer of the seller into the ring.
+     *
+     * @param latencyNanos time the seller took to answer
+     * @return {@code false} when the record was dropped, or the journal is disabled
+     */
+    public boolean order(byte[] body, int offset, int length, int status,
+                         byte[] answer, int answerOffset, int answerLength, long latencyNanos) {
+        long sequence = claim(RECORD_HEADER_SIZE + ORDER_HEADER_SIZE + length + answerLength);
+        if (sequence < 0) {
+            return false;
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.fill(ORDER, status, latencyNanos, body, offset, length, answer, answerOffset, answerLength);
+        slot.published = sequence;
+        return true;
+    }
+
+    /**
+     * Copies a raw {@code /feedback} body into the ring.
+     *
+     * @return {@code false} when the record was dropped, or the journal is disabled
+     */
+    public boolean feedback(byte[] body, int offset, int length) {
+        long sequence = claim(RECORD_HEADER_SIZE + length);
+        if (sequence < 0) {
+            return false;
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.fill(FEEDBACK, 0, 0, body, offset, length, body, 0, 0);
+        slot.published = sequence;
+        return true;
+    }
+
+    /**
+     * @return how many records were dropped, because the ring was full, a record did not fit in a segment or a
+     * segment could not be created
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return how many records were written to the segments
+     */
+    public long written() {
+        return written;
+    }
+
+    /**
+     * @return the sequence of the claimed slot, or -1 when the record is dropped
+     */
+    private long claim(int recordSize) {
+        if (!enabled) {
+            return -1;
+        }
+        if (recordSize > segmentSize - HEADER_SIZE) {
+            dropped.increment();
+            return -1;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.increment();
+                return -1;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    private void write() {
+        long next = consumed;
+        long reportedDrops = 0;
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published == next) {
+                unforced |= append(slot);
+                next++;
+                consumed = next;
+                continue;
+            }
+            // group commit: one force for every record written since the last one
+            if (unforced && System.nanoTime() - lastForce >= forceNanos) {
+                force();
+                unforced = false;
+                lastForce = System.nanoTime();
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                log.error("[journal] " + (drops - reportedDrops) + " records dropped");
+                reportedDrops = drops;
+            }
+            if (!running && claimed.get() == next) {
+                force();
+                segment = null;
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * @return whether the record was written
+     */
+    private boolean append(Slot slot) {
+        int size = slot.recordSize();
+        if (segment == null || segment.remaining() < size) {
+            roll();
+        }
+        if (segment == null) {
+            dropped.increment();
+            return false;
+        }
+        MappedByteBuffer out = segment;
+        int start = out.position();
+        ((Buffer) out).position(start + 4);
+        out.put(slot.type).putLong(slot.time);
+        if (slot.type == ORDER) {
+            out.putShort((short) slot.status).putLong(slot.latencyNanos).putInt(slot.bodyLength);
+        }
+        out.put(slot.bytes, 0, slot.bodyLength + slot.answerLength);
+        // the length last, a record cut short by a crash reads as the end of the segment
+        out.putInt(start, size - 4);
+        written++;
+        return true;
+    }
+
+    /**
+     * Forces the full segment to disk and maps a new one after the existing segments. The full segment is unmapped
+     * when it is collected, Java 8 has no way to unmap it sooner.
+     */
+    private void roll() {
+        force();
+        segment = null;
+        if (broken) {
+            return;
+        }
+        try {
+            if (segmentIndex == 0) {
+                Files.createDirectories(directory);
+                List<Path> existing = JournalReader.segments(directory);
+                segmentIndex = existing.isEmpty() ? 0 : index(existing.get(existing.size() - 1));
+            }
+            segmentIndex++;
+            Path file = directory.resolve(String.format("%08d", segmentIndex) + SEGMENT_SUFFIX);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            }
+            segment.putInt(MAGIC).putInt(VERSION);
+        } catch (IOException | RuntimeException e) {
+            // records are dropped from now on rather than retrying on every one of them
+            broken = true;
+            log.error("[journal] cannot create a segment in " + directory + ", journal stopped: " + e);
+        }
+    }
+
+    private void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private static int index(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static final class Slot {
+        private byte[] bytes = new byte[SLOT_CAPACITY];
+        private byte type;
+        private long time;
+        private int status;
+        private long latencyNanos;
+        private int bodyLength;
+        private int answerLength;
+        private volatile long published;
+
+        private Slot(long published) {
+            this.published = published;
+        }
+
+        private void fill(byte type, int status, long latencyNanos, byte[] body, int offset, int length,
+                          byte[] answer, int answerOffset, int answerLength) {
+            this.type = type;
+            this.time = System.currentTimeMillis();
+            this.status = status;
+            this.latencyNanos = latencyNanos;
+            if (length + answerLength > bytes.length) {
+                // rare: a feedback quoting a large answer of the seller
+                bytes = new byte[length + answerLength];
+            }
+            System.arraycopy(body, offset, bytes, 0, length);
+            System.arraycopy(answer, answerOffset, bytes, length, answerLength);
+            this.bodyLength = length;
+            this.answerLength = answerLength;
+        }
+
+        private int recordSize() {
+            return RECORD_HEADER_SIZE + (type == ORDER ? ORDER_HEADER_SIZE : 0) + bodyLength + answerLength;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package xcarpaccio.journal;
+
+import xcarpaccio.json.Json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+/**
+ * Exports the records of a {@link Journal} to NDJSON, one object per line, to read them with {@code jq} or load them
+ * anywhere. Bodies are kept as strings, as the server sent them: corrupt orders are not valid JSON.
+ * <pre>
+ * java -cp extreme-carpaccio-seller-core-1.0-SNAPSHOT.jar xcarpaccio.journal.JournalExport [--out=<file>] <journal>
+ *
+ * {"time":"2019-04-02T10:15:30.123Z","type":"order","status":200,"latencyNanos":41000,"body":"{\"prices\":...}","answer":"{\"total\":8.33}"}
+ * {"time":"2019-04-02T10:15:31.007Z","type":"feedback","body":"{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}"}
+ * </pre>
+ */
+public final class JournalExport {
+    static final String USAGE = "Usage: java -cp <seller jar> xcarpaccio.journal.JournalExport [options] <journal directory or segment>\n"
+            + "  --out=<file>   written instead of the standard output";
+
+    public static void main(String[] args) throws IOException {
+        Path journal = null;
+        Path out = null;
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) {
+                out = Paths.get(arg.substring("--out=".length()));
+            } else if (!arg.startsWith("--") && journal == null) {
+                journal = Paths.get(arg);
+            } else {
+                System.err.println(arg.equals("--help") ? USAGE : "Invalid option " + arg + "\n" + USAGE);
+                System.exit(arg.equals("--help") ? 0 : 1);
+            }
+        }
+        if (journal == null) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        long records;
+        try (Writer writer = out != null ? Files.newBufferedWriter(out, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            records = export(new JournalReader(journal), writer);
+        }
+        System.err.println(records + " records exported");
+    }
+
+    /**
+     * @return how many records were written
+     */
+    public static long export(JournalReader reader, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(512);
+        long records = 0;
+        for (JournalReader.Record record = reader.next(); record != null; record = reader.next()) {
+            line.setLength(0);
+            toJson(record, line).append('\n');
+            out.append(line);
+            records++;
+        }
+        out.flush();
+        return records;
+    }
+
+    static StringBuilder toJson(JournalReader.Record record, StringBuilder json) {
+        json.append("{\"time\":\"").append(Instant.ofEpochMilli(record.time())).append('"');
+        if (record.type() == Journal.ORDER) {
+            json.append(",\"type\":\"order\",\"status\":").append(record.status())
+                    .append(",\"latencyNanos\":").append(record.latencyNanos());
+        } else {
+            json.append(",\"type\":\"feedback\"");
+        }
+        json.append(",\"body\":");
+        Json.appendString(json, new String(record.body(), StandardCharsets.UTF_8));
+        if (record.type() == Journal.ORDER) {
+            json.append(",\"answer\":");
+            Json.appendString(json, new String(record.answer(), StandardCharsets.UTF_8));
+        }
+        return json.append('}');
+    }
+}
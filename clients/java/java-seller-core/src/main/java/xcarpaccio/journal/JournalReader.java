@@ -0,0 +1,174 @@
+package xcarpaccio.journal;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the records of a {@link Journal} back, from one segment or from all the segments of a directory in the order
+ * they were written. A journal being written can be read, the reader stops at the last complete record.
+ * <pre>
+ * JournalReader reader = new JournalReader(Paths.get("journal"));
+ * for (JournalReader.Record record = reader.next(); record != null; record = reader.next()) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class JournalReader {
+    private final List<Path> segments;
+    private int nextSegment;
+    private MappedByteBuffer segment;
+
+    /**
+     * @param path a directory of segments or a single segment
+     */
+    public JournalReader(Path path) throws IOException {
+        this.segments = Files.isDirectory(path) ? segments(path) : Collections.singletonList(path);
+    }
+
+    /**
+     * @return the segments of the directory, oldest first
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Journal.SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        // names are zero padded indexes
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @return the next record, or {@code null} after the last one
+     * @throws IOException when a file is not a segment of a journal
+     */
+    public Record next() throws IOException {
+        while (true) {
+            if (segment != null && segment.remaining() >= 4) {
+                int start = segment.position();
+                int length = segment.getInt();
+                if (length >= Journal.RECORD_HEADER_SIZE - 4 && length <= segment.remaining()) {
+                    return read(length);
+                }
+                // the zero tail of the segment, or a record cut short
+                ((Buffer) segment).position(start);
+            }
+            if (nextSegment == segments.size()) {
+                return null;
+            }
+            segment = open(segments.get(nextSegment++));
+        }
+    }
+
+    private Record read(int length) {
+        int end = segment.position() + length;
+        byte type = segment.get();
+        long time = segment.getLong();
+        int status = 0;
+        long latencyNanos = 0;
+        int bodyLength = end - segment.position();
+        if (type == Journal.ORDER) {
+            status = segment.getShort() & 0xFFFF;
+            latencyNanos = segment.getLong();
+            bodyLength = segment.getInt();
+        }
+        byte[] body = new byte[bodyLength];
+        segment.get(body);
+        byte[] answer = new byte[end - segment.position()];
+        segment.get(answer);
+        return new Record(type, time, status, latencyNanos, body, answer);
+    }
+
+    private static MappedByteBuffer open(Path file) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.remaining() < Journal.HEADER_SIZE || segment.getInt() != Journal.MAGIC) {
+            throw new IOException(file + " is not a journal segment");
+        }
+        int version = segment.getInt();
+        if (version != Journal.VERSION) {
+            throw new IOException(file + " is a journal segment of version " + version + ", " + Journal.VERSION + " expected");
+        }
+        return segment;
+    }
+
+    /**
+     * An order with its answer or a feedback message, as the seller received it.
+     */
+    public static final class Record {
+        private final byte type;
+        private final long time;
+        private final int status;
+        private final long latencyNanos;
+        private final byte[] body;
+        private final byte[] answer;
+
+        Record(byte type, long time, int status, long latencyNanos, byte[] body, byte[] answer) {
+            this.type = type;
+            this.time = time;
+            this.status = status;
+            this.latencyNanos = latencyNanos;
+            this.body = body;
+            this.answer = answer;
+        }
+
+        /**
+         * @return {@link Journal#ORDER} or {@link Journal#FEEDBACK}
+         */
+        public byte type() {
+            return type;
+        }
+
+        /**
+         * @return when the record was taken, in milliseconds since the epoch
+         */
+        public long time() {
+            return time;
+        }
+
+        /**
+         * @return the status the order was answered with, 0 for feedback
+         */
+        public int status() {
+            return status;
+        }
+
+        public long latencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * @return the raw body of the request
+         */
+        public byte[] body() {
+            return body;
+        }
+
+        /**
+         * @return the body of the answer to an order, empty for feedback
+         */
+        public byte[] answer() {
+            return answer;
+        }
+
+        @Override
+        public String toString() {
+            return (type == Journal.ORDER ? "order " + status + " " + new String(answer, StandardCharsets.UTF_8) + " in "
+                    + latencyNanos + " ns: " : "feedback: ") + new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package xcarpaccio.json;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON to read rules files and feedback messages, the core does not depend on any JSON library.
+ * Objects become {@code Map}, arrays {@code List}, numbers {@code Double}.
+ */
+public final class Json {
+    private final String json;
+    private int position;
+
+    private Json(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code json} is not valid JSON
+     */
+    public static Object parse(String json) {
+        Json parser = new Json(json);
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.position != json.length()) {
+            throw parser.error("end of document expected");
+        }
+        return value;
+    }
+
+    public static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    private Object value() {
+        skipWhitespace();
+        if (position == json.length()) {
+            throw error("value expected");
+        }
+        char c = json.charAt(position);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                literal("true");
+                return Boolean.TRUE;
+            case 'f':
+                literal("false");
+                return Boolean.FALSE;
+            case 'n':
+                literal("null");
+                return null;
+            default:
+                return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (consume('}')) {
+            return object;
+        }
+        do {
+            skipWhitespace();
+            if (position == json.length() || json.charAt(position) != '"') {
+                throw error("key expected");
+            }
+            String key = string();
+            skipWhitespace();
+            if (!consume(':')) {
+                throw error("':' expected");
+            }
+            object.put(key, value());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume('}')) {
+            throw error("'}' expected");
+        }
+        return object;
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (consume(']')) {
+            return array;
+        }
+        do {
+            array.add(value());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume(']')) {
+            throw error("']' expected");
+        }
+        return array;
+    }
+
+    private String string() {
+        StringBuilder string = new StringBuilder();
+        position++;
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return string.toString();
+            }
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+            if (position == json.length()) {
+                break;
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case 'n': string.append('\n'); break;
+                case 't': string.append('\t'); break;
+                case 'r': string.append('\r'); break;
+                case 'b': string.append('\b'); break;
+                case 'f': string.append('\f'); break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("invalid escape");
+                    }
+                    string.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default: string.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Double number() {
+        int start = position;
+        while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return Double.valueOf(json.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("value expected");
+        }
+    }
+
+    private void literal(String literal) {
+        if (!json.startsWith(literal, position)) {
+            throw error(literal + " expected");
+        }
+        position += literal.length();
+    }
+
+    private boolean consume(char expected) {
+        if (position < json.length() && json.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + position + ": " + message);
+    }
+}
@@ -0,0 +1,251 @@
+package xcarpaccio.json;
+
+import java.math.BigInteger;
+
+/**
+ * Writes doubles as the game server's {@code JSON.stringify} does, straight into bytes and without allocating:
+ * the shortest digits that parse back to the same double, the closest to it when several are as short, laid out like
+ * JavaScript's {@code Number.prototype.toString}. {@code 14} rather than {@code 14.0}, {@code 10000000} rather than
+ * {@code 1.0E7}, {@code 1e+21}, {@code 1.5e-7}, {@code 0} for {@code -0}, and {@code null} for NaN and infinities.
+ * <p>
+ * The digits come from Giulietti's Schubfach algorithm, the one behind {@code Double.toString} since JDK 19: a few
+ * 64 bit multiplications by a 126 bit power of ten from a table built once. {@code Double.toString} of a JDK 8 to 18
+ * runtime sometimes writes more digits than needed, and always allocates.
+ */
+public final class JsonNumber {
+    /**
+     * The longest number written, as in {@code -0.0000012345678901234567}.
+     */
+    public static final int MAX_LENGTH = 25;
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    // the layout of a double: a 52 bit significand, an 11 bit biased exponent
+    private static final int PRECISION = 53;
+    private static final long SIGNIFICAND_MASK = (1L << PRECISION - 1) - 1;
+    private static final int EXPONENT_MASK = (1 << 11) - 1;
+    private static final int MIN_EXPONENT = -1074;
+    private static final long HIDDEN_BIT = 1L << PRECISION - 1;
+
+    private static final int MIN_POWER = -324;
+    private static final int MAX_POWER = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+    // for each k from MIN_POWER, the high 63 and low 63 bits of 10^-k scaled into [2^125, 2^126), plus one
+    private static final long[] POWERS = powers();
+
+    private JsonNumber() {
+    }
+
+    /**
+     * Writes {@code value} at {@code offset}, {@code bytes} must have room for {@link #MAX_LENGTH} bytes from there.
+     *
+     * @return the offset after the last byte written
+     */
+    public static int write(double value, byte[] bytes, int offset) {
+        long bits = Double.doubleToRawLongBits(value);
+        long significand = bits & SIGNIFICAND_MASK;
+        int exponent = (int) (bits >>> PRECISION - 1) & EXPONENT_MASK;
+        if (exponent == EXPONENT_MASK) {
+            System.arraycopy(NULL, 0, bytes, offset, NULL.length);
+            return offset + NULL.length;
+        }
+        if (exponent == 0 && significand == 0) {
+            bytes[offset] = '0';
+            return offset + 1;
+        }
+        if (bits < 0) {
+            bytes[offset++] = '-';
+        }
+        if (exponent == 0) {
+            // subnormal, JavaScript writes the smallest with one digit, 5e-324, where Java writes 4.9E-324
+            return shortest(MIN_EXPONENT, significand, bytes, offset);
+        }
+        int shift = -MIN_EXPONENT + 1 - exponent;
+        long c = HIDDEN_BIT | significand;
+        if (0 < shift && shift < PRECISION) {
+            // an integer below 2^53 is its own shortest decimal
+            long integer = c >> shift;
+            if (integer << shift == c) {
+                return layout(integer, 0, bytes, offset);
+            }
+        }
+        return shortest(-shift, c, bytes, offset);
+    }
+
+    /**
+     * Finds the shortest decimal within the rounding interval of {@code c 2^q}, see Giulietti, "The Schubfach way to
+     * render doubles".
+     */
+    private static int shortest(int q, long c, byte[] bytes, int offset) {
+        int out = (int) c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != HIDDEN_BIT | q == MIN_EXPONENT) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            // the interval below a power of two is half as wide
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 2;
+        int index = k - MIN_POWER << 1;
+        long g1 = POWERS[index];
+        long g0 = POWERS[index + 1];
+        long vb = roundToOdd(g1, g0, cb << h);
+        long vbl = roundToOdd(g1, g0, cbl << h);
+        long vbr = roundToOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        // Double.toString stops at 2 digits, with s >= 100, JavaScript goes down to one
+        if (s >= 10) {
+            // one digit less, when the interval holds only one of its two candidates
+            long sp10 = s / 10 * 10;
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return layout(upin ? sp10 : tp10, k, bytes, offset);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return layout(uin ? s : t, k, bytes, offset);
+        }
+        // both are in the interval, or only the one between them: the closest, the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return layout(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k, bytes, offset);
+    }
+
+    /**
+     * @return {@code g cp 2^-127} rounded to odd, where {@code g = g1 2^63 + g0}
+     */
+    private static long roundToOdd(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * The high 64 bits of the 128 bit product, {@code Math.multiplyHigh} of a JDK 9+ runtime.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = (t & 0xFFFFFFFFL) + x2 * y1;
+        long z0 = t >> 32;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    private static int floorLog10Pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int floorLog10ThreeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L - 274_743_187_321L >> 41);
+    }
+
+    private static int floorLog2Pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Lays {@code f 10^e} out like {@code Number.prototype.toString}: plain from 1e-6 up to 1e21, in exponent notation
+     * beyond.
+     */
+    private static int layout(long f, int e, byte[] bytes, int offset) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int digits = digits(f);
+        // the value is 0.<digits> 10^n
+        int n = e + digits;
+        if (digits <= n && n <= 21) {
+            offset = writeDigits(f, digits, bytes, offset);
+            for (int i = digits; i < n; i++) {
+                bytes[offset++] = '0';
+            }
+            return offset;
+        }
+        if (0 < n && n <= 21) {
+            // the integer digits move one to the left to make room for the point
+            int end = writeDigits(f, digits, bytes, offset + 1);
+            System.arraycopy(bytes, offset + 1, bytes, offset, n);
+            bytes[offset + n] = '.';
+            return end;
+        }
+        if (-6 < n && n <= 0) {
+            bytes[offset++] = '0';
+            bytes[offset++] = '.';
+            for (int i = n; i < 0; i++) {
+                bytes[offset++] = '0';
+            }
+            return writeDigits(f, digits, bytes, offset);
+        }
+        int end = writeDigits(f, digits, bytes, offset + 1);
+        bytes[offset] = bytes[offset + 1];
+        if (digits > 1) {
+            bytes[offset + 1] = '.';
+        } else {
+            end = offset + 1;
+        }
+        bytes[end++] = 'e';
+        int exponent = n - 1;
+        bytes[end++] = (byte) (exponent < 0 ? '-' : '+');
+        exponent = Math.abs(exponent);
+        return writeDigits(exponent, digits(exponent), bytes, end);
+    }
+
+    private static int digits(long f) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && f >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int writeDigits(long f, int digits, byte[] bytes, int offset) {
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + f % 10);
+            f /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * For every k, {@code g = floor(10^-k 2^-r) + 1} with r such that {@code 2^125 <= 10^-k 2^-r < 2^126}, split into
+     * its high and low 63 bits.
+     */
+    private static long[] powers() {
+        long[] powers = new long[MAX_POWER - MIN_POWER + 1 << 1];
+        for (int k = MIN_POWER; k <= MAX_POWER; k++) {
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger power = BigInteger.TEN.pow(-k);
+                int shift = power.bitLength() - 126;
+                g = shift >= 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+            } else {
+                BigInteger power = BigInteger.TEN.pow(k);
+                g = BigInteger.ONE.shiftLeft(125 + power.bitLength()).divide(power);
+            }
+            g = g.add(BigInteger.ONE);
+            int index = k - MIN_POWER << 1;
+            powers[index] = g.shiftRight(63).longValue();
+            powers[index + 1] = g.longValue() & MASK_63;
+        }
+        return powers;
+    }
+}
@@ -0,0 +1,320 @@
+package xcarpaccio.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Console logging that never blocks the request thread.
+ * <p>
+ * Messages are copied as bytes into a bounded ring of preallocated entries and a daemon thread writes them to the console.
+ * When the ring is full the message is dropped and counted instead of waiting; the writer reports drops as they happen.
+ * The writer waits for each entry to be published before it writes the ones behind it and hands its slot out again, so
+ * a claimed entry must be published in a {@code finally} block, even when filling it failed.
+ * Order bodies can be sampled so that only one order in N is logged.
+ * <pre>
+ * AsyncLog.Entry entry = log.info();
+ * if (entry != null) {
+ *     try {
+ *         entry.append("POST /order ").append(body, 0, length);
+ *     } finally {
+ *         entry.publish();
+ *     }
+ * }
+ * </pre>
+ * Configured with the {@code LOG_BUFFER_SIZE} (entries, default 1024) and {@code LOG_SAMPLE_ORDERS}
+ * (log one order in N, 0 to log none, default 1) environment variables.
+ */
+public final class AsyncLog {
+    private static final int ENTRY_CAPACITY = 1024;
+    private static final byte[] ELLIPSIS = {'.', '.', '.'};
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private static volatile AsyncLog shared;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int sampleOrders;
+    private final OutputStream out;
+    private final OutputStream err;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private volatile Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param bufferSize   number of entries, rounded up to a power of two
+     * @param sampleOrders log one order in {@code sampleOrders}, none when 0
+     */
+    public AsyncLog(int bufferSize, int sampleOrders, PrintStream out, PrintStream err) {
+        int size = Integer.highestOneBit(Math.max(1, bufferSize - 1)) << 1;
+        this.entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry(i - size);
+        }
+        this.mask = size - 1;
+        this.sampleOrders = sampleOrders;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return the process wide log, its writer thread is started on first use
+     */
+    public static AsyncLog shared() {
+        AsyncLog log = shared;
+        if (log == null) {
+            synchronized (AsyncLog.class) {
+                log = shared;
+                if (log == null) {
+                    log = new AsyncLog(intEnv("LOG_BUFFER_SIZE", 1024), intEnv("LOG_SAMPLE_ORDERS", 1), System.out, System.err);
+                    log.start();
+                    shared = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    public AsyncLog start() {
+        Thread thread = new Thread(this::drain, "async-log-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Writes what is left in the ring and stops the writer thread.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    public void log(String message) {
+        Entry entry = info();
+        if (entry != null) {
+            try {
+                entry.append(message);
+            } finally {
+                entry.publish();
+            }
+        }
+    }
+
+    public void error(String message) {
+        Entry entry = error();
+        if (entry != null) {
+            try {
+                entry.append(message);
+            } finally {
+                entry.publish();
+            }
+        }
+    }
+
+    /**
+     * @return an entry to fill then {@link Entry#publish()} in a {@code finally} block, or {@code null} when the ring is full
+     */
+    public Entry info() {
+        return claim(false);
+    }
+
+    /**
+     * @return an entry written to the error stream, or {@code null} when the ring is full
+     */
+    public Entry error() {
+        return claim(true);
+    }
+
+    /**
+     * @return whether the current order should be logged according to {@code LOG_SAMPLE_ORDERS}
+     */
+    public boolean sampleOrder() {
+        return sampleOrders > 0 && orders.getAndIncrement() % sampleOrders == 0;
+    }
+
+    /**
+     * @return how many messages were dropped because the ring was full
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private Entry claim(boolean error) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= entries.length) {
+                dropped.incrementAndGet();
+                return null;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        Entry entry = entries[(int) sequence & mask];
+        entry.claim(sequence, error);
+        return entry;
+    }
+
+    private void drain() {
+        long next = consumed;
+        long reportedDrops = 0;
+        while (true) {
+            Entry entry = entries[(int) next & mask];
+            if (entry.published == next) {
+                entry.writeTo(entry.error ? err : out);
+                next++;
+                consumed = next;
+                continue;
+            }
+            flush();
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                writeDrops(drops - reportedDrops);
+                reportedDrops = drops;
+            }
+            if (!running && claimed.get() == next) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+            err.flush();
+        } catch (IOException ignored) {
+            // nowhere to report it
+        }
+    }
+
+    private void writeDrops(long drops) {
+        try {
+            err.write(("[async-log] " + drops + " messages dropped, ring buffer full\n").getBytes("US-ASCII"));
+            err.flush();
+        } catch (IOException ignored) {
+            // nowhere to report it
+        }
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    /**
+     * A preallocated message being written by one request thread.
+     */
+    public static final class Entry {
+        private final byte[] bytes = new byte[ENTRY_CAPACITY];
+        private int length;
+        private boolean truncated;
+        private boolean error;
+        private long sequence;
+        private volatile long published;
+
+        private Entry(long published) {
+            this.published = published;
+        }
+
+        private void claim(long sequence, boolean error) {
+            this.sequence = sequence;
+            this.error = error;
+            this.length = 0;
+            this.truncated = false;
+        }
+
+        public Entry append(CharSequence chars) {
+            if (chars == null) {
+                return append("null");
+            }
+            for (int i = 0; i < chars.length(); i++) {
+                append(chars.charAt(i));
+            }
+            return this;
+        }
+
+        public Entry append(char c) {
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+            return this;
+        }
+
+        public Entry append(long value) {
+            if (value == Long.MIN_VALUE) {
+                return append("-9223372036854775808");
+            }
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                put((byte) ('0' + (value / divisor) % 10));
+            }
+            return this;
+        }
+
+        /**
+         * Copies raw UTF-8 bytes, such as a request body.
+         */
+        public Entry append(byte[] source, int offset, int count) {
+            int copied = Math.min(count, bytes.length - length);
+            System.arraycopy(source, offset, bytes, length, copied);
+            length += copied;
+            truncated |= copied < count;
+            return this;
+        }
+
+        /**
+         * Hands the entry over to the writer thread, it must not be touched afterwards. Call it in a {@code finally}
+         * block: until then the writer waits for the entry and its slot is not handed out again.
+         */
+        public void publish() {
+            published = sequence;
+        }
+
+        private void put(byte b) {
+            if (length < bytes.length) {
+                bytes[length++] = b;
+            } else {
+                truncated = true;
+            }
+        }
+
+        private void writeTo(OutputStream stream) {
+            try {
+                stream.write(bytes, 0, length);
+                if (truncated) {
+                    stream.write(ELLIPSIS);
+                }
+                stream.write('\n');
+            } catch (IOException ignored) {
+                // nowhere to report it
+            }
+        }
+    }
+}
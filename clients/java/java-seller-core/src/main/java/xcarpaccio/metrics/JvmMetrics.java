@@ -0,0 +1,104 @@
+package xcarpaccio.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocation and garbage collection figures of the JVM, in the Prometheus text format.
+ * <p>
+ * Allocation is measured on the young generation, where objects are allocated: every collection reports how full
+ * it was before, which is what was allocated since the previous collection left it, plus what is in it now.
+ * Objects large enough to be allocated straight in the old generation are missed.
+ */
+final class JvmMetrics implements NotificationListener {
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final MemoryPoolMXBean eden;
+
+    // written by the JMX notification thread only
+    private volatile long allocatedBeforeLastCollection;
+    private volatile long edenAfterLastCollection;
+
+    private JvmMetrics(MemoryPoolMXBean eden) {
+        this.eden = eden;
+    }
+
+    static JvmMetrics start() {
+        MemoryPoolMXBean eden = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().endsWith("Eden Space")) {
+                eden = pool;
+            }
+        }
+        JvmMetrics metrics = new JvmMetrics(eden);
+        if (eden != null) {
+            for (GarbageCollectorMXBean collector : metrics.collectors) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(metrics, null, null);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+        Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+        MemoryUsage edenBefore = before.get(eden.getName());
+        MemoryUsage edenAfter = after.get(eden.getName());
+        if (edenBefore == null || edenAfter == null) {
+            return;
+        }
+        allocatedBeforeLastCollection += Math.max(0, edenBefore.getUsed() - edenAfterLastCollection);
+        edenAfterLastCollection = edenAfter.getUsed();
+    }
+
+    /**
+     * @return bytes allocated in the young generation since the JVM started, or -1 when it cannot tell
+     */
+    long allocatedBytes() {
+        if (eden == null) {
+            return -1;
+        }
+        return allocatedBeforeLastCollection + Math.max(0, eden.getUsage().getUsed() - edenAfterLastCollection);
+    }
+
+    void append(StringBuilder out) {
+        long allocated = allocatedBytes();
+        if (allocated >= 0) {
+            out.append("# HELP jvm_allocated_bytes_total Bytes allocated in the young generation.\n")
+                    .append("# TYPE jvm_allocated_bytes_total counter\n")
+                    .append("jvm_allocated_bytes_total ").append(allocated).append('\n');
+        }
+        out.append("# HELP jvm_gc_collections_total Garbage collections, by collector.\n")
+                .append("# TYPE jvm_gc_collections_total counter\n");
+        for (GarbageCollectorMXBean collector : collectors) {
+            out.append("jvm_gc_collections_total{gc=\"").append(collector.getName()).append("\"} ")
+                    .append(Math.max(0, collector.getCollectionCount())).append('\n');
+        }
+        out.append("# HELP jvm_gc_collection_seconds_total Time spent in garbage collections, by collector.\n")
+                .append("# TYPE jvm_gc_collection_seconds_total counter\n");
+        for (GarbageCollectorMXBean collector : collectors) {
+            out.append("jvm_gc_collection_seconds_total{gc=\"").append(collector.getName()).append("\"} ")
+                    .append(Math.max(0, collector.getCollectionTime()) / 1000.0).append('\n');
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        out.append("# HELP jvm_memory_heap_used_bytes Heap in use.\n")
+                .append("# TYPE jvm_memory_heap_used_bytes gauge\n")
+                .append("jvm_memory_heap_used_bytes ").append(heap.getUsed()).append('\n');
+    }
+}
@@ -0,0 +1,249 @@
+package xcarpaccio.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request metrics of a seller, rendered in the Prometheus text format by {@link #scrape()}.
+ * <p>
+ * Everything is recorded into {@link LongAdder}s, which are striped per thread under contention,
+ * so request threads never wait on each other to record and recording does not allocate.
+ * <pre>
+ * Metrics.Route route = metrics.route("/order");
+ * long start = route.begin();
+ * ...
+ * route.end(start, 200);
+ * </pre>
+ * Routes are the endpoints the clients share, any other path is recorded as {@code other}
+ * so that a scan of random URLs cannot blow up the number of series.
+ * <p>
+ * A server with several acceptors gives each one metrics of its own and renders their sum with
+ * {@link #scrape(List)}.
+ */
+public final class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] ROUTES = {"/", "/order", "/feedback", "/ping", "/rules", "/metrics", "/stats/earnings", "/ready", "other"};
+
+    // upper bounds of the latency buckets, the game server gives up after a few seconds
+    private static final String[] BUCKET_LABELS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5",
+            "1", "2.5", "5"
+    };
+    // status codes 100 to 599, 0 for any other
+    private static final int STATUSES = 600;
+    private static final long[] BUCKET_NANOS = new long[BUCKET_LABELS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            BUCKET_NANOS[i] = Math.round(Double.parseDouble(BUCKET_LABELS[i]) * 1e9);
+        }
+    }
+
+    private static volatile Metrics shared;
+
+    private final Route[] routes = new Route[ROUTES.length];
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final JvmMetrics jvm;
+
+    public Metrics() {
+        this(null);
+    }
+
+    Metrics(JvmMetrics jvm) {
+        for (int i = 0; i < ROUTES.length; i++) {
+            routes[i] = new Route(ROUTES[i]);
+        }
+        this.jvm = jvm;
+    }
+
+    /**
+     * @return the process wide metrics, including the JVM's allocation and garbage collections
+     */
+    public static Metrics shared() {
+        Metrics metrics = shared;
+        if (metrics == null) {
+            synchronized (Metrics.class) {
+                metrics = shared;
+                if (metrics == null) {
+                    metrics = new Metrics(JvmMetrics.start());
+                    shared = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @param path the request path, a trailing slash is ignored
+     */
+    public Route route(String path) {
+        int length = path != null ? path.length() : 0;
+        if (length > 1 && path.charAt(length - 1) == '/') {
+            length--;
+        }
+        for (Route route : routes) {
+            String name = route.name;
+            if (name.length() == length && path.regionMatches(0, name, 0, length)) {
+                return route;
+            }
+        }
+        return routes[routes.length - 1];
+    }
+
+    /**
+     * Counts an order the seller chose not to price, the decline rate is this count over the orders received.
+     */
+    public void declined() {
+        declined.increment();
+    }
+
+    /**
+     * Counts an order declined by the admission control, which is counted as declined too.
+     */
+    public void shed() {
+        declined.increment();
+        shed.increment();
+    }
+
+    public String scrape() {
+        return scrape(Collections.singletonList(this));
+    }
+
+    /**
+     * @return the sum of {@code metrics}, with the JVM metrics of the first one that has them
+     */
+    public static String scrape(List<Metrics> metrics) {
+        StringBuilder out = new StringBuilder(8192);
+        out.append("# HELP seller_http_requests_total Requests answered, by route and status code.\n")
+                .append("# TYPE seller_http_requests_total counter\n");
+        for (int route = 0; route < ROUTES.length; route++) {
+            appendStatuses(out, metrics, route);
+        }
+        out.append("# HELP seller_http_requests_in_flight Requests being answered.\n")
+                .append("# TYPE seller_http_requests_in_flight gauge\n");
+        for (int route = 0; route < ROUTES.length; route++) {
+            long inFlight = 0;
+            for (Metrics m : metrics) {
+                inFlight += m.routes[route].inFlight.sum();
+            }
+            sample(out, "seller_http_requests_in_flight", ROUTES[route], null, inFlight);
+        }
+        out.append("# HELP seller_http_request_duration_seconds Time to answer a request, by route.\n")
+                .append("# TYPE seller_http_request_duration_seconds histogram\n");
+        for (int route = 0; route < ROUTES.length; route++) {
+            appendHistogram(out, metrics, route);
+        }
+        long declined = 0;
+        long shed = 0;
+        JvmMetrics jvm = null;
+        for (Metrics m : metrics) {
+            declined += m.declined.sum();
+            shed += m.shed.sum();
+            if (jvm == null) {
+                jvm = m.jvm;
+            }
+        }
+        out.append("# HELP seller_orders_declined_total Orders the seller chose not to price.\n")
+                .append("# TYPE seller_orders_declined_total counter\n")
+                .append("seller_orders_declined_total ").append(declined).append('\n');
+        out.append("# HELP seller_orders_shed_total Orders declined because they would not be answered within the budget.\n")
+                .append("# TYPE seller_orders_shed_total counter\n")
+                .append("seller_orders_shed_total ").append(shed).append('\n');
+        if (jvm != null) {
+            jvm.append(out);
+        }
+        return out.toString();
+    }
+
+    private static void appendStatuses(StringBuilder out, List<Metrics> metrics, int route) {
+        for (int status = 0; status < STATUSES; status++) {
+            long count = 0;
+            boolean seen = false;
+            for (Metrics m : metrics) {
+                LongAdder counter = m.routes[route].statuses.get(status);
+                if (counter != null) {
+                    count += counter.sum();
+                    seen = true;
+                }
+            }
+            if (seen) {
+                sample(out, "seller_http_requests_total", ROUTES[route], "status=\"" + (status == 0 ? "unknown" : status) + '"', count);
+            }
+        }
+    }
+
+    private static void appendHistogram(StringBuilder out, List<Metrics> metrics, int route) {
+        long cumulated = 0;
+        long sumNanos = 0;
+        for (int i = 0; i <= BUCKET_LABELS.length; i++) {
+            for (Metrics m : metrics) {
+                cumulated += m.routes[route].buckets[i].sum();
+            }
+            String bound = i < BUCKET_LABELS.length ? BUCKET_LABELS[i] : "+Inf";
+            sample(out, "seller_http_request_duration_seconds_bucket", ROUTES[route], "le=\"" + bound + '"', cumulated);
+        }
+        for (Metrics m : metrics) {
+            sumNanos += m.routes[route].sumNanos.sum();
+        }
+        out.append("seller_http_request_duration_seconds_sum{route=\"").append(ROUTES[route]).append("\"} ")
+                .append(sumNanos / 1e9).append('\n');
+        sample(out, "seller_http_request_duration_seconds_count", ROUTES[route], null, cumulated);
+    }
+
+    private static void sample(StringBuilder out, String name, String route, String extraLabel, long value) {
+        out.append(name).append("{route=\"").append(route).append('"');
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    public static final class Route {
+        private final String name;
+        private final LongAdder inFlight = new LongAdder();
+        private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(STATUSES);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_NANOS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        Route(String name) {
+            this.name = name;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @return the start time to give back to {@link #end(long, int)}
+         */
+        public long begin() {
+            inFlight.increment();
+            return System.nanoTime();
+        }
+
+        public void end(long start, int status) {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrement();
+            sumNanos.add(elapsed);
+            int bucket = 0;
+            while (bucket < BUCKET_NANOS.length && elapsed > BUCKET_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            status(status).increment();
+        }
+
+        private LongAdder status(int status) {
+            int index = status >= 100 && status < STATUSES ? status : 0;
+            LongAdder counter = statuses.get(index);
+            if (counter == null) {
+                statuses.compareAndSet(index, null, new LongAdder());
+                counter = statuses.get(index);
+            }
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package xcarpaccio.pricing;
+
+import java.util.Arrays;
+
+/**
+ * The 28 european countries the game server picks orders from, with their default tax.
+ * Countries are referred to by index so that looking up a tax is a plain array access.
+ */
+public final class Country {
+    public static final int UNKNOWN = -1;
+
+    private static final String[] CODES = {
+            "DE", "UK", "FR", "IT", "ES", "PL", "RO", "NL", "BE", "EL", "CZ", "PT", "HU", "SE",
+            "AT", "BG", "DK", "FI", "SK", "IE", "HR", "LT", "SI", "LV", "EE", "CY", "LU", "MT"
+    };
+    private static final double[] TAXES = {
+            1.2, 1.21, 1.2, 1.25, 1.19, 1.21, 1.2, 1.2, 1.24, 1.2, 1.19, 1.23, 1.27, 1.23,
+            1.22, 1.21, 1.21, 1.17, 1.18, 1.21, 1.23, 1.23, 1.24, 1.2, 1.22, 1.21, 1.25, 1.2
+    };
+
+    // two upper case letters -> country index, UNKNOWN otherwise
+    private static final byte[] INDEX = new byte[26 * 26];
+
+    static {
+        Arrays.fill(INDEX, (byte) UNKNOWN);
+        for (int i = 0; i < CODES.length; i++) {
+            INDEX[slot(CODES[i].charAt(0), CODES[i].charAt(1))] = (byte) i;
+        }
+    }
+
+    private Country() {
+    }
+
+    public static int count() {
+        return CODES.length;
+    }
+
+    /**
+     * @return the index of the country, or {@link #UNKNOWN}
+     */
+    public static int indexOf(CharSequence code) {
+        if (code == null || code.length() != 2) {
+            return UNKNOWN;
+        }
+        int slot = slot(code.charAt(0), code.charAt(1));
+        return slot < 0 ? UNKNOWN : INDEX[slot];
+    }
+
+    /**
+     * Looks the code up in the bytes of a request, without making a string of it.
+     *
+     * @return the index of the country, or {@link #UNKNOWN}
+     */
+    public static int indexOf(byte[] bytes, int offset, int length) {
+        if (length != 2) {
+            return UNKNOWN;
+        }
+        int slot = slot((char) bytes[offset], (char) bytes[offset + 1]);
+        return slot < 0 ? UNKNOWN : INDEX[slot];
+    }
+
+    public static String code(int index) {
+        return CODES[index];
+    }
+
+    /**
+     * @return the factor the server multiplies the subtotal by, e.g. 1.2 for 20%
+     */
+    public static double tax(int index) {
+        return TAXES[index];
+    }
+
+    private static int slot(char first, char second) {
+        int row = first - 'A';
+        int column = second - 'A';
+        if (row < 0 || row >= 26 || column < 0 || column >= 26) {
+            return -1;
+        }
+        return row * 26 + column;
+    }
+}
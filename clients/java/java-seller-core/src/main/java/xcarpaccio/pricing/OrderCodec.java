@@ -0,0 +1,541 @@
+package xcarpaccio.pricing;
+
+import xcarpaccio.json.JsonNumber;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes orders straight from the request bytes and encodes {@code {"total":...}} straight into bytes.
+ * It only knows the carpaccio schema (prices, quantities, country, reduction), unknown fields are skipped.
+ * <p>
+ * The schema is checked while parsing: a body that is not an object with the four fields, an array of numbers for
+ * prices, of integers for quantities as many as the prices, and a two letter country, is rejected on the first byte
+ * that gives it away, without building anything and without throwing. The server expects a 400 for such orders.
+ * Country codes and reductions are looked up in the bytes and set as constants, an order of a known country and
+ * reduction allocates no string. An order of an unknown country or reduction is decoded, it cannot be priced.
+ * <p>
+ * Buffers are reused between calls, so keep one instance per thread.
+ */
+public class OrderCodec {
+    private static final byte[] PRICES = "prices".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUANTITIES = "quantities".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COUNTRY = "country".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REDUCTION = "reduction".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOTAL_PREFIX = "{\"total\":".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * The longest {@code {"total":...}} written by {@link #encode(double, byte[], int)}.
+     */
+    public static final int MAX_ENCODED_LENGTH = TOTAL_PREFIX.length + JsonNumber.MAX_LENGTH + 1;
+
+    // fields seen in the order, all of them are required
+    private static final int SEEN_PRICES = 1;
+    private static final int SEEN_QUANTITIES = 2;
+    private static final int SEEN_COUNTRY = 4;
+    private static final int SEEN_REDUCTION = 8;
+    private static final int SEEN_ALL = SEEN_PRICES | SEEN_QUANTITIES | SEEN_COUNTRY | SEEN_REDUCTION;
+
+    // every power of ten up to 1e22 is exactly representable as a double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private byte[] buffer = new byte[1024];
+    private int buffered;
+    // the bytes being decoded, the buffer or the caller's array
+    private byte[] body;
+    private int start;
+    private int end;
+    private int position;
+    private int seen;
+    // the last number parsed, so that parsing returns whether it succeeded
+    private double number;
+    private String rejection;
+    private int rejectedAt;
+
+    private final PrimitiveOrder order = new PrimitiveOrder();
+    private final byte[] encoded = new byte[MAX_ENCODED_LENGTH];
+
+    /**
+     * Reads the whole stream, then decodes it like {@link #decode(byte[], int, int)}.
+     *
+     * @return the decoded order, the same instance is refilled by the next call, or {@code null} when the body is
+     * not a valid order
+     * @throws IOException only when reading the stream fails
+     */
+    public PrimitiveOrder decode(InputStream in) throws IOException {
+        read(in);
+        return decode(buffer, 0, buffered);
+    }
+
+    /**
+     * Reads the whole stream into {@link #body()} without decoding it, for servers that time the read apart, then
+     * {@code decode(body(), 0, bodyLength())} decodes it.
+     *
+     * @return the number of bytes read
+     */
+    public int read(InputStream in) throws IOException {
+        buffered = 0;
+        int read;
+        while ((read = in.read(buffer, buffered, buffer.length - buffered)) >= 0) {
+            buffered += read;
+            if (buffered == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        return buffered;
+    }
+
+    /**
+     * Decodes {@code count} bytes of {@code source} in place, for servers that already hold the whole body.
+     *
+     * @return the decoded order, the same instance is refilled by the next call, or {@code null} when the body is
+     * not a valid order, see {@link #rejection()}
+     */
+    public PrimitiveOrder decode(byte[] source, int offset, int count) {
+        body = source;
+        start = offset;
+        end = offset + count;
+        position = offset;
+        seen = 0;
+        rejection = null;
+        order.reset();
+        return parseOrder() ? order : null;
+    }
+
+    /**
+     * @return why the last body was rejected, {@code null} when it was not
+     */
+    public String rejection() {
+        return rejection;
+    }
+
+    /**
+     * @return the offset in the body of the byte the last body was rejected on
+     */
+    public int rejectedAt() {
+        return rejectedAt;
+    }
+
+    /**
+     * @return the buffer holding the last body read from a stream, see {@link #bodyLength()}
+     */
+    public byte[] body() {
+        return buffer;
+    }
+
+    public int bodyLength() {
+        return buffered;
+    }
+
+    /**
+     * Writes {@code {"total":<total>}} into {@link #encoded()}.
+     *
+     * @return the number of bytes written
+     */
+    public int encode(double total) {
+        return encode(total, encoded, 0);
+    }
+
+    /**
+     * Writes {@code {"total":<total>}} at {@code offset}, from a pre-encoded prefix and suffix around the total written
+     * by {@link JsonNumber}: the digits of the server's {@code JSON.stringify}, with no allocation. {@code bytes} must
+     * have room for {@link #MAX_ENCODED_LENGTH} bytes from there.
+     *
+     * @return the offset after the last byte written
+     */
+    public static int encode(double total, byte[] bytes, int offset) {
+        System.arraycopy(TOTAL_PREFIX, 0, bytes, offset, TOTAL_PREFIX.length);
+        int end = JsonNumber.write(total, bytes, offset + TOTAL_PREFIX.length);
+        bytes[end] = '}';
+        return end + 1;
+    }
+
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    private boolean parseOrder() {
+        if (!expect('{')) {
+            return false;
+        }
+        if (!consume('}')) {
+            do {
+                skipWhitespace();
+                int keyStart = position + 1;
+                if (!skipString()) {
+                    return false;
+                }
+                int keyLength = position - keyStart - 1;
+                if (!expect(':')) {
+                    return false;
+                }
+                boolean parsed;
+                if (keyEquals(PRICES, keyStart, keyLength)) {
+                    parsed = parsePrices();
+                } else if (keyEquals(QUANTITIES, keyStart, keyLength)) {
+                    parsed = parseQuantities();
+                } else if (keyEquals(COUNTRY, keyStart, keyLength)) {
+                    parsed = parseCountry();
+                } else if (keyEquals(REDUCTION, keyStart, keyLength)) {
+                    parsed = parseReduction();
+                } else {
+                    parsed = skipValue();
+                }
+                if (!parsed) {
+                    return false;
+                }
+            } while (consume(','));
+            if (!expect('}')) {
+                return false;
+            }
+        }
+        if (seen != SEEN_ALL) {
+            return reject("prices, quantities, country and reduction expected");
+        }
+        skipWhitespace();
+        return position == end || reject("end of order expected");
+    }
+
+    private boolean parsePrices() {
+        if (!expect('[')) {
+            return false;
+        }
+        order.startPrices();
+        if (!consume(']')) {
+            do {
+                if (!parseNumber()) {
+                    return false;
+                }
+                order.addPrice(number);
+            } while (consume(','));
+            if (!expect(']')) {
+                return false;
+            }
+        }
+        seen |= SEEN_PRICES;
+        return sameCount();
+    }
+
+    private boolean parseQuantities() {
+        if (!expect('[')) {
+            return false;
+        }
+        order.startQuantities();
+        if (!consume(']')) {
+            do {
+                if (!parseNumber()) {
+                    return false;
+                }
+                int quantity = (int) number;
+                if (quantity != number) {
+                    return reject("integer quantity expected");
+                }
+                order.addQuantity(quantity);
+            } while (consume(','));
+            if (!expect(']')) {
+                return false;
+            }
+        }
+        seen |= SEEN_QUANTITIES;
+        return sameCount();
+    }
+
+    /**
+     * Rejects the order as soon as both lists are read and their lengths differ.
+     */
+    private boolean sameCount() {
+        return (seen & (SEEN_PRICES | SEEN_QUANTITIES)) != (SEEN_PRICES | SEEN_QUANTITIES)
+                || order.pricesCount() == order.quantitiesCount()
+                || reject("as many prices as quantities expected");
+    }
+
+    private boolean parseCountry() {
+        skipWhitespace();
+        int valueStart = position + 1;
+        if (!skipString()) {
+            return false;
+        }
+        int length = position - valueStart - 1;
+        if (length != 2) {
+            return reject("two letter country expected");
+        }
+        int country = Country.indexOf(body, valueStart, length);
+        order.setCountry(country != Country.UNKNOWN ? Country.code(country) : new String(body, valueStart, length, StandardCharsets.UTF_8));
+        seen |= SEEN_COUNTRY;
+        return true;
+    }
+
+    private boolean parseReduction() {
+        skipWhitespace();
+        int valueStart = position + 1;
+        if (!skipString()) {
+            return false;
+        }
+        int length = position - valueStart - 1;
+        Reduction reduction = Reduction.fromLabel(body, valueStart, length);
+        if (reduction != null) {
+            order.setReduction(reduction.label());
+        } else {
+            String value = new String(body, valueStart, length, StandardCharsets.UTF_8);
+            order.setReduction(value.indexOf('\\') >= 0 ? unescape(value) : value);
+        }
+        seen |= SEEN_REDUCTION;
+        return true;
+    }
+
+    /**
+     * Parses the next number into {@link #number}.
+     */
+    private boolean parseNumber() {
+        skipWhitespace();
+        int start = position;
+        boolean negative = position < end && body[position] == '-';
+        if (negative) {
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        while (position < end && isDigit(body[position])) {
+            mantissa = mantissa * 10 + (body[position++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return reject("number expected");
+        }
+        if (position < end && body[position] == '.') {
+            position++;
+            while (position < end && isDigit(body[position])) {
+                mantissa = mantissa * 10 + (body[position++] - '0');
+                digits++;
+                scale++;
+            }
+            if (scale == 0) {
+                return reject("digit expected");
+            }
+        }
+        if (position < end && (body[position] == 'e' || body[position] == 'E')) {
+            position++;
+            if (position < end && (body[position] == '+' || body[position] == '-')) {
+                position++;
+            }
+            int exponentStart = position;
+            while (position < end && isDigit(body[position])) {
+                position++;
+            }
+            if (position == exponentStart) {
+                return reject("digit expected");
+            }
+            number = slowParseNumber(start);
+            return true;
+        }
+        if (digits > MAX_EXACT_DIGITS) {
+            number = slowParseNumber(start);
+            return true;
+        }
+        // mantissa < 2^53 and 10^scale are exact, so the single division is correctly rounded
+        double value = mantissa / POWERS_OF_TEN[scale];
+        number = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * @return the number, whose syntax is already checked so that parsing it cannot fail
+     */
+    private double slowParseNumber(int start) {
+        return Double.parseDouble(new String(body, start, position - start, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Moves past the next string, leaves position after the closing quote. Escapes are checked here so that
+     * {@link #unescape(String)} never sees an invalid one.
+     */
+    private boolean skipString() {
+        if (!expect('"')) {
+            return false;
+        }
+        while (position < end) {
+            byte b = body[position++];
+            if (b == '"') {
+                return true;
+            }
+            if (b == '\\' && !skipEscape()) {
+                return false;
+            }
+        }
+        return reject("unterminated string");
+    }
+
+    private boolean skipEscape() {
+        if (position == end) {
+            return reject("unterminated string");
+        }
+        switch (body[position]) {
+            case '"': case '\\': case '/': case 'b': case 'f': case 'n': case 'r': case 't':
+                position++;
+                return true;
+            case 'u':
+                for (int i = 1; i <= 4; i++) {
+                    if (position + i == end || Character.digit(body[position + i], 16) < 0) {
+                        return reject("four hex digits expected");
+                    }
+                }
+                position += 5;
+                return true;
+            default:
+                return reject("invalid escape");
+        }
+    }
+
+    private boolean skipValue() {
+        skipWhitespace();
+        if (position >= end) {
+            return reject("value expected");
+        }
+        switch (body[position]) {
+            case '"':
+                return skipString();
+            case '{':
+            case '[':
+                return skipNested();
+            case 't':
+                return expectLiteral("true");
+            case 'f':
+                return expectLiteral("false");
+            case 'n':
+                return expectLiteral("null");
+            default:
+                return parseNumber();
+        }
+    }
+
+    private boolean skipNested() {
+        int depth = 0;
+        do {
+            skipWhitespace();
+            if (position >= end) {
+                return reject("unterminated value");
+            }
+            byte b = body[position];
+            if (b == '"') {
+                if (!skipString()) {
+                    return false;
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            position++;
+        } while (depth > 0);
+        return true;
+    }
+
+    private boolean keyEquals(byte[] key, int start, int keyLength) {
+        if (key.length != keyLength) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (body[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean expect(char expected) {
+        if (consume(expected)) {
+            return true;
+        }
+        switch (expected) {
+            case '{': return reject("'{' expected");
+            case '}': return reject("'}' expected");
+            case '[': return reject("'[' expected");
+            case ']': return reject("']' expected");
+            case ':': return reject("':' expected");
+            default: return reject("'\"' expected");
+        }
+    }
+
+    private boolean consume(char expected) {
+        skipWhitespace();
+        if (position < end && body[position] == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean expectLiteral(String literal) {
+        if (position + literal.length() > end) {
+            return reject("literal expected");
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (body[position + i] != literal.charAt(i)) {
+                return reject("literal expected");
+            }
+        }
+        position += literal.length();
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (position < end) {
+            byte b = body[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Records why the order is rejected, a constant message so that rejecting allocates nothing.
+     *
+     * @return false, for the caller to return
+     */
+    private boolean reject(String reason) {
+        rejection = reason;
+        rejectedAt = position - start;
+        return false;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * @param value the content of a string {@link #skipString()} accepted
+     */
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+                case 'n': unescaped.append('\n'); break;
+                case 't': unescaped.append('\t'); break;
+                case 'r': unescaped.append('\r'); break;
+                case 'b': unescaped.append('\b'); break;
+                case 'f': unescaped.append('\f'); break;
+                case 'u':
+                    unescaped.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: unescaped.append(next);
+            }
+        }
+        return unescaped.toString();
+    }
+}
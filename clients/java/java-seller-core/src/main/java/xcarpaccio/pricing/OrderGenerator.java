@@ -0,0 +1,94 @@
+package xcarpaccio.pricing;
+
+import java.util.Random;
+
+/**
+ * Generates orders the way the game server's {@code OrderService.createOrder} does: 1 to 10 items,
+ * prices between 1 and 100 with 2 decimals, quantities between 1 and 10, and countries weighted by population.
+ */
+public class OrderGenerator {
+    // thousands of inhabitants, in the order of Country indexes, as in the server's repositories.js
+    private static final int[] POPULATIONS = {
+            190995, 152741, 151381, 143550, 109023, 90574, 46640, 39842, 26510, 25338, 24755, 24261, 23141, 23047,
+            20254, 16905, 13348, 12903, 12767, 10894, 9952, 6844, 4858, 4656, 3094, 2, 1, 1
+    };
+    private static final int[] CUMULATED_POPULATIONS = new int[POPULATIONS.length];
+    private static final int TOTAL_POPULATION;
+
+    static {
+        int total = 0;
+        for (int i = 0; i < POPULATIONS.length; i++) {
+            total += POPULATIONS[i];
+            CUMULATED_POPULATIONS[i] = total;
+        }
+        TOTAL_POPULATION = total;
+    }
+
+    private final Random random;
+
+    public OrderGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Refills {@code order} with a new random order.
+     */
+    public void next(PrimitiveOrder order, Reduction reduction) {
+        order.reset();
+        int items = 1 + random.nextInt(10);
+        order.startPrices();
+        order.startQuantities();
+        for (int i = 0; i < items; i++) {
+            double price = 1 + random.nextDouble() * 99;
+            order.addPrice(Math.round(price * 100) / 100.0);
+            order.addQuantity(1 + random.nextInt(10));
+        }
+        order.setCountry(Country.code(nextCountry()));
+        order.setReduction(reduction.label());
+    }
+
+    public int nextCountry() {
+        int person = random.nextInt(TOTAL_POPULATION);
+        int low = 0;
+        int high = CUMULATED_POPULATIONS.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (CUMULATED_POPULATIONS[middle] <= person) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the order as the server's {@code JSON.stringify} sends it
+     */
+    public static String toJson(PrimitiveOrder order) {
+        StringBuilder json = new StringBuilder(256).append("{\"prices\":[");
+        for (int i = 0; i < order.pricesCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendNumber(json, order.price(i));
+        }
+        json.append("],\"quantities\":[");
+        for (int i = 0; i < order.quantitiesCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(order.quantity(i));
+        }
+        return json.append("],\"country\":\"").append(order.getCountry())
+                .append("\",\"reduction\":\"").append(order.getReduction()).append("\"}").toString();
+    }
+
+    private static void appendNumber(StringBuilder json, double value) {
+        if (value == (long) value) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package xcarpaccio.pricing;
+
+/**
+ * Computes bills the way the game server does: sum of quantity × price, then the country tax,
+ * then the reduction. Works on primitive arrays and does not allocate.
+ * Taxes come from the {@link PricingRules#current() current rules}, read once per bill, or from the rules given.
+ * <p>
+ * Bills are the server's very doubles, not merely close ones: the same IEEE 754 operations in the same order, the
+ * sum from 0 and left to right, a reduction factor of {@code 1 - rate}. Fixed-point cents or {@code BigDecimal}
+ * would be exact where the server is not, and land on the other side of a half cent now and then; so would a
+ * compensated sum such as {@code DoubleStream.sum()} or a reordered one. {@code PricingDifferentialTest} checks it
+ * against the server's formulas in node.
+ */
+public final class PricingEngine {
+
+    private PricingEngine() {
+    }
+
+    /**
+     * @param length  number of items to read from {@code prices} and {@code quantities}
+     * @param country index returned by {@link Country#indexOf(CharSequence)}
+     */
+    public static double total(double[] prices, int[] quantities, int length, int country, Reduction reduction) {
+        return total(prices, quantities, length, country, reduction, PricingRules.current());
+    }
+
+    /**
+     * @param rules the rules to tax with rather than the current ones
+     */
+    public static double total(double[] prices, int[] quantities, int length, int country, Reduction reduction, PricingRules rules) {
+        // no fused multiply-add nor reordering: each product and partial sum is rounded, as in JavaScript
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += quantities[i] * prices[i];
+        }
+        return reduction.apply(rules.applyTax(country, sum));
+    }
+}
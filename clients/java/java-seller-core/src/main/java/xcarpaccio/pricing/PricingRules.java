@@ -0,0 +1,137 @@
+package xcarpaccio.pricing;
+
+import xcarpaccio.json.Json;
+
+import java.util.Map;
+
+/**
+ * The taxes and reduction of the game, as the server's {@code configuration.json} overrides them.
+ * <p>
+ * Rules are immutable: a change builds a new instance and {@link #install(PricingRules) installs} it with a single
+ * volatile write. Bills read {@link #current()} once, without locking, so they are computed either entirely with the
+ * old rules or entirely with the new ones, and a change never pauses orders.
+ */
+public final class PricingRules {
+    private static final PricingRules DEFAULTS = new PricingRules(new TaxRule[Country.count()], null);
+
+    private static volatile PricingRules current = DEFAULTS;
+
+    // indexed like Country, null for the default tax
+    private final TaxRule[] taxes;
+    private final String reduction;
+
+    private PricingRules(TaxRule[] taxes, String reduction) {
+        this.taxes = taxes;
+        this.reduction = reduction;
+    }
+
+    public static PricingRules defaults() {
+        return DEFAULTS;
+    }
+
+    public static PricingRules current() {
+        return current;
+    }
+
+    /**
+     * @return the rules that were replaced
+     */
+    public static PricingRules install(PricingRules rules) {
+        PricingRules previous = current;
+        current = rules;
+        return previous;
+    }
+
+    /**
+     * Reads rules in the shape of the server's {@code configuration.json}, whose other keys are ignored:
+     * <pre>
+     * {
+     *   "reduction": "STANDARD",
+     *   "taxes": {
+     *     "FR": 1.3,
+     *     "SK": "function(price) { if(price>2000) return price * 1.18; else return price * 1.18; }"
+     *   }
+     * }
+     * </pre>
+     * Countries without a rule keep their default tax.
+     *
+     * @throws IllegalArgumentException when the rules are not valid, nothing is half applied then
+     */
+    public static PricingRules parse(String json) {
+        Object parsed = Json.parse(json);
+        if (!(parsed instanceof Map)) {
+            throw new IllegalArgumentException("Rules must be a JSON object");
+        }
+        Map<?, ?> configuration = (Map<?, ?>) parsed;
+        TaxRule[] taxes = new TaxRule[Country.count()];
+        Object overrides = configuration.get("taxes");
+        if (overrides instanceof Map) {
+            for (Map.Entry<?, ?> tax : ((Map<?, ?>) overrides).entrySet()) {
+                int country = Country.indexOf((String) tax.getKey());
+                if (country == Country.UNKNOWN) {
+                    throw new IllegalArgumentException("Unknown country " + tax.getKey());
+                }
+                Object definition = tax.getValue();
+                if (definition == null || definition.equals(0.0) || definition.equals("")) {
+                    // falsy, the server keeps the default tax
+                    continue;
+                }
+                if (definition instanceof Double) {
+                    taxes[country] = TaxRule.scale((Double) definition);
+                } else if (definition instanceof String) {
+                    taxes[country] = TaxRule.function((String) definition);
+                } else {
+                    throw new IllegalArgumentException("Tax of " + tax.getKey() + " must be a number or a function");
+                }
+            }
+        } else if (overrides != null) {
+            throw new IllegalArgumentException("taxes must be an object");
+        }
+        Object reduction = configuration.get("reduction");
+        if (reduction != null && (!(reduction instanceof String) || Reduction.fromLabel((String) reduction) == null)) {
+            throw new IllegalArgumentException("Unknown reduction " + reduction);
+        }
+        return new PricingRules(taxes, (String) reduction);
+    }
+
+    /**
+     * @return the subtotal with the tax of the country
+     */
+    public double applyTax(int country, double subtotal) {
+        TaxRule rule = taxes[country];
+        return rule == null ? subtotal * Country.tax(country) : rule.apply(subtotal);
+    }
+
+    /**
+     * @return the reduction the server announced, {@code null} when unknown. Orders carry the reduction to apply,
+     * so it is informative only.
+     */
+    public String reduction() {
+        return reduction;
+    }
+
+    /**
+     * @return the rules in the shape {@link #parse(String)} reads, with the overridden taxes only
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128).append("{\"taxes\":{");
+        boolean first = true;
+        for (int i = 0; i < taxes.length; i++) {
+            if (taxes[i] == null) {
+                continue;
+            }
+            Json.appendString(json.append(first ? "" : ","), Country.code(i)).append(':');
+            if (taxes[i].definition() == null) {
+                json.append(taxes[i].apply(1));
+            } else {
+                Json.appendString(json, taxes[i].definition());
+            }
+            first = false;
+        }
+        json.append('}');
+        if (reduction != null) {
+            Json.appendString(json.append(",\"reduction\":"), reduction);
+        }
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,212 @@
+package xcarpaccio.pricing;
+
+import java.util.Arrays;
+
+/**
+ * An order backed by primitive arrays, without one wrapper object per item.
+ * <p>
+ * Decoders either hand over whole arrays ({@link #setPrices(double[])}, as JSON binders do through the setters)
+ * or append items one by one ({@link #addPrice(double)}) into arrays that are kept across {@link #reset()},
+ * so a thread can decode every order into the same instance.
+ */
+public class PrimitiveOrder {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int pricesCount = -1;
+    private int quantitiesCount = -1;
+    private String country;
+    private String reduction;
+
+    /**
+     * Forgets the previous order but keeps the arrays for the next one.
+     */
+    public void reset() {
+        pricesCount = -1;
+        quantitiesCount = -1;
+        country = null;
+        reduction = null;
+    }
+
+    /**
+     * Starts an empty price list, as opposed to a missing one.
+     */
+    public void startPrices() {
+        pricesCount = 0;
+    }
+
+    public void addPrice(double price) {
+        if (pricesCount < 0) {
+            pricesCount = 0;
+        }
+        if (pricesCount == prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(INITIAL_CAPACITY, pricesCount * 2));
+        }
+        prices[pricesCount++] = price;
+    }
+
+    /**
+     * Starts an empty quantity list, as opposed to a missing one.
+     */
+    public void startQuantities() {
+        quantitiesCount = 0;
+    }
+
+    public void addQuantity(int quantity) {
+        if (quantitiesCount < 0) {
+            quantitiesCount = 0;
+        }
+        if (quantitiesCount == quantities.length) {
+            quantities = Arrays.copyOf(quantities, Math.max(INITIAL_CAPACITY, quantitiesCount * 2));
+        }
+        quantities[quantitiesCount++] = quantity;
+    }
+
+    /**
+     * Takes ownership of {@code prices}: it may be written to once the order is reset and refilled.
+     */
+    public void setPrices(double[] prices) {
+        if (prices == null) {
+            pricesCount = -1;
+        } else {
+            this.prices = prices;
+            pricesCount = prices.length;
+        }
+    }
+
+    /**
+     * Takes ownership of {@code quantities}: it may be written to once the order is reset and refilled.
+     */
+    public void setQuantities(int[] quantities) {
+        if (quantities == null) {
+            quantitiesCount = -1;
+        } else {
+            this.quantities = quantities;
+            quantitiesCount = quantities.length;
+        }
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public void setReduction(String reduction) {
+        this.reduction = reduction;
+    }
+
+    /**
+     * @return a copy of the prices, {@code null} when missing; prefer {@link #price(int)} on hot paths
+     */
+    public double[] getPrices() {
+        return pricesCount < 0 ? null : Arrays.copyOf(prices, pricesCount);
+    }
+
+    /**
+     * @return a copy of the quantities, {@code null} when missing; prefer {@link #quantity(int)} on hot paths
+     */
+    public int[] getQuantities() {
+        return quantitiesCount < 0 ? null : Arrays.copyOf(quantities, quantitiesCount);
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getReduction() {
+        return reduction;
+    }
+
+    public boolean hasPrices() {
+        return pricesCount >= 0;
+    }
+
+    public boolean hasQuantities() {
+        return quantitiesCount >= 0;
+    }
+
+    /**
+     * @return the number of items, valid when prices and quantities have the same length
+     */
+    public int size() {
+        return Math.max(pricesCount, 0);
+    }
+
+    public int pricesCount() {
+        return Math.max(pricesCount, 0);
+    }
+
+    public int quantitiesCount() {
+        return Math.max(quantitiesCount, 0);
+    }
+
+    public double price(int index) {
+        return prices[index];
+    }
+
+    public int quantity(int index) {
+        return quantities[index];
+    }
+
+    /**
+     * @return whether every field is present, prices and quantities match, and country and reduction are known
+     */
+    public boolean canBePriced() {
+        return pricesCount >= 0 && pricesCount == quantitiesCount
+                && Country.indexOf(country) != Country.UNKNOWN && Reduction.fromLabel(reduction) != null;
+    }
+
+    /**
+     * @return the bill, only meaningful when {@link #canBePriced()}
+     */
+    public double total() {
+        return total(PricingRules.current());
+    }
+
+    /**
+     * @return the bill taxed with {@code rules}, only meaningful when {@link #canBePriced()}
+     */
+    public double total(PricingRules rules) {
+        return PricingEngine.total(prices, quantities, pricesCount, Country.indexOf(country), Reduction.fromLabel(reduction), rules);
+    }
+
+    /**
+     * Renders the order without intermediate strings, only {@link #toString()} allocates the result.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("prices=");
+        if (pricesCount < 0) {
+            sb.append("null");
+        } else {
+            sb.append('[');
+            for (int i = 0; i < pricesCount; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(prices[i]);
+            }
+            sb.append(']');
+        }
+        sb.append(", quantities=");
+        if (quantitiesCount < 0) {
+            sb.append("null");
+        } else {
+            sb.append('[');
+            for (int i = 0; i < quantitiesCount; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(quantities[i]);
+            }
+            sb.append(']');
+        }
+        sb.append(", country='").append(country).append('\'');
+        sb.append(", reduction='").append(reduction).append('\'');
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(128).append("Order{")).append('}').toString();
+    }
+}
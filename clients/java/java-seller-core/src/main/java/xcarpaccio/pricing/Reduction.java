@@ -0,0 +1,93 @@
+package xcarpaccio.pricing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reductions the game server applies once taxes are added, named as they appear in orders.
+ */
+public enum Reduction {
+    STANDARD("STANDARD") {
+        @Override
+        public double apply(double amount) {
+            for (int i = 0; i < STANDARD_THRESHOLDS.length; i++) {
+                if (STANDARD_THRESHOLDS[i] <= amount) {
+                    return amount * STANDARD_FACTORS[i];
+                }
+            }
+            return amount;
+        }
+    },
+    HALF_PRICE("HALF PRICE") {
+        @Override
+        public double apply(double amount) {
+            return amount / 2;
+        }
+    },
+    PAY_THE_PRICE("PAY THE PRICE") {
+        @Override
+        public double apply(double amount) {
+            return amount;
+        }
+    };
+
+    // highest threshold first, as the server looks for the first step below the amount
+    private static final double[] STANDARD_THRESHOLDS = {50000, 10000, 7000, 5000, 1000};
+    // computed as 1 - rate, like the server does, to get the very same doubles
+    private static final double[] STANDARD_FACTORS = {1 - 0.15, 1 - 0.10, 1 - 0.07, 1 - 0.05, 1 - 0.03};
+
+    // values() clones its array on every call
+    private static final Reduction[] REDUCTIONS = values();
+
+    private final String label;
+    private final byte[] bytes;
+
+    Reduction(String label) {
+        this.label = label;
+        this.bytes = label.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public abstract double apply(double amount);
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * @return the reduction named {@code label} in an order, or {@code null} when unknown
+     */
+    public static Reduction fromLabel(CharSequence label) {
+        if (label == null) {
+            return null;
+        }
+        for (Reduction reduction : REDUCTIONS) {
+            if (reduction.label.contentEquals(label)) {
+                return reduction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks the label up in the bytes of a request, without making a string of it.
+     *
+     * @return the reduction, or {@code null} when unknown
+     */
+    public static Reduction fromLabel(byte[] bytes, int offset, int length) {
+        for (Reduction reduction : REDUCTIONS) {
+            // the labels have different lengths, comparing them settles it for the others
+            if (reduction.bytes.length == length && regionMatches(reduction.bytes, bytes, offset)) {
+                return reduction;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(byte[] label, byte[] bytes, int offset) {
+        for (int i = 0; i < label.length; i++) {
+            if (bytes[offset + i] != label[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,127 @@
+package xcarpaccio.pricing;
+
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.function.Consumer;
+
+/**
+ * Installs the {@link PricingRules} of a file and reinstalls them whenever the file changes, so that a client
+ * follows the server's configuration without being restarted.
+ * <p>
+ * The file is polled by a daemon thread rather than watched, which also works on mounted volumes.
+ * An invalid file is reported and the rules in place are kept.
+ * Configured with the {@code RULES_FILE} (no file by default) and {@code RULES_POLL_MILLIS} (default 1000)
+ * environment variables.
+ */
+public final class RulesFile {
+    private final Path path;
+    private final long pollMillis;
+    private final AsyncLog log;
+    private final Consumer<PricingRules> installer;
+    private FileTime lastModified;
+    private long lastSize = -1;
+    private boolean unreadableReported;
+    private volatile boolean running = true;
+    private Thread poller;
+
+    public RulesFile(Path path, long pollMillis, AsyncLog log) {
+        this(path, pollMillis, log, PricingRules::install);
+    }
+
+    /**
+     * @param installer installs the rules read from the file where they are used, {@link PricingRules#install} by default
+     */
+    public RulesFile(Path path, long pollMillis, AsyncLog log, Consumer<PricingRules> installer) {
+        this.path = path;
+        this.pollMillis = pollMillis;
+        this.log = log;
+        this.installer = installer;
+    }
+
+    /**
+     * Watches {@code RULES_FILE} when it is set.
+     *
+     * @return the started watcher, or {@code null}
+     */
+    public static RulesFile watchFromEnvironment() {
+        return watchFromEnvironment(PricingRules::install);
+    }
+
+    public static RulesFile watchFromEnvironment(Consumer<PricingRules> installer) {
+        String file = System.getenv("RULES_FILE");
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        String poll = System.getenv("RULES_POLL_MILLIS");
+        return new RulesFile(Paths.get(file), poll != null ? Long.parseLong(poll) : 1000, AsyncLog.shared(), installer).start();
+    }
+
+    public RulesFile start() {
+        reloadIfChanged();
+        Thread thread = new Thread(this::poll, "rules-file-poller");
+        thread.setDaemon(true);
+        poller = thread;
+        thread.start();
+        return this;
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = poller;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * @return whether the file changed since the last call and its rules were installed
+     */
+    public boolean reloadIfChanged() {
+        FileTime modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(path);
+            size = Files.size(path);
+        } catch (IOException e) {
+            if (!unreadableReported) {
+                log.error("Rules file " + path + " cannot be read, keeping the current rules: " + e);
+                unreadableReported = true;
+            }
+            lastModified = null;
+            return false;
+        }
+        unreadableReported = false;
+        if (modified.equals(lastModified) && size == lastSize) {
+            return false;
+        }
+        lastModified = modified;
+        lastSize = size;
+        try {
+            PricingRules rules = PricingRules.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            installer.accept(rules);
+            log.log("Rules from " + path + " installed: " + rules.toJson());
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Rules file " + path + " rejected, keeping the current rules: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reloadIfChanged();
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package xcarpaccio.pricing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A tax overridden in the game server's {@code configuration.json}: either a scale factor such as {@code 1.3},
+ * or a JavaScript function of the subtotal such as
+ * {@code "function(price) { if(price>2000) return price * 1.18; else return price * 1.18; }"}.
+ * <p>
+ * Functions are compiled once into a tree of operators, so applying them costs no more than a few arithmetic
+ * operations. The supported JavaScript is what tax rules need: {@code function} and arrow functions of the price,
+ * {@code if}/{@code else} and {@code return}, arithmetic, comparisons, {@code && || !}, {@code ?:} and
+ * {@code Math.round/floor/ceil/abs/min/max}.
+ * <p>
+ * The server passes the subtotal as a one-element array, {@code rule([sum])}, and the rules behave accordingly:
+ * arithmetic and comparisons see the number, but the array is always truthy, never {@code ===} a number, and
+ * {@code +} on it concatenates strings. Rules adding to the raw price are rejected.
+ */
+public final class TaxRule {
+    private static final double UNDEFINED = Double.NaN;
+
+    private final String definition;
+    private final DoubleUnaryOperator rule;
+
+    private TaxRule(String definition, DoubleUnaryOperator rule) {
+        this.definition = definition;
+        this.rule = rule;
+    }
+
+    public static TaxRule scale(double factor) {
+        return new TaxRule(null, price -> price * factor);
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code function} is not a supported JavaScript function
+     */
+    public static TaxRule function(String function) {
+        return new TaxRule(function, new Parser(function).parseFunction());
+    }
+
+    public double apply(double subtotal) {
+        return rule.applyAsDouble(subtotal);
+    }
+
+    /**
+     * @return the JavaScript source, or {@code null} for a scale factor
+     */
+    public String definition() {
+        return definition;
+    }
+
+    private static boolean truthy(double value) {
+        return value != 0 && !Double.isNaN(value);
+    }
+
+    private static double bool(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    /**
+     * JavaScript's {@code Math.round}: halves go up, even negative ones, and {@code floor(x + 0.5)} would round
+     * 0.49999999999999994 up since the addition rounds to 1.
+     */
+    private static double round(double value) {
+        double floor = Math.floor(value);
+        double rounded = value - floor >= 0.5 ? floor + 1 : floor;
+        return rounded == 0 && value < 0 ? -0.0 : rounded;
+    }
+
+    /**
+     * Recursive descent over the tokens, statements are folded into a single expression:
+     * {@code if (c) return a; return b;} becomes {@code c ? a : b}.
+     */
+    private static final class Parser {
+        private final String source;
+        private final List<String> tokens;
+        private int position;
+        private String parameter;
+
+        Parser(String source) {
+            this.source = source;
+            this.tokens = tokenize(source);
+        }
+
+        DoubleUnaryOperator parseFunction() {
+            DoubleUnaryOperator function;
+            if (accept("function")) {
+                if (!peek("(")) {
+                    identifier();
+                }
+                expect("(");
+                parameter = peek(")") ? null : identifier();
+                expect(")");
+                function = block();
+            } else {
+                boolean parenthesized = accept("(");
+                parameter = identifier();
+                if (parenthesized) {
+                    expect(")");
+                }
+                expect("=>");
+                function = peek("{") ? block() : expression().value;
+            }
+            if (position < tokens.size()) {
+                throw error("unexpected " + tokens.get(position));
+            }
+            return function;
+        }
+
+        private DoubleUnaryOperator block() {
+            expect("{");
+            List<Object> statements = new ArrayList<>();
+            while (!accept("}")) {
+                statements.add(statement());
+            }
+            return fold(statements, 0);
+        }
+
+        /**
+         * @return a {@code DoubleUnaryOperator} for {@code return}, an {@code If}, a {@code List} for a block, or
+         * {@code null} for an empty statement
+         */
+        private Object statement() {
+            if (accept(";")) {
+                return null;
+            }
+            if (accept("return")) {
+                DoubleUnaryOperator value = peek(";") || peek("}") ? price -> UNDEFINED : expression().value;
+                accept(";");
+                return value;
+            }
+            if (accept("if")) {
+                expect("(");
+                DoubleUnaryOperator condition = condition(expression());
+                expect(")");
+                Object then = statement();
+                Object otherwise = accept("else") ? statement() : null;
+                return new If(condition, then, otherwise);
+            }
+            if (accept("{")) {
+                List<Object> statements = new ArrayList<>();
+                while (!accept("}")) {
+                    statements.add(statement());
+                }
+                return statements;
+            }
+            throw error("unsupported statement at " + (position < tokens.size() ? tokens.get(position) : "end"));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static DoubleUnaryOperator fold(List<Object> statements, int from) {
+            if (from == statements.size()) {
+                return price -> UNDEFINED;
+            }
+            Object statement = statements.get(from);
+            if (statement == null) {
+                return fold(statements, from + 1);
+            }
+            if (statement instanceof DoubleUnaryOperator) {
+                return (DoubleUnaryOperator) statement;
+            }
+            if (statement instanceof List) {
+                List<Object> flattened = new ArrayList<>((List<Object>) statement);
+                flattened.addAll(statements.subList(from + 1, statements.size()));
+                return fold(flattened, 0);
+            }
+            If branch = (If) statement;
+            DoubleUnaryOperator then = fold(withRest(branch.then, statements, from), 0);
+            DoubleUnaryOperator otherwise = fold(withRest(branch.otherwise, statements, from), 0);
+            DoubleUnaryOperator condition = branch.condition;
+            return price -> truthy(condition.applyAsDouble(price)) ? then.applyAsDouble(price) : otherwise.applyAsDouble(price);
+        }
+
+        private static List<Object> withRest(Object statement, List<Object> statements, int from) {
+            List<Object> list = new ArrayList<>();
+            list.add(statement);
+            list.addAll(statements.subList(from + 1, statements.size()));
+            return list;
+        }
+
+        private Expression expression() {
+            Expression condition = or();
+            if (!accept("?")) {
+                return condition;
+            }
+            DoubleUnaryOperator test = condition(condition);
+            Expression then = expression();
+            expect(":");
+            Expression otherwise = expression();
+            return new Expression(
+                    price -> truthy(test.applyAsDouble(price)) ? then.value.applyAsDouble(price) : otherwise.value.applyAsDouble(price),
+                    then.kind.or(otherwise.kind));
+        }
+
+        private Expression or() {
+            Expression left = and();
+            while (accept("||")) {
+                Expression first = left;
+                DoubleUnaryOperator test = condition(first);
+                Expression second = and();
+                left = new Expression(
+                        price -> truthy(test.applyAsDouble(price)) ? first.value.applyAsDouble(price) : second.value.applyAsDouble(price),
+                        first.kind == Kind.ARRAY ? Kind.ARRAY : first.kind.or(second.kind));
+            }
+            return left;
+        }
+
+        private Expression and() {
+            Expression left = equality();
+            while (accept("&&")) {
+                Expression first = left;
+                DoubleUnaryOperator test = condition(first);
+                Expression second = equality();
+                left = new Expression(
+                        price -> truthy(test.applyAsDouble(price)) ? second.value.applyAsDouble(price) : first.value.applyAsDouble(price),
+                        first.kind == Kind.ARRAY ? second.kind : first.kind.or(second.kind));
+            }
+            return left;
+        }
+
+        /**
+         * {@code ==} converts the array to its only element, {@code ===} compares it to numbers without conversion.
+         */
+        private Expression equality() {
+            Expression left = relational();
+            while (true) {
+                if (accept("===")) {
+                    left = strictEquality(left, relational(), true);
+                } else if (accept("!==")) {
+                    left = strictEquality(left, relational(), false);
+                } else if (accept("==")) {
+                    left = binary(left, relational(), (a, b) -> bool(a == b));
+                } else if (accept("!=")) {
+                    left = binary(left, relational(), (a, b) -> bool(a != b));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Expression strictEquality(Expression left, Expression right, boolean equal) {
+            if (left.kind == Kind.NUMBER && right.kind == Kind.NUMBER) {
+                return binary(left, right, (a, b) -> bool((a == b) == equal));
+            }
+            if (left.kind == Kind.EITHER || right.kind == Kind.EITHER) {
+                throw error("strict equality on a value that may be the price array");
+            }
+            // the array is only strictly equal to itself
+            double result = bool((left.kind == right.kind) == equal);
+            return new Expression(price -> result, Kind.NUMBER);
+        }
+
+        private Expression relational() {
+            Expression left = additive();
+            while (true) {
+                if (accept("<")) {
+                    left = binary(left, additive(), (a, b) -> bool(a < b));
+                } else if (accept("<=")) {
+                    left = binary(left, additive(), (a, b) -> bool(a <= b));
+                } else if (accept(">")) {
+                    left = binary(left, additive(), (a, b) -> bool(a > b));
+                } else if (accept(">=")) {
+                    left = binary(left, additive(), (a, b) -> bool(a >= b));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        /**
+         * {@code +} on the array concatenates strings ({@code [100] + 1} is {@code "1001"}), so it is rejected;
+         * {@code +price + 1} or {@code price * 1 + 1} add numbers.
+         */
+        private Expression additive() {
+            Expression left = multiplicative();
+            while (true) {
+                if (accept("+")) {
+                    Expression right = multiplicative();
+                    if (left.kind != Kind.NUMBER || right.kind != Kind.NUMBER) {
+                        throw error("'+' on the price array concatenates strings, convert it with +" + parameter);
+                    }
+                    left = binary(left, right, (a, b) -> a + b);
+                } else if (accept("-")) {
+                    left = binary(left, multiplicative(), (a, b) -> a - b);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Expression multiplicative() {
+            Expression left = unary();
+            while (true) {
+                if (accept("*")) {
+                    left = binary(left, unary(), (a, b) -> a * b);
+                } else if (accept("/")) {
+                    left = binary(left, unary(), (a, b) -> a / b);
+                } else if (accept("%")) {
+                    left = binary(left, unary(), (a, b) -> a % b);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Expression unary() {
+            if (accept("-")) {
+                DoubleUnaryOperator operand = unary().value;
+                return new Expression(price -> -operand.applyAsDouble(price), Kind.NUMBER);
+            }
+            if (accept("+")) {
+                return new Expression(unary().value, Kind.NUMBER);
+            }
+            if (accept("!")) {
+                DoubleUnaryOperator test = condition(unary());
+                return new Expression(price -> bool(!truthy(test.applyAsDouble(price))), Kind.NUMBER);
+            }
+            return primary();
+        }
+
+        private Expression primary() {
+            if (accept("(")) {
+                Expression inner = expression();
+                expect(")");
+                return inner;
+            }
+            if (position == tokens.size()) {
+                throw error("unexpected end");
+            }
+            String token = tokens.get(position++);
+            if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.') {
+                double constant = Double.parseDouble(token);
+                return new Expression(price -> constant, Kind.NUMBER);
+            }
+            if (token.equals(parameter)) {
+                return new Expression(price -> price, Kind.ARRAY);
+            }
+            switch (token) {
+                case "Math.round":
+                    return unaryCall(TaxRule::round);
+                case "Math.floor":
+                    return unaryCall(Math::floor);
+                case "Math.ceil":
+                    return unaryCall(Math::ceil);
+                case "Math.abs":
+                    return unaryCall(Math::abs);
+                case "Math.min":
+                    return binaryCall(Math::min);
+                case "Math.max":
+                    return binaryCall(Math::max);
+                default:
+                    throw error("unknown identifier " + token);
+            }
+        }
+
+        private Expression unaryCall(DoubleUnaryOperator function) {
+            expect("(");
+            DoubleUnaryOperator argument = expression().value;
+            expect(")");
+            return new Expression(price -> function.applyAsDouble(argument.applyAsDouble(price)), Kind.NUMBER);
+        }
+
+        private Expression binaryCall(DoubleBinaryOperator function) {
+            expect("(");
+            DoubleUnaryOperator first = expression().value;
+            expect(",");
+            DoubleUnaryOperator second = expression().value;
+            expect(")");
+            return new Expression(price -> function.applyAsDouble(first.applyAsDouble(price), second.applyAsDouble(price)), Kind.NUMBER);
+        }
+
+        private static Expression binary(Expression left, Expression right, DoubleBinaryOperator operator) {
+            DoubleUnaryOperator first = left.value;
+            DoubleUnaryOperator second = right.value;
+            return new Expression(price -> operator.applyAsDouble(first.applyAsDouble(price), second.applyAsDouble(price)), Kind.NUMBER);
+        }
+
+        /**
+         * @return an operator whose value is truthy when {@code expression} is; the array is, even {@code [0]}
+         */
+        private DoubleUnaryOperator condition(Expression expression) {
+            switch (expression.kind) {
+                case NUMBER:
+                    return expression.value;
+                case ARRAY:
+                    return price -> 1;
+                default:
+                    throw error("condition on a value that may be the price array");
+            }
+        }
+
+        private String identifier() {
+            if (position == tokens.size() || !Character.isJavaIdentifierStart(tokens.get(position).charAt(0))) {
+                throw error("identifier expected");
+            }
+            return tokens.get(position++);
+        }
+
+        private boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("'" + token + "' expected");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Unsupported tax rule " + source + ": " + message);
+        }
+
+        private static List<String> tokenize(String source) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isDigit(c) || (c == '.' && i + 1 < source.length() && Character.isDigit(source.charAt(i + 1)))) {
+                    int start = i;
+                    while (i < source.length() && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    if (i < source.length() && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+                        i++;
+                        if (i < source.length() && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+                            i++;
+                        }
+                        while (i < source.length() && Character.isDigit(source.charAt(i))) {
+                            i++;
+                        }
+                    }
+                    tokens.add(source.substring(start, i));
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    int start = i;
+                    while (i < source.length() && (Character.isJavaIdentifierPart(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(source.substring(start, i));
+                } else {
+                    String operator = operator(source, i);
+                    tokens.add(operator);
+                    i += operator.length();
+                }
+            }
+            return tokens;
+        }
+
+        private static String operator(String source, int i) {
+            for (String operator : new String[]{"===", "!==", "=>", "==", "!=", "<=", ">=", "&&", "||"}) {
+                if (source.startsWith(operator, i)) {
+                    return operator;
+                }
+            }
+            char c = source.charAt(i);
+            if ("(){};?:<>+-*/%!,".indexOf(c) < 0) {
+                throw new IllegalArgumentException("Unsupported tax rule " + source + ": unexpected '" + c + "'");
+            }
+            return String.valueOf(c);
+        }
+    }
+
+    /**
+     * What an expression evaluates to on the server, which calls the rule with {@code [price]}: the array or a
+     * number. Arithmetic, comparisons and {@code Math} functions convert the array to its only element.
+     */
+    private enum Kind {
+        NUMBER, ARRAY, EITHER;
+
+        Kind or(Kind other) {
+            return this == other ? this : EITHER;
+        }
+    }
+
+    private static final class Expression {
+        final DoubleUnaryOperator value;
+        final Kind kind;
+
+        Expression(DoubleUnaryOperator value, Kind kind) {
+            this.value = value;
+            this.kind = kind;
+        }
+    }
+
+    private static final class If {
+        final DoubleUnaryOperator condition;
+        final Object then;
+        final Object otherwise;
+
+        If(DoubleUnaryOperator condition, Object then, Object otherwise) {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+    }
+}
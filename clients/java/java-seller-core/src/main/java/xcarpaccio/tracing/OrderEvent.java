@@ -0,0 +1,65 @@
+package xcarpaccio.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder event of an order, from the request to the answer, with the time each phase took. Its
+ * duration is the time the client spent on the order, the queue wait comes on top. Committed by {@link OrderTrace}.
+ */
+@Name("xcarpaccio.Order")
+@Label("Order")
+@Category("Extreme Carpaccio")
+@Description("An order of the game server, with the time of each phase of its request")
+@StackTrace(false)
+public final class OrderEvent extends Event {
+    @Label("Country")
+    String country;
+
+    @Label("Reduction")
+    String reduction;
+
+    @Label("Items")
+    int items;
+
+    @Label("Outcome")
+    @Description("priced, declined, rejected, shed or failed")
+    String outcome;
+
+    @Label("Status")
+    int status;
+
+    @Label("Queue Wait")
+    @Description("Waiting for a thread, before the client started on the order")
+    @Timespan
+    long queueWait;
+
+    @Label("Read")
+    @Timespan
+    long read;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+
+    @Label("Validate")
+    @Timespan
+    long validate;
+
+    @Label("Price")
+    @Timespan
+    long price;
+
+    @Label("Encode")
+    @Timespan
+    long encode;
+
+    @Label("Write")
+    @Timespan
+    long write;
+}
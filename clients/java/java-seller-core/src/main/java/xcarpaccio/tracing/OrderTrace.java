@@ -0,0 +1,172 @@
+package xcarpaccio.tracing;
+
+import jdk.jfr.FlightRecorder;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.util.Arrays;
+
+/**
+ * Times the phases of the order of the calling thread and commits them as an {@link OrderEvent}, to find out in a
+ * JDK Flight Recorder recording where the time of a slow order went.
+ * <p>
+ * A client {@link #start() starts} the trace when it takes the order, {@link #mark(Phase) marks} the end of each
+ * phase, the time since the previous mark goes to it, and {@link #end(int) ends} it with the status of the answer.
+ * Without a recording of {@code xcarpaccio.Order} running, {@link #start()} returns an inert trace after a single
+ * check, nothing is timed nor allocated. With one, the trace of the thread is reused, only the event is allocated.
+ * <p>
+ * JDK Flight Recorder requires a JDK 8u262+ or 11+ runtime, the clients run without the events on others.
+ */
+public final class OrderTrace {
+    public enum Phase {
+        READ, DECODE, VALIDATE, PRICE, ENCODE, WRITE
+    }
+
+    public enum Outcome {
+        PRICED, DECLINED, REJECTED, SHED, FAILED;
+
+        private final String label = name().toLowerCase();
+    }
+
+    private static final boolean AVAILABLE = available();
+    // any instance tells whether the event is enabled, that is whether a recording of it runs
+    private static final OrderEvent PROBE = AVAILABLE ? new OrderEvent() : null;
+    private static final OrderTrace OFF = new OrderTrace();
+    private static final ThreadLocal<OrderTrace> TRACES = ThreadLocal.withInitial(OrderTrace::new);
+
+    private final long[] phases = new long[Phase.values().length];
+    // null when the order is not traced
+    private OrderEvent event;
+    private long mark;
+    // when the order was handed to the thread that runs it, 0 when it was not queued
+    private long queuedAt;
+    private long queueWait;
+    private String country;
+    private String reduction;
+    private int items;
+    private Outcome outcome;
+
+    private OrderTrace() {
+    }
+
+    /**
+     * @return whether a recording of {@link OrderEvent} runs
+     */
+    public static boolean enabled() {
+        return AVAILABLE && PROBE.isEnabled();
+    }
+
+    /**
+     * Starts tracing the order of the calling thread.
+     *
+     * @return the trace of the thread, or an inert trace when no recording runs
+     */
+    public static OrderTrace start() {
+        if (!enabled()) {
+            return OFF;
+        }
+        OrderTrace trace = TRACES.get();
+        trace.begin();
+        return trace;
+    }
+
+    /**
+     * @return the trace {@link #start()} returned to the calling thread, for code that cannot be handed it
+     */
+    public static OrderTrace current() {
+        return enabled() ? TRACES.get() : OFF;
+    }
+
+    /**
+     * Tells the trace of the calling thread that its next order waited since {@code queuedAt}, a
+     * {@code System.nanoTime()} taken when the order was queued, only when {@link #enabled()}.
+     */
+    public static void queued(long queuedAt) {
+        if (queuedAt != 0 && enabled()) {
+            TRACES.get().queuedAt = queuedAt;
+        }
+    }
+
+    public boolean recording() {
+        return event != null;
+    }
+
+    /**
+     * Ends {@code phase}, which took the time since the previous mark or the start.
+     */
+    public OrderTrace mark(Phase phase) {
+        if (event != null) {
+            long now = System.nanoTime();
+            phases[phase.ordinal()] += now - mark;
+            mark = now;
+        }
+        return this;
+    }
+
+    /**
+     * Records the country, reduction and number of items of the decoded order, nothing when it is {@code null}.
+     */
+    public OrderTrace order(PrimitiveOrder order) {
+        if (event != null && order != null) {
+            country = order.getCountry();
+            reduction = order.getReduction();
+            items = order.size();
+        }
+        return this;
+    }
+
+    public OrderTrace outcome(Outcome outcome) {
+        if (event != null) {
+            this.outcome = outcome;
+        }
+        return this;
+    }
+
+    /**
+     * Commits the event, unless the recording leaves out orders as short as this one.
+     */
+    public void end(int status) {
+        OrderEvent event = this.event;
+        if (event == null) {
+            return;
+        }
+        this.event = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.country = country;
+            event.reduction = reduction;
+            event.items = items;
+            event.outcome = outcome != null ? outcome.label : null;
+            event.status = status;
+            event.queueWait = queueWait;
+            event.read = phases[Phase.READ.ordinal()];
+            event.decode = phases[Phase.DECODE.ordinal()];
+            event.validate = phases[Phase.VALIDATE.ordinal()];
+            event.price = phases[Phase.PRICE.ordinal()];
+            event.encode = phases[Phase.ENCODE.ordinal()];
+            event.write = phases[Phase.WRITE.ordinal()];
+            event.commit();
+        }
+    }
+
+    private void begin() {
+        event = new OrderEvent();
+        event.begin();
+        mark = System.nanoTime();
+        queueWait = queuedAt != 0 ? mark - queuedAt : 0;
+        queuedAt = 0;
+        Arrays.fill(phases, 0);
+        country = null;
+        reduction = null;
+        items = 0;
+        outcome = null;
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
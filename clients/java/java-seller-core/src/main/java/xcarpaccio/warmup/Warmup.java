@@ -0,0 +1,189 @@
+package xcarpaccio.warmup;
+
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.OrderGenerator;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.pricing.Reduction;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the order path up before the game server's orders go through it: the first orders of a cold JVM load classes
+ * and run interpreted, they are the slowest of the game and the most likely to time out.
+ * <p>
+ * A daemon thread pushes orders generated like the server's {@code OrderService.createOrder}, and a few corrupt ones,
+ * through {@link OrderCodec} and the pricing, the decode, price, encode path of every client, in batches. It stops
+ * when the JIT compiler has not compiled anything for a few batches, or after {@code maxMillis}. The seller answers
+ * during the warm-up, {@code /ready} tells when it is over: a load balancer or the player waits for it before
+ * registering the seller. The time it took and the latency of the first order against the last ones are logged.
+ * Configured with the {@code WARMUP_MILLIS} (default 5000, {@code 0} disables the warm-up) environment variable.
+ */
+public final class Warmup {
+    public static final byte[] READY = "ready".getBytes(StandardCharsets.UTF_8);
+    public static final byte[] WARMING_UP = "warming up".getBytes(StandardCharsets.UTF_8);
+
+    static final int BATCH = 1000;
+    // C2 compiles a method after about 10000 invocations
+    static final int MIN_BATCHES = 20;
+    static final int SETTLED_BATCHES = 3;
+    private static final int BODIES = 256;
+
+    private static volatile Warmup shared;
+
+    private final long maxNanos;
+    private final AsyncLog log;
+    private final byte[][] bodies;
+
+    private volatile boolean ready;
+    private volatile long orders;
+    private volatile long tookNanos;
+    private volatile long firstOrderNanos;
+    private volatile long warmOrderNanos;
+
+    /**
+     * @param maxMillis longest warm-up, {@code 0} for none: the warm-up is then ready at once
+     */
+    public Warmup(long maxMillis, AsyncLog log) {
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.log = log;
+        this.bodies = bodies(BODIES);
+        this.ready = maxMillis <= 0;
+    }
+
+    /**
+     * @return the process wide warm-up, started on first use
+     */
+    public static Warmup shared() {
+        Warmup warmup = shared;
+        if (warmup == null) {
+            synchronized (Warmup.class) {
+                warmup = shared;
+                if (warmup == null) {
+                    String millis = System.getenv("WARMUP_MILLIS");
+                    warmup = new Warmup(millis != null ? Long.parseLong(millis) : 5000, AsyncLog.shared()).start();
+                    shared = warmup;
+                }
+            }
+        }
+        return warmup;
+    }
+
+    public Warmup start() {
+        if (!ready) {
+            Thread thread = new Thread(this::run, "warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return this;
+    }
+
+    /**
+     * Runs the warm-up on the calling thread.
+     */
+    public void run() {
+        if (ready) {
+            return;
+        }
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        OrderCodec codec = new OrderCodec();
+        long start = System.nanoTime();
+        firstOrderNanos = price(codec, bodies[0]);
+        long count = 1;
+        long compilation = monitored ? compiler.getTotalCompilationTime() : 0;
+        int batches = 0;
+        int settled = 0;
+        long batchNanos = 0;
+        while (System.nanoTime() - start < maxNanos) {
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                price(codec, bodies[(int) (count++ % bodies.length)]);
+            }
+            batchNanos = System.nanoTime() - batchStart;
+            batches++;
+            if (monitored) {
+                long compiled = compiler.getTotalCompilationTime();
+                settled = compiled == compilation ? settled + 1 : 0;
+                compilation = compiled;
+            }
+            if (batches >= MIN_BATCHES && (!monitored || settled >= SETTLED_BATCHES)) {
+                break;
+            }
+        }
+        orders = count;
+        warmOrderNanos = batches > 0 ? batchNanos / BATCH : firstOrderNanos;
+        tookNanos = System.nanoTime() - start;
+        ready = true;
+        log.log(String.format("Warm-up: %d orders in %d ms%s, first order %.1f µs, then %.1f µs",
+                count, TimeUnit.NANOSECONDS.toMillis(tookNanos), batches >= MIN_BATCHES && settled >= SETTLED_BATCHES
+                        ? ", compilation settled" : "", firstOrderNanos / 1000.0, warmOrderNanos / 1000.0));
+    }
+
+    public boolean ready() {
+        return ready;
+    }
+
+    /**
+     * @return the answer of {@code /ready}, {@link #READY} or {@link #WARMING_UP}
+     */
+    public byte[] answer() {
+        return ready ? READY : WARMING_UP;
+    }
+
+    /**
+     * @return orders priced during the warm-up
+     */
+    public long orders() {
+        return orders;
+    }
+
+    public long tookNanos() {
+        return tookNanos;
+    }
+
+    /**
+     * @return what the first order of the cold JVM took to be decoded, priced and encoded
+     */
+    public long firstOrderNanos() {
+        return firstOrderNanos;
+    }
+
+    /**
+     * @return what an order of the last batch took on average
+     */
+    public long warmOrderNanos() {
+        return warmOrderNanos;
+    }
+
+    private static long price(OrderCodec codec, byte[] body) {
+        long start = System.nanoTime();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        if (order != null && order.canBePriced()) {
+            codec.encode(order.total());
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Orders of every reduction, and one in sixteen corrupt like those of the server's {@code badRequest} mode.
+     */
+    static byte[][] bodies(int count) {
+        OrderGenerator generator = new OrderGenerator(count);
+        Reduction[] reductions = Reduction.values();
+        PrimitiveOrder order = new PrimitiveOrder();
+        byte[][] bodies = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            generator.next(order, reductions[i % reductions.length]);
+            String json = OrderGenerator.toJson(order);
+            if (i % 16 == 15) {
+                json = i % 32 == 15 ? json.replace("\"quantities\":[", "\"quantities\":[1,") : "{}";
+            }
+            bodies[i] = json.getBytes(StandardCharsets.UTF_8);
+        }
+        return bodies;
+    }
+}
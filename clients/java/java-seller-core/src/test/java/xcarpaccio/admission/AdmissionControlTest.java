@@ -0,0 +1,72 @@
+package xcarpaccio.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void should_admit_every_order_without_budget() {
+        AdmissionControl admission = new AdmissionControl(0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(admission.admit()).isNotEqualTo(AdmissionControl.DECLINED);
+        }
+        assertThat(admission.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_decline_orders_that_would_wait_past_the_budget() {
+        AdmissionControl admission = new AdmissionControl(9, 2);
+        admission.done(admission.admit() - 4 * MILLIS);
+
+        // 4ms each on 2 cores: the 5th order would be answered after 10ms
+        long[] admitted = new long[4];
+        for (int i = 0; i < admitted.length; i++) {
+            admitted[i] = admission.admit();
+            assertThat(admitted[i]).isNotEqualTo(AdmissionControl.DECLINED);
+        }
+        assertThat(admission.admit()).isEqualTo(AdmissionControl.DECLINED);
+
+        admission.done(admitted[0]);
+        assertThat(admission.admit()).isNotEqualTo(AdmissionControl.DECLINED);
+    }
+
+    @Test
+    public void should_admit_orders_while_a_core_is_free() {
+        AdmissionControl admission = new AdmissionControl(10, 2);
+        admission.done(admission.admit() - 50 * MILLIS);
+
+        assertThat(admission.admit()).isNotEqualTo(AdmissionControl.DECLINED);
+        assertThat(admission.admit()).isNotEqualTo(AdmissionControl.DECLINED);
+        assertThat(admission.admit()).isEqualTo(AdmissionControl.DECLINED);
+    }
+
+    @Test
+    public void should_measure_the_service_time_of_an_order_with_a_core_to_itself() {
+        AdmissionControl admission = new AdmissionControl(1000, 1);
+        long first = admission.admit();
+        long second = admission.admit();
+
+        // 2 orders shared the core for 8ms, each needed 4ms
+        admission.done(first - 8 * MILLIS);
+
+        assertThat(admission.estimateNanos(0)).isBetween(4 * MILLIS, 5 * MILLIS);
+        admission.done(second);
+        assertThat(admission.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_count_the_requests_waiting_for_a_thread() {
+        AdmissionControl admission = new AdmissionControl(9, 2);
+        admission.done(admission.admit() - 4 * MILLIS);
+
+        assertThat(admission.admit(3)).isNotEqualTo(AdmissionControl.DECLINED);
+        assertThat(admission.admit(3)).isEqualTo(AdmissionControl.DECLINED);
+    }
+}
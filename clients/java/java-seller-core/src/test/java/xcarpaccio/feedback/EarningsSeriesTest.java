@@ -0,0 +1,97 @@
+package xcarpaccio.feedback;
+
+import org.junit.Test;
+import xcarpaccio.feedback.EarningsSeries.Reason;
+import xcarpaccio.json.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class EarningsSeriesTest {
+
+    private static final long T0 = 1554200130_000L;
+
+    private final EarningsSeries series = new EarningsSeries(4);
+
+    @Test
+    public void should_sum_the_cash_of_each_second() {
+        series.record(T0, Reason.EARNED, 812.5);
+        series.record(T0 + 999, Reason.EARNED, 100);
+        series.record(T0 + 999, Reason.WRONG_BILL, -4.17);
+        series.record(T0 + 1000, Reason.EARNED, 20);
+
+        assertThat(series.earned(T0 / 1000)).isEqualTo(912.5);
+        assertThat(series.lost(T0 / 1000)).isEqualTo(4.17);
+        assertThat(series.messages(T0 / 1000, Reason.EARNED)).isEqualTo(2);
+        assertThat(series.messages(T0 / 1000, Reason.WRONG_BILL)).isEqualTo(1);
+        assertThat(series.earned(T0 / 1000 + 1)).isEqualTo(20.0);
+        assertThat(series.totalEarned()).isEqualTo(932.5);
+        assertThat(series.totalLost()).isEqualTo(4.17);
+    }
+
+    @Test
+    public void should_keep_the_last_seconds_only_and_the_totals_since_the_start() {
+        for (int second = 0; second < 10; second++) {
+            series.record(T0 + second * 1000, Reason.EARNED, second + 1);
+        }
+        series.record(T0, Reason.EARNED, 1000);
+
+        assertThat(series.earned(T0 / 1000)).isZero();
+        assertThat(series.earned(T0 / 1000 + 5)).isZero();
+        assertThat(series.earned(T0 / 1000 + 6)).isEqualTo(7.0);
+        assertThat(series.earned(T0 / 1000 + 9)).isEqualTo(10.0);
+        assertThat(series.totalEarned()).isEqualTo(1055.0);
+    }
+
+    @Test
+    public void should_render_every_second_up_to_now_in_cents() {
+        series.record(T0, Reason.EARNED, 0.1);
+        series.record(T0, Reason.EARNED, 0.2);
+        series.record(T0 + 1000, Reason.BAD_REQUEST_MISSED, -12.5);
+
+        Map<?, ?> json = (Map<?, ?>) Json.parse(series.toJson(T0 + 2500));
+
+        assertThat(json.get("start")).isEqualTo((double) (T0 / 1000));
+        assertThat(json.get("earned")).isEqualTo(Arrays.asList(0.3, 0.0, 0.0));
+        assertThat(json.get("lost")).isEqualTo(Arrays.asList(0.0, 12.5, 0.0));
+        Map<?, ?> messages = (Map<?, ?>) json.get("messages");
+        assertThat(new ArrayList<Object>(messages.keySet())).containsExactly("EARNED", "WRONG_BILL", "NO_BILL", "BAD_REQUEST_MISSED", "OTHER");
+        assertThat(messages.get("EARNED")).isEqualTo(Arrays.asList(2.0, 0.0, 0.0));
+        assertThat(messages.get("BAD_REQUEST_MISSED")).isEqualTo(Arrays.asList(0.0, 1.0, 0.0));
+        assertThat((Double) json.get("totalEarned")).isEqualTo(0.3, offset(0.0));
+        assertThat(json.get("totalLost")).isEqualTo(12.5);
+    }
+
+    @Test
+    public void should_render_the_last_seconds_of_a_long_game() {
+        series.record(T0, Reason.EARNED, 1);
+
+        Map<?, ?> json = (Map<?, ?>) Json.parse(series.toJson(T0 + 3_600_000));
+
+        assertThat(json.get("start")).isEqualTo((double) (T0 / 1000 + 3597));
+        assertThat(json.get("earned")).isEqualTo(Arrays.asList(0.0, 0.0, 0.0, 0.0));
+        assertThat(json.get("totalEarned")).isEqualTo(1.0);
+    }
+
+    @Test
+    public void should_render_an_empty_series_before_any_feedback() {
+        Map<?, ?> json = (Map<?, ?>) Json.parse(series.toJson(T0));
+
+        assertThat(json.get("start")).isEqualTo((double) (T0 / 1000));
+        assertThat(json.get("earned")).isEqualTo(Arrays.asList());
+        assertThat(json.get("totalLost")).isEqualTo(0.0);
+    }
+
+    @Test
+    public void should_tell_the_reason_of_the_server_messages() {
+        assertThat(Reason.of("Hey, bob earned 8.33")).isEqualTo(Reason.EARNED);
+        assertThat(Reason.of("Goddamn, bob replied 8 but right answer was 8.33. 4.17 will be charged.")).isEqualTo(Reason.WRONG_BILL);
+        assertThat(Reason.of("Goddamn, bob has neither sent us a valid bill nor responded 404. 4.17 will be charged.")).isEqualTo(Reason.NO_BILL);
+        assertThat(Reason.of("Hey, bob lose 4.17 because he/she does not know how to handle correctly a bad request")).isEqualTo(Reason.BAD_REQUEST_MISSED);
+        assertThat(Reason.of("\"Total\" is not a number.")).isEqualTo(Reason.OTHER);
+    }
+}
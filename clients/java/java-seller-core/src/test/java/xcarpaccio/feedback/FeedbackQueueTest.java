@@ -0,0 +1,108 @@
+package xcarpaccio.feedback;
+
+import org.junit.Test;
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.offset;
+
+public class FeedbackQueueTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final AsyncLog log = new AsyncLog(64, 1, new PrintStream(out), new PrintStream(out));
+
+    @Test
+    public void should_count_messages_by_kind() throws Exception {
+        FeedbackQueue queue = new FeedbackQueue(16, 60000, log).start();
+
+        queue.offer(json("INFO", "Hey, bob earned 123.45"));
+        queue.offer(json("INFO", "Hey, bob earned 10"));
+        queue.offer(json("ERROR", "Goddamn, bob replied 8 but right answer was 8.33. 4.17 will be charged."));
+        queue.offer("not json".getBytes(StandardCharsets.UTF_8));
+        queue.stop();
+
+        assertThat(queue.received()).isEqualTo(4);
+        assertThat(queue.invalid()).isEqualTo(1);
+        assertThat(queue.counts()).containsOnly(
+                entry("INFO Hey, bob earned #", 2L),
+                entry("ERROR Goddamn, bob replied # but right answer was #. # will be charged.", 1L));
+        assertThat(queue.cash()).isEqualTo(123.45 + 10 - 4.17, offset(1e-9));
+    }
+
+    @Test
+    public void should_log_the_first_message_of_a_kind_then_a_summary() throws Exception {
+        FeedbackQueue queue = new FeedbackQueue(16, 60000, log).start();
+
+        queue.offer(json("INFO", "Hey, bob earned 1"));
+        queue.offer(json("INFO", "Hey, bob earned 2"));
+        queue.stop();
+        log.start().stop();
+
+        String logged = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(logged).contains("[feedback] INFO: Hey, bob earned 1\n");
+        assertThat(logged).doesNotContain("earned 2");
+        assertThat(logged).contains("[feedback] 2 messages, 0 dropped and 0 invalid so far, cash 3.00\n  2 x INFO Hey, bob earned #\n");
+    }
+
+    @Test
+    public void should_record_the_cash_of_each_second() throws Exception {
+        FeedbackQueue queue = new FeedbackQueue(16, 60000, log, new EarningsSeries(60)).start();
+
+        long before = System.currentTimeMillis() / 1000;
+        queue.offer(json("INFO", "Hey, bob earned 8.33"));
+        queue.offer(json("ERROR", "Goddamn, bob replied 8 but right answer was 8.33. 4.17 will be charged."));
+        queue.stop();
+        long after = System.currentTimeMillis() / 1000;
+
+        EarningsSeries earnings = queue.earnings();
+        assertThat(earnings.totalEarned()).isEqualTo(8.33);
+        assertThat(earnings.totalLost()).isEqualTo(4.17);
+        int wrongBills = 0;
+        for (long second = before; second <= after; second++) {
+            wrongBills += earnings.messages(second, EarningsSeries.Reason.WRONG_BILL);
+        }
+        assertThat(wrongBills).isEqualTo(1);
+    }
+
+    @Test
+    public void should_record_the_cash_of_a_sibling_into_the_same_series() throws Exception {
+        FeedbackQueue queue = new FeedbackQueue(16, 60000, log, new EarningsSeries(60)).start();
+        FeedbackQueue sibling = queue.sibling().start();
+
+        queue.offer(json("INFO", "Hey, bob earned 8.33"));
+        sibling.offer(json("INFO", "Hey, bob earned 1.67"));
+        queue.stop();
+        sibling.stop();
+
+        assertThat(sibling.earnings()).isSameAs(queue.earnings());
+        assertThat(queue.earnings().totalEarned()).isEqualTo(10.0);
+        assertThat(sibling.received()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_drop_messages_when_the_queue_is_full() {
+        FeedbackQueue queue = new FeedbackQueue(2, 60000, log);
+
+        assertThat(queue.offer(json("INFO", "1"))).isTrue();
+        assertThat(queue.offer(json("INFO", "2"))).isTrue();
+        assertThat(queue.offer(json("INFO", "3"))).isFalse();
+        assertThat(queue.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_read_the_cash_of_the_server_messages() {
+        assertThat(FeedbackQueue.cashOf("Hey, bob earned 8.33")).isEqualTo(8.33);
+        assertThat(FeedbackQueue.cashOf("Goddamn, bob has neither sent us a valid bill nor responded 404. 12.5 will be charged.")).isEqualTo(-12.5);
+        assertThat(FeedbackQueue.cashOf("Hey, bob lose 3.25 because he/she does not know how to handle correctly a bad request")).isEqualTo(-3.25);
+        assertThat(FeedbackQueue.cashOf("\"Total\" is not a number.")).isEqualTo(0.0);
+    }
+
+    private static byte[] json(String type, String content) {
+        return ("{\"type\":\"" + type + "\",\"content\":\"" + content + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
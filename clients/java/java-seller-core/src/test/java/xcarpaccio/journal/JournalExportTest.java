@@ -0,0 +1,51 @@
+package xcarpaccio.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.json.Json;
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalExportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void should_export_one_json_object_per_record() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Journal journal = new Journal(directory, 1 << 16, 16, 0,
+                new AsyncLog(16, 0, new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()))).start();
+        byte[] corrupt = "{\"prices\":[3.5".getBytes(StandardCharsets.UTF_8);
+        byte[] feedback = "{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}".getBytes(StandardCharsets.UTF_8);
+        journal.order(corrupt, 0, corrupt.length, 400, corrupt, 0, 0, 1500);
+        journal.feedback(feedback, 0, feedback.length);
+        journal.stop();
+
+        StringWriter out = new StringWriter();
+        assertThat(JournalExport.export(new JournalReader(directory), out)).isEqualTo(2);
+
+        String[] lines = out.toString().split("\n");
+        assertThat(lines).hasSize(2);
+        Map<?, ?> order = (Map<?, ?>) Json.parse(lines[0]);
+        assertThat(order.get("type")).isEqualTo("order");
+        assertThat(order.get("status")).isEqualTo(400.0);
+        assertThat(order.get("latencyNanos")).isEqualTo(1500.0);
+        assertThat(order.get("body")).isEqualTo("{\"prices\":[3.5");
+        assertThat(order.get("answer")).isEqualTo("");
+        assertThat((String) order.get("time")).matches("\\d{4}-\\d\\d-\\d\\dT.*Z");
+        Map<?, ?> message = (Map<?, ?>) Json.parse(lines[1]);
+        assertThat(message.get("type")).isEqualTo("feedback");
+        assertThat(message.get("body")).isEqualTo("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}");
+        assertThat(message.containsKey("answer")).isFalse();
+    }
+}
@@ -0,0 +1,156 @@
+package xcarpaccio.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalTest {
+
+    private static final byte[] ORDER = bytes("{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+    private static final byte[] TOTAL = bytes("{\"total\":8.33}");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AsyncLog log = new AsyncLog(16, 0, new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()));
+
+    @Test
+    public void should_read_back_orders_and_feedback_in_order() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Journal journal = new Journal(directory, 1 << 16, 16, 0, log).start();
+        byte[] feedback = bytes("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}");
+
+        assertThat(journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 41000)).isTrue();
+        assertThat(journal.feedback(feedback, 0, feedback.length)).isTrue();
+        assertThat(journal.order(bytes("{}"), 0, 2, 400, TOTAL, 0, 0, 900)).isTrue();
+        journal.stop();
+
+        List<JournalReader.Record> records = readAll(directory);
+        assertThat(journal.written()).isEqualTo(3);
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).type()).isEqualTo(Journal.ORDER);
+        assertThat(records.get(0).status()).isEqualTo(200);
+        assertThat(records.get(0).latencyNanos()).isEqualTo(41000);
+        assertThat(records.get(0).body()).isEqualTo(ORDER);
+        assertThat(records.get(0).answer()).isEqualTo(TOTAL);
+        assertThat(records.get(0).time()).isGreaterThan(0);
+        assertThat(records.get(1).type()).isEqualTo(Journal.FEEDBACK);
+        assertThat(records.get(1).body()).isEqualTo(feedback);
+        assertThat(records.get(1).answer()).isEmpty();
+        assertThat(records.get(2).status()).isEqualTo(400);
+        assertThat(records.get(2).answer()).isEmpty();
+    }
+
+    @Test
+    public void should_roll_to_a_new_segment_when_one_is_full() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Journal journal = new Journal(directory, 256, 16, 0, log).start();
+
+        for (int i = 0; i < 10; i++) {
+            journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, i);
+        }
+        journal.stop();
+
+        assertThat(JournalReader.segments(directory)).hasSize(5);
+        List<JournalReader.Record> records = readAll(directory);
+        assertThat(records).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(records.get(i).latencyNanos()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void should_append_new_segments_after_the_existing_ones() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Journal first = new Journal(directory, 1 << 16, 16, 0, log).start();
+        first.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 1);
+        first.stop();
+        Journal second = new Journal(directory, 1 << 16, 16, 0, log).start();
+        second.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 2);
+        second.stop();
+
+        assertThat(JournalReader.segments(directory)).extracting(segment -> segment.getFileName().toString())
+                .containsExactly("00000001.journal", "00000002.journal");
+        assertThat(readAll(directory)).extracting(JournalReader.Record::latencyNanos).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void should_stop_reading_at_a_record_cut_short() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Journal journal = new Journal(directory, 1 << 16, 16, 0, log).start();
+        journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 1);
+        journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 2);
+        journal.stop();
+
+        // what a crash while writing the second record leaves: its bytes but not its length
+        Path segment = JournalReader.segments(directory).get(0);
+        int secondRecord = Journal.HEADER_SIZE + readAll(directory).get(0).body().length + TOTAL.length
+                + Journal.RECORD_HEADER_SIZE + Journal.ORDER_HEADER_SIZE;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), secondRecord);
+        }
+
+        assertThat(readAll(directory)).extracting(JournalReader.Record::latencyNanos).containsExactly(1L);
+    }
+
+    @Test
+    public void should_drop_records_when_the_ring_is_full() {
+        Journal journal = new Journal(folder.getRoot().toPath(), 1 << 16, 2, 0, log);
+
+        assertThat(journal.feedback(ORDER, 0, ORDER.length)).isTrue();
+        assertThat(journal.feedback(ORDER, 0, ORDER.length)).isTrue();
+        assertThat(journal.feedback(ORDER, 0, ORDER.length)).isFalse();
+        assertThat(journal.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_drop_records_larger_than_a_segment() {
+        Journal journal = new Journal(folder.getRoot().toPath(), 64, 16, 0, log);
+
+        assertThat(journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 1)).isFalse();
+        assertThat(journal.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_record_nothing_when_disabled() throws Exception {
+        Journal journal = Journal.disabled().start();
+
+        assertThat(journal.enabled()).isFalse();
+        assertThat(journal.order(ORDER, 0, ORDER.length, 200, TOTAL, 0, TOTAL.length, 1)).isFalse();
+        assertThat(journal.feedback(ORDER, 0, ORDER.length)).isFalse();
+        assertThat(journal.dropped()).isZero();
+        journal.stop();
+    }
+
+    @Test(expected = IOException.class)
+    public void should_refuse_a_file_that_is_not_a_segment() throws Exception {
+        new JournalReader(folder.newFile("orders.journal").toPath()).next();
+    }
+
+    static List<JournalReader.Record> readAll(Path journal) throws IOException {
+        JournalReader reader = new JournalReader(journal);
+        List<JournalReader.Record> records = new ArrayList<>();
+        for (JournalReader.Record record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
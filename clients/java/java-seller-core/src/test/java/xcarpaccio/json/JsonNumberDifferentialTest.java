@@ -0,0 +1,145 @@
+package xcarpaccio.json;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Writes doubles with {@link JsonNumber} and with {@code JSON.stringify} in node, and expects the very same text.
+ * Skipped without node; {@code -Djson.differential.numbers=10000000} checks more numbers.
+ */
+public class JsonNumberDifferentialTest {
+    private static final int NUMBERS = Integer.getInteger("json.differential.numbers", 200_000);
+
+    @BeforeClass
+    public static void require_node() {
+        assumeTrue("node is needed to run JSON.stringify", nodeVersion() != null);
+    }
+
+    @Test
+    public void should_write_any_double_like_json_stringify() throws Exception {
+        Random random = new Random(42);
+        double[] numbers = new double[NUMBERS];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = Double.longBitsToDouble(random.nextLong());
+        }
+
+        assertThat(mismatches(numbers)).isEmpty();
+    }
+
+    /**
+     * Bills, cents with the error of a few operations, integers around 2^53, powers of ten around the bounds of the
+     * exponent notation, powers of two, subnormals.
+     */
+    @Test
+    public void should_write_bills_and_edge_cases_like_json_stringify() throws Exception {
+        Random random = new Random(7);
+        double[] numbers = new double[NUMBERS];
+        for (int i = 0; i < numbers.length; i++) {
+            switch (i % 8) {
+                case 0:
+                    numbers[i] = random.nextInt(10_000_000) / 100.0;
+                    break;
+                case 1:
+                    numbers[i] = random.nextInt(100_000) / 100.0 * (1 + random.nextInt(50)) * 1.2 * (1 - 0.03);
+                    break;
+                case 2:
+                    numbers[i] = Math.nextUp((1L << 53) - 1000 + random.nextInt(2000));
+                    break;
+                case 3:
+                    numbers[i] = Math.pow(10, random.nextInt(50) - 25) * (random.nextBoolean() ? 1 : random.nextDouble());
+                    break;
+                case 4:
+                    numbers[i] = Math.scalb(1.0, random.nextInt(2098) - 1074);
+                    break;
+                case 5:
+                    numbers[i] = Double.longBitsToDouble(random.nextLong() & 0x000FFFFFFFFFFFFFL);
+                    break;
+                case 6:
+                    numbers[i] = Math.nextDown(Math.scalb(1.0, random.nextInt(2046) - 1022));
+                    break;
+                default:
+                    numbers[i] = random.nextInt(1000);
+            }
+        }
+
+        assertThat(mismatches(numbers)).isEmpty();
+    }
+
+    /**
+     * @return the numbers written differently, at most 10
+     */
+    private static List<String> mismatches(double[] numbers) throws Exception {
+        Process node = new ProcessBuilder("node", script()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        Thread writer = new Thread(() -> {
+            try (Writer in = new BufferedWriter(new OutputStreamWriter(node.getOutputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+                for (double number : numbers) {
+                    String bits = Long.toHexString(Double.doubleToRawLongBits(number));
+                    for (int pad = bits.length(); pad < 16; pad++) {
+                        in.write('0');
+                    }
+                    in.write(bits);
+                    in.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "differential-writer");
+        writer.start();
+
+        List<String> mismatches = new ArrayList<>();
+        byte[] bytes = new byte[JsonNumber.MAX_LENGTH];
+        int written = 0;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+            String expected;
+            while ((expected = out.readLine()) != null) {
+                String actual = new String(bytes, 0, JsonNumber.write(numbers[written], bytes, 0), StandardCharsets.US_ASCII);
+                if (!actual.equals(expected) && mismatches.size() < 10) {
+                    mismatches.add(Double.toString(numbers[written]) + ": " + actual + " instead of " + expected);
+                }
+                written++;
+            }
+        }
+        writer.join();
+        assertThat(node.waitFor(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(node.exitValue()).isZero();
+        assertThat(written).isEqualTo(numbers.length);
+        return mismatches;
+    }
+
+    private static String script() throws URISyntaxException {
+        return new File(JsonNumberDifferentialTest.class.getResource("stringify.js").toURI()).getPath();
+    }
+
+    private static String nodeVersion() {
+        try {
+            Process node = new ProcessBuilder("node", "--version").redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.US_ASCII))) {
+                String version = out.readLine();
+                return node.waitFor() == 0 ? version : null;
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
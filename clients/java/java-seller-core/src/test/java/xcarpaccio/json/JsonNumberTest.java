@@ -0,0 +1,78 @@
+package xcarpaccio.json;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonNumberTest {
+    private final byte[] bytes = new byte[JsonNumber.MAX_LENGTH + 4];
+
+    @Test
+    public void should_write_bills_with_their_shortest_digits() {
+        assertThat(write(8.33)).isEqualTo("8.33");
+        assertThat(write(15.99 * 1.19 / 2)).isEqualTo("9.51405");
+        assertThat(write(0.1 + 0.2)).isEqualTo("0.30000000000000004");
+        assertThat(write(1234.5)).isEqualTo("1234.5");
+        assertThat(write(-42.05)).isEqualTo("-42.05");
+    }
+
+    @Test
+    public void should_write_integers_without_a_fraction() {
+        assertThat(write(14.0)).isEqualTo("14");
+        assertThat(write(1e7)).isEqualTo("10000000");
+        assertThat(write(9007199254740993.0)).isEqualTo("9007199254740992");
+        assertThat(write(1e20)).isEqualTo("100000000000000000000");
+        assertThat(write(123e18)).isEqualTo("123000000000000000000");
+    }
+
+    @Test
+    public void should_write_zeros_like_javascript() {
+        assertThat(write(0.0)).isEqualTo("0");
+        assertThat(write(-0.0)).isEqualTo("0");
+        assertThat(write(0.000001)).isEqualTo("0.000001");
+        assertThat(write(0.0000012)).isEqualTo("0.0000012");
+        assertThat(write(-0.0000012345678901234567)).isEqualTo("-0.0000012345678901234567").hasSize(JsonNumber.MAX_LENGTH);
+    }
+
+    @Test
+    public void should_switch_to_exponents_beyond_javascript_bounds() {
+        assertThat(write(1e21)).isEqualTo("1e+21");
+        assertThat(write(1.5e300)).isEqualTo("1.5e+300");
+        assertThat(write(1e-7)).isEqualTo("1e-7");
+        assertThat(write(-1.25e-7)).isEqualTo("-1.25e-7");
+        assertThat(write(Double.MAX_VALUE)).isEqualTo("1.7976931348623157e+308");
+        assertThat(write(Double.MIN_VALUE)).isEqualTo("5e-324");
+        assertThat(write(-Double.MIN_NORMAL)).isEqualTo("-2.2250738585072014e-308");
+    }
+
+    @Test
+    public void should_write_the_shortest_digits_where_double_to_string_of_jdk_8_does_not() {
+        // Double.toString of a JDK 8 runtime writes 2.0E-3 as 0.0020 and 1.0E23 as 1.0E23 but 2e23 with 17 digits
+        assertThat(write(2e-3)).isEqualTo("0.002");
+        assertThat(write(2e23)).isEqualTo("2e+23");
+        assertThat(write(5.0E-324 * 3)).isEqualTo("1.5e-323");
+    }
+
+    @Test
+    public void should_write_null_for_what_json_cannot_hold() {
+        assertThat(write(Double.NaN)).isEqualTo("null");
+        assertThat(write(Double.POSITIVE_INFINITY)).isEqualTo("null");
+        assertThat(write(Double.NEGATIVE_INFINITY)).isEqualTo("null");
+    }
+
+    @Test
+    public void should_write_at_the_offset_given() {
+        bytes[0] = '[';
+        int end = JsonNumber.write(8.33, bytes, 1);
+        bytes[end++] = ']';
+
+        assertThat(new String(bytes, 0, end, StandardCharsets.US_ASCII)).isEqualTo("[8.33]");
+    }
+
+    private String write(double value) {
+        int end = JsonNumber.write(value, bytes, 0);
+        return new String(bytes, 0, end, StandardCharsets.US_ASCII);
+    }
+}
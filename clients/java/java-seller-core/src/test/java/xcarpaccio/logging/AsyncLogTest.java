@@ -0,0 +1,116 @@
+package xcarpaccio.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncLogTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    public void should_write_messages_in_order_from_the_writer_thread() throws Exception {
+        AsyncLog log = new AsyncLog(8, 1, new PrintStream(out), new PrintStream(err)).start();
+
+        log.log("first");
+        byte[] body = "{\"prices\":[1.5]}".getBytes(StandardCharsets.UTF_8);
+        log.info().append("POST /order ").append(body, 0, body.length).publish();
+        log.info().append("items: ").append(12).append(' ').append("café").publish();
+        log.error("oops");
+        log.stop();
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("first\nPOST /order {\"prices\":[1.5]}\nitems: 12 café\n");
+        assertThat(new String(err.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("oops\n");
+    }
+
+    @Test
+    public void should_drop_and_count_messages_when_the_ring_is_full() throws Exception {
+        AsyncLog log = new AsyncLog(4, 1, new PrintStream(out), new PrintStream(err));
+
+        for (int i = 0; i < 10; i++) {
+            log.log("message " + i);
+        }
+        assertThat(log.dropped()).isEqualTo(6);
+
+        log.start().stop();
+        assertThat(out.toString()).isEqualTo("message 0\nmessage 1\nmessage 2\nmessage 3\n");
+        assertThat(err.toString()).contains("6 messages dropped");
+    }
+
+    @Test
+    public void should_wait_for_an_entry_that_is_published_late() throws Exception {
+        AsyncLog log = new AsyncLog(4, 1, new PrintStream(out), new PrintStream(err)).start();
+        AsyncLog.Entry slow = log.info();
+        Thread stalled = new Thread(() -> {
+            slow.append("slow ");
+            try {
+                Thread.sleep(1500);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            slow.append("order").publish();
+        });
+        stalled.start();
+
+        for (int i = 0; i < 6; i++) {
+            log.log("message " + i);
+        }
+        stalled.join();
+        log.stop();
+
+        assertThat(out.toString()).isEqualTo("slow order\nmessage 0\nmessage 1\nmessage 2\n");
+        assertThat(log.dropped()).isEqualTo(3);
+    }
+
+    @Test
+    public void should_write_what_was_appended_before_a_failure() throws Exception {
+        AsyncLog log = new AsyncLog(4, 1, new PrintStream(out), new PrintStream(err)).start();
+
+        AsyncLog.Entry entry = log.info();
+        try {
+            entry.append("POST /order ").append(new byte[2], 1, 4);
+        } catch (IndexOutOfBoundsException expected) {
+            // the body was shorter than claimed
+        } finally {
+            entry.publish();
+        }
+        log.log("next");
+        log.stop();
+
+        assertThat(out.toString()).isEqualTo("POST /order \nnext\n");
+        assertThat(log.dropped()).isZero();
+    }
+
+    @Test
+    public void should_sample_one_order_in_n() {
+        AsyncLog log = new AsyncLog(4, 3, new PrintStream(out), new PrintStream(err));
+
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            sampled += log.sampleOrder() ? 1 : 0;
+        }
+
+        assertThat(sampled).isEqualTo(3);
+        assertThat(new AsyncLog(4, 0, System.out, System.err).sampleOrder()).isFalse();
+    }
+
+    @Test
+    public void should_truncate_long_messages() throws Exception {
+        AsyncLog log = new AsyncLog(4, 1, new PrintStream(out), new PrintStream(err)).start();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            message.append('x');
+        }
+
+        log.log(message.toString());
+        log.stop();
+
+        assertThat(out.toString()).hasSize(1024 + "...\n".length()).endsWith("x...\n");
+    }
+}
@@ -0,0 +1,93 @@
+package xcarpaccio.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void should_count_requests_by_route_and_status() {
+        metrics.route("/order").end(metrics.route("/order").begin(), 200);
+        metrics.route("/order/").end(metrics.route("/order/").begin(), 200);
+        metrics.route("/order").end(metrics.route("/order").begin(), 400);
+
+        assertThat(metrics.scrape())
+                .contains("seller_http_requests_total{route=\"/order\",status=\"200\"} 2\n")
+                .contains("seller_http_requests_total{route=\"/order\",status=\"400\"} 1\n")
+                .contains("seller_http_request_duration_seconds_count{route=\"/order\"} 3\n")
+                .contains("seller_http_request_duration_seconds_bucket{route=\"/order\",le=\"+Inf\"} 3\n")
+                .doesNotContain("seller_http_requests_total{route=\"/ping\"");
+    }
+
+    @Test
+    public void should_put_latencies_in_cumulated_buckets() {
+        Metrics.Route route = metrics.route("/ping");
+        long now = System.nanoTime();
+        route.begin();
+        route.end(now - 2000000, 200); // at least 2ms ago
+        route.begin();
+        route.end(now, 200);
+
+        String scraped = metrics.scrape();
+        assertThat(scraped).contains("seller_http_request_duration_seconds_bucket{route=\"/ping\",le=\"0.001\"} 1\n");
+        assertThat(scraped).contains("seller_http_request_duration_seconds_bucket{route=\"/ping\",le=\"5\"} 2\n");
+    }
+
+    @Test
+    public void should_track_requests_in_flight() {
+        Metrics.Route route = metrics.route("/");
+        long start = route.begin();
+        route.begin();
+        route.end(start, 200);
+
+        assertThat(metrics.scrape()).contains("seller_http_requests_in_flight{route=\"/\"} 1\n");
+    }
+
+    @Test
+    public void should_sum_the_metrics_of_several_acceptors() {
+        Metrics other = new Metrics();
+        metrics.route("/order").end(metrics.route("/order").begin(), 200);
+        other.route("/order").end(other.route("/order").begin(), 200);
+        other.route("/order").end(other.route("/order").begin(), 400);
+        other.route("/order").begin();
+        other.shed();
+
+        assertThat(Metrics.scrape(Arrays.asList(metrics, other)))
+                .contains("seller_http_requests_total{route=\"/order\",status=\"200\"} 2\n")
+                .contains("seller_http_requests_total{route=\"/order\",status=\"400\"} 1\n")
+                .contains("seller_http_requests_in_flight{route=\"/order\"} 1\n")
+                .contains("seller_http_request_duration_seconds_count{route=\"/order\"} 3\n")
+                .contains("seller_orders_shed_total 1\n");
+    }
+
+    @Test
+    public void should_record_unknown_paths_as_other() {
+        assertThat(metrics.route("/wp-admin")).isSameAs(metrics.route("other"));
+        assertThat(metrics.route(null)).isSameAs(metrics.route("other"));
+        assertThat(metrics.route("/")).isNotSameAs(metrics.route("other"));
+    }
+
+    @Test
+    public void should_count_declined_orders() {
+        metrics.declined();
+        metrics.shed();
+
+        assertThat(metrics.scrape())
+                .contains("seller_orders_declined_total 2\n")
+                .contains("seller_orders_shed_total 1\n");
+    }
+
+    @Test
+    public void should_report_allocation_and_collections_of_the_jvm() {
+        String scraped = Metrics.shared().scrape();
+
+        assertThat(scraped).contains("# TYPE jvm_gc_collections_total counter\n");
+        assertThat(scraped).contains("jvm_memory_heap_used_bytes ");
+        assertThat(scraped).contains("jvm_allocated_bytes_total ");
+    }
+}
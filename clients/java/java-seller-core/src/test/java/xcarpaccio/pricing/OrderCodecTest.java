@@ -0,0 +1,157 @@
+package xcarpaccio.pricing;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderCodecTest {
+
+    private final OrderCodec codec = new OrderCodec();
+
+    @Test
+    public void should_decode_an_order_into_primitives() throws Exception {
+        PrimitiveOrder order = decode("{\"prices\":[15.99,3.5,100],\"quantities\":[1,2,10],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(order.getPrices()).containsExactly(15.99, 3.5, 100.0);
+        assertThat(order.getQuantities()).containsExactly(1, 2, 10);
+        assertThat(order.getCountry()).isEqualTo("ES");
+        assertThat(order.getReduction()).isEqualTo("STANDARD");
+    }
+
+    @Test
+    public void should_skip_whitespaces_and_unknown_fields() throws Exception {
+        PrimitiveOrder order = decode(" {\n \"names\" : [\"Tea\", {\"a\": [1, true]}] ,\"prices\" : [ 1.5e1 ] , \"quantities\":[ 2 ],"
+                + " \"reduction\": \"HALF PRICE\", \"country\" : \"FR\" , \"valid\": false}\r\n");
+
+        assertThat(order.getPrices()).containsExactly(15.0);
+        assertThat(order.getQuantities()).containsExactly(2);
+        assertThat(order.getCountry()).isEqualTo("FR");
+        assertThat(order.getReduction()).isEqualTo("HALF PRICE");
+    }
+
+    @Test
+    public void should_decode_prices_like_the_jdk() throws Exception {
+        PrimitiveOrder order = decode("{\"prices\":[0.1,99.99,1.005,12345678.123456789],\"quantities\":[1,1,1,1],"
+                + "\"country\":\"FR\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(order.getPrices()).containsExactly(0.1, 99.99, 1.005, 12345678.123456789);
+    }
+
+    @Test
+    public void should_reuse_the_order_between_calls() throws Exception {
+        PrimitiveOrder first = decode("{\"prices\":[1,2,3],\"quantities\":[1,1,1],\"country\":\"FR\",\"reduction\":\"STANDARD\"}");
+        PrimitiveOrder second = decode("{\"prices\":[4],\"quantities\":[2],\"country\":\"DE\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.getPrices()).containsExactly(4.0);
+        assertThat(second.getQuantities()).containsExactly(2);
+        assertThat(second.getCountry()).isEqualTo("DE");
+    }
+
+    @Test
+    public void should_decode_an_order_in_the_middle_of_an_array() throws Exception {
+        String json = "{\"prices\":[2],\"quantities\":[3],\"country\":\"IT\",\"reduction\":\"STANDARD\"}";
+        byte[] request = ("POST /order HTTP/1.1\r\n\r\n" + json + "GET /ping").getBytes(StandardCharsets.US_ASCII);
+
+        PrimitiveOrder order = codec.decode(request, 24, json.length());
+
+        assertThat(order.getPrices()).containsExactly(2.0);
+        assertThat(order.getQuantities()).containsExactly(3);
+    }
+
+    @Test
+    public void should_reject_the_corrupt_orders_of_the_server() throws Exception {
+        String valid = "{\"prices\":[15.99,3.5],\"quantities\":[1,2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}";
+        String[] corrupt = {
+                "{}",
+                "[true,false,true,false,true,false,true,false,true,false,true,false,true,false,true,false,true]",
+                valid.replace("[1,2]", "{\"error\":\"datacenter unreachable\"}"),
+                valid.replace("[1,2]", "[2]"),
+                valid.replace("[15.99,3.5]", "[3.5]"),
+                valid.replace("\"ES\"", "\"Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch\""),
+                valid.replace(",\"country\":\"ES\"", ""),
+                valid.replace("\"prices\":[15.99,3.5],", ""),
+                valid.replace("\"quantities\":[1,2],", ""),
+                valid.replace(",\"reduction\":\"STANDARD\"", ""),
+                "null",
+                valid.replace("[1,2]", "[1,1.5]"),
+                valid + "}",
+                valid.replace("STANDARD", "\\uZZZZ"),
+                valid.replace("STANDARD", "STANDARD\\u00"),
+                valid.replace("STANDARD", "STANDARD\\x"),
+                valid.substring(0, valid.indexOf("STANDARD")) + "\\"
+        };
+
+        assertThat(decode(valid)).isNotNull();
+        for (String order : corrupt) {
+            assertThat(decode(order)).as(order).isNull();
+            assertThat(codec.rejection()).as(order).isNotNull();
+        }
+    }
+
+    @Test
+    public void should_reject_an_order_on_the_first_byte_that_gives_it_away() throws Exception {
+        String order = "{\"country\":\"Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch\",\"prices\":[";
+
+        assertThat(decode(order)).isNull();
+        assertThat(codec.rejection()).isEqualTo("two letter country expected");
+        assertThat(codec.rejectedAt()).isEqualTo(order.indexOf(",\"prices\""));
+
+        String mismatch = "{\"quantities\":[1,2],\"prices\":[3],\"country\":";
+        assertThat(decode(mismatch)).isNull();
+        assertThat(codec.rejection()).isEqualTo("as many prices as quantities expected");
+        assertThat(codec.rejectedAt()).isEqualTo(mismatch.indexOf(",\"country\""));
+    }
+
+    @Test
+    public void should_unescape_a_reduction_and_reject_an_invalid_escape() throws Exception {
+        assertThat(decode("{\"prices\":[1],\"quantities\":[1],\"country\":\"FR\",\"reduction\":\"\\u0048\\u0041\\u004C\\u0046\\tPRICE\"}").getReduction())
+                .isEqualTo("HALF\tPRICE");
+
+        String order = "{\"prices\":[1],\"quantities\":[1],\"country\":\"FR\",\"reduction\":\"\\u00G8\"}";
+        assertThat(decode(order)).isNull();
+        assertThat(codec.rejection()).isEqualTo("four hex digits expected");
+        assertThat(codec.rejectedAt()).isEqualTo(order.indexOf("u00G8"));
+    }
+
+    @Test
+    public void should_decode_an_unknown_country_that_cannot_be_priced() throws Exception {
+        PrimitiveOrder order = decode("{\"prices\":[1],\"quantities\":[1],\"country\":\"US\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(order.getCountry()).isEqualTo("US");
+        assertThat(order.canBePriced()).isFalse();
+        assertThat(codec.rejection()).isNull();
+    }
+
+    @Test
+    public void should_set_known_countries_and_reductions_as_constants() throws Exception {
+        PrimitiveOrder order = decode("{\"prices\":[1],\"quantities\":[1],\"country\":\"SK\",\"reduction\":\"HALF PRICE\"}");
+
+        assertThat(order.getCountry()).isSameAs(Country.code(Country.indexOf("SK")));
+        assertThat(order.getReduction()).isSameAs(Reduction.HALF_PRICE.label());
+    }
+
+    @Test
+    public void should_encode_a_total() {
+        int length = codec.encode(19.03);
+
+        assertThat(new String(codec.encoded(), 0, length, StandardCharsets.US_ASCII)).isEqualTo("{\"total\":19.03}");
+    }
+
+    @Test
+    public void should_encode_a_total_like_the_server_writes_it() {
+        byte[] bytes = new byte[1 + OrderCodec.MAX_ENCODED_LENGTH];
+        int end = OrderCodec.encode(14.0, bytes, 1);
+
+        assertThat(new String(bytes, 1, end - 1, StandardCharsets.US_ASCII)).isEqualTo("{\"total\":14}");
+        assertThat(new String(codec.encoded(), 0, codec.encode(1e7), StandardCharsets.US_ASCII)).isEqualTo("{\"total\":10000000}");
+    }
+
+    private PrimitiveOrder decode(String json) throws IOException {
+        return codec.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,50 @@
+package xcarpaccio.pricing;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderGeneratorTest {
+
+    @Test
+    public void should_generate_orders_like_the_server() {
+        OrderGenerator generator = new OrderGenerator(1);
+        PrimitiveOrder order = new PrimitiveOrder();
+        for (int i = 0; i < 1000; i++) {
+            generator.next(order, Reduction.HALF_PRICE);
+
+            assertThat(order.canBePriced()).isTrue();
+            assertThat(order.size()).isBetween(1, 10);
+            for (int item = 0; item < order.size(); item++) {
+                assertThat(order.price(item)).isBetween(1.0, 100.0);
+                assertThat(Math.round(order.price(item) * 100) / 100.0).isEqualTo(order.price(item));
+                assertThat(order.quantity(item)).isBetween(1, 10);
+            }
+        }
+    }
+
+    @Test
+    public void should_weight_countries_by_population() {
+        OrderGenerator generator = new OrderGenerator(1);
+        int[] hits = new int[Country.count()];
+        for (int i = 0; i < 100000; i++) {
+            hits[generator.nextCountry()]++;
+        }
+
+        assertThat(hits[Country.indexOf("DE")]).isGreaterThan(hits[Country.indexOf("FR")]);
+        assertThat(hits[Country.indexOf("FR")]).isGreaterThan(hits[Country.indexOf("EE")]);
+        assertThat(hits[Country.indexOf("MT")]).isLessThan(5);
+    }
+
+    @Test
+    public void should_render_orders_as_the_server_sends_them() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setPrices(new double[]{15.99, 100});
+        order.setQuantities(new int[]{1, 2});
+        order.setCountry("ES");
+        order.setReduction("STANDARD");
+
+        assertThat(OrderGenerator.toJson(order))
+                .isEqualTo("{\"prices\":[15.99,100],\"quantities\":[1,2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+    }
+}
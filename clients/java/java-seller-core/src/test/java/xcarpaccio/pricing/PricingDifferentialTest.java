@@ -0,0 +1,158 @@
+package xcarpaccio.pricing;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Bills generated orders with {@link PricingEngine} and with the server's formulas in node, and expects the very
+ * same doubles. Skipped without node; {@code -Dpricing.differential.orders=5000000} checks more orders.
+ */
+public class PricingDifferentialTest {
+    private static final int ORDERS = Integer.getInteger("pricing.differential.orders", 100_000);
+    private static final Reduction[] REDUCTIONS = Reduction.values();
+
+    @BeforeClass
+    public static void require_node() {
+        assumeTrue("node is needed to run the server's formulas", nodeVersion() != null);
+    }
+
+    @After
+    public void restore_default_rules() {
+        PricingRules.install(PricingRules.defaults());
+    }
+
+    @Test
+    public void should_bill_like_the_server_with_the_default_taxes() throws Exception {
+        assertThat(mismatches("{}", 42)).isEmpty();
+    }
+
+    @Test
+    public void should_bill_like_the_server_with_overridden_taxes() throws Exception {
+        String taxes = "{\"FR\": 1.3, \"DE\": 0, \"UK\": 1.0000000000000002,"
+                + " \"SK\": \"function(price) { if(price>2000) return price * 1.18; else return price * 1.2; }\","
+                + " \"IT\": \"price => Math.round(price * 1.25 * 100) / 100\","
+                + " \"ES\": \"(price) => price < 1000 ? price * 1.19 : price * 1.1 + 19\"}";
+
+        assertThat(mismatches(taxes, 7)).isEmpty();
+    }
+
+    /**
+     * @return the orders billed differently, at most 10
+     */
+    private static List<String> mismatches(String taxes, long seed) throws Exception {
+        PricingRules.install(PricingRules.parse("{\"taxes\": " + taxes + "}"));
+        Process node = new ProcessBuilder("node", script()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<String> orders = new ArrayList<>(ORDERS);
+        double[] totals = new double[ORDERS];
+        generate(seed, orders, totals);
+
+        Thread writer = new Thread(() -> {
+            try (Writer in = new BufferedWriter(new OutputStreamWriter(node.getOutputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+                in.write(taxes.replace('\n', ' '));
+                in.write('\n');
+                for (String order : orders) {
+                    in.write(order);
+                    in.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "differential-writer");
+        writer.start();
+
+        List<String> mismatches = new ArrayList<>();
+        int billed = 0;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                double expected = Double.longBitsToDouble(Long.parseUnsignedLong(line, 16));
+                double actual = totals[billed];
+                if (Double.doubleToLongBits(actual) != Double.doubleToLongBits(expected) && mismatches.size() < 10) {
+                    mismatches.add(orders.get(billed) + ": " + actual + " instead of " + expected);
+                }
+                billed++;
+            }
+        }
+        writer.join();
+        assertThat(node.waitFor(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(node.exitValue()).isZero();
+        assertThat(billed).isEqualTo(ORDERS);
+        return mismatches;
+    }
+
+    /**
+     * Generates orders like the server, one in 8 with up to 50 times the quantities to reach every reduction step,
+     * with their line for the script and their bill.
+     */
+    private static void generate(long seed, List<String> orders, double[] totals) {
+        OrderGenerator generator = new OrderGenerator(seed);
+        PrimitiveOrder order = new PrimitiveOrder();
+        double[] prices = new double[16];
+        int[] quantities = new int[16];
+        StringBuilder line = new StringBuilder(256);
+        for (int i = 0; i < totals.length; i++) {
+            Reduction reduction = REDUCTIONS[i % REDUCTIONS.length];
+            generator.next(order, reduction);
+            int size = order.size();
+            int factor = i % 8 == 7 ? 1 + i % 50 : 1;
+            for (int item = 0; item < size; item++) {
+                prices[item] = order.price(item);
+                quantities[item] = order.quantity(item) * factor;
+            }
+            totals[i] = PricingEngine.total(prices, quantities, size, Country.indexOf(order.getCountry()), reduction);
+
+            line.setLength(0);
+            line.append(order.getCountry()).append(' ').append(reduction.name()).append(' ');
+            for (int item = 0; item < size; item++) {
+                line.append(item > 0 ? "," : "").append(quantities[item]);
+            }
+            line.append(' ');
+            for (int item = 0; item < size; item++) {
+                String bits = Long.toHexString(Double.doubleToLongBits(prices[item]));
+                line.append(item > 0 ? "," : "");
+                for (int pad = bits.length(); pad < 16; pad++) {
+                    line.append('0');
+                }
+                line.append(bits);
+            }
+            orders.add(line.toString());
+        }
+    }
+
+    private static String script() throws URISyntaxException {
+        return new File(PricingDifferentialTest.class.getResource("server-bill.js").toURI()).getPath();
+    }
+
+    private static String nodeVersion() {
+        try {
+            Process node = new ProcessBuilder("node", "--version").redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.US_ASCII))) {
+                String version = out.readLine();
+                return node.waitFor() == 0 ? version : null;
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
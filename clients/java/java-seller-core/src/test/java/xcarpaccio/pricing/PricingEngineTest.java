@@ -0,0 +1,63 @@
+package xcarpaccio.pricing;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static xcarpaccio.pricing.PricingEngine.total;
+
+public class PricingEngineTest {
+
+    @Test
+    public void should_apply_the_country_tax() {
+        double total = total(new double[]{15.99}, new int[]{1}, 1, Country.indexOf("ES"), Reduction.STANDARD);
+
+        assertThat(total).isEqualTo(15.99 * 1.19);
+    }
+
+    @Test
+    public void should_sum_quantities_times_prices_in_order() {
+        double total = total(new double[]{31.01, 0.1, 0.2}, new int[]{8, 3, 1}, 3, Country.indexOf("IT"), Reduction.PAY_THE_PRICE);
+
+        assertThat(total).isEqualTo((0 + 8 * 31.01 + 3 * 0.1 + 1 * 0.2) * 1.25);
+    }
+
+    @Test
+    public void should_only_read_length_items() {
+        double total = total(new double[]{10, 99}, new int[]{1, 99}, 1, Country.indexOf("DE"), Reduction.PAY_THE_PRICE);
+
+        assertThat(total).isEqualTo(12.0);
+    }
+
+    @Test
+    public void should_apply_standard_reduction_steps() {
+        assertThat(Reduction.STANDARD.apply(999.99)).isEqualTo(999.99);
+        assertThat(Reduction.STANDARD.apply(1000)).isEqualTo(1000 * (1 - 0.03));
+        assertThat(Reduction.STANDARD.apply(5000)).isEqualTo(5000 * (1 - 0.05));
+        assertThat(Reduction.STANDARD.apply(7500)).isEqualTo(7500 * (1 - 0.07));
+        assertThat(Reduction.STANDARD.apply(10000)).isEqualTo(10000 * (1 - 0.10));
+        assertThat(Reduction.STANDARD.apply(60000)).isEqualTo(60000 * (1 - 0.15));
+    }
+
+    @Test
+    public void should_halve_half_price_orders() {
+        assertThat(Reduction.HALF_PRICE.apply(19.03)).isEqualTo(9.515);
+    }
+
+    @Test
+    public void should_find_reductions_by_label() {
+        assertThat(Reduction.fromLabel("HALF PRICE")).isEqualTo(Reduction.HALF_PRICE);
+        assertThat(Reduction.fromLabel("PAY THE PRICE")).isEqualTo(Reduction.PAY_THE_PRICE);
+        assertThat(Reduction.fromLabel("HALF_PRICE")).isNull();
+    }
+
+    @Test
+    public void should_index_the_28_countries() {
+        assertThat(Country.count()).isEqualTo(28);
+        for (int i = 0; i < Country.count(); i++) {
+            assertThat(Country.indexOf(Country.code(i))).isEqualTo(i);
+        }
+        assertThat(Country.indexOf("US")).isEqualTo(Country.UNKNOWN);
+        assertThat(Country.indexOf("fr")).isEqualTo(Country.UNKNOWN);
+        assertThat(Country.indexOf("Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch")).isEqualTo(Country.UNKNOWN);
+    }
+}
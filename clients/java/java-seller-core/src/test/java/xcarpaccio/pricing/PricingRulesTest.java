@@ -0,0 +1,112 @@
+package xcarpaccio.pricing;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PricingRulesTest {
+
+    private static final int SK = Country.indexOf("SK");
+    private static final int FR = Country.indexOf("FR");
+
+    @After
+    public void restore_default_rules() {
+        PricingRules.install(PricingRules.defaults());
+    }
+
+    @Test
+    public void should_read_the_taxes_of_the_server_configuration() {
+        PricingRules rules = PricingRules.parse("{\"active\": true, \"reduction\": \"HALF PRICE\", \"taxes\": {"
+                + "\"SK\": \"function(price) { if(price>2000) return price * 1.18; else return price * 1.2; }\", \"FR\": 1.3}}");
+
+        assertThat(rules.applyTax(SK, 1000)).isEqualTo(1000 * 1.2);
+        assertThat(rules.applyTax(SK, 3000)).isEqualTo(3000 * 1.18);
+        assertThat(rules.applyTax(FR, 100)).isEqualTo(100 * 1.3);
+        assertThat(rules.applyTax(Country.indexOf("DE"), 100)).isEqualTo(100 * 1.2);
+        assertThat(rules.reduction()).isEqualTo("HALF PRICE");
+    }
+
+    @Test
+    public void should_keep_the_default_tax_of_falsy_overrides() {
+        PricingRules rules = PricingRules.parse("{\"taxes\": {\"FR\": 0, \"SK\": \"\"}}");
+
+        assertThat(rules.applyTax(FR, 100)).isEqualTo(100 * 1.2);
+        assertThat(rules.applyTax(SK, 100)).isEqualTo(100 * 1.18);
+    }
+
+    @Test
+    public void should_price_with_the_installed_rules() {
+        double before = PricingEngine.total(new double[]{100}, new int[]{1}, 1, FR, Reduction.PAY_THE_PRICE);
+        PricingRules.install(PricingRules.parse("{\"taxes\": {\"FR\": 2}}"));
+
+        assertThat(before).isEqualTo(120.0);
+        assertThat(PricingEngine.total(new double[]{100}, new int[]{1}, 1, FR, Reduction.PAY_THE_PRICE)).isEqualTo(200.0);
+    }
+
+    @Test
+    public void should_write_the_rules_it_reads() {
+        String json = "{\"taxes\":{\"FR\":1.3,\"SK\":\"price => price * 1.5\"},\"reduction\":\"STANDARD\"}";
+
+        assertThat(PricingRules.parse(json).toJson()).isEqualTo(json);
+        assertThat(PricingRules.defaults().toJson()).isEqualTo("{\"taxes\":{}}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unknown_countries() {
+        PricingRules.parse("{\"taxes\": {\"US\": 1.1}}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unknown_reductions() {
+        PricingRules.parse("{\"reduction\": \"FREE\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_invalid_json() {
+        PricingRules.parse("{\"taxes\": {\"FR\": 1.1}");
+    }
+
+    @Test
+    public void should_compile_javascript_tax_functions() {
+        assertThat(TaxRule.function("function (price) { return price * 1.1 + 2; }").apply(10)).isEqualTo(10 * 1.1 + 2);
+        assertThat(TaxRule.function("function(p) { if (p > 10 && p <= 20) { return p * 2; } return p; }").apply(15)).isEqualTo(30.0);
+        assertThat(TaxRule.function("function(p) { if (p > 10 && p <= 20) { return p * 2; } return p; }").apply(25)).isEqualTo(25.0);
+        assertThat(TaxRule.function("(p) => p < 100 ? p * (1 + 0.2) : Math.round(p * 1.1)").apply(1000.4)).isEqualTo(1100.0);
+        assertThat(TaxRule.function("function(price) { if (price === 0) return 0; }").apply(5)).isNaN();
+    }
+
+    @Test
+    public void should_round_like_javascript() {
+        TaxRule round = TaxRule.function("(p) => Math.round(p)");
+
+        assertThat(round.apply(0.49999999999999994)).isEqualTo(0.0);
+        assertThat(round.apply(2.5)).isEqualTo(3.0);
+        assertThat(round.apply(-2.5)).isEqualTo(-2.0);
+        assertThat(round.apply(-0.2)).isEqualTo(-0.0);
+    }
+
+    @Test
+    public void should_evaluate_the_price_as_the_array_the_server_passes() {
+        assertThat(TaxRule.function("function(price) { if (price === 0) return 0; return 1; }").apply(0)).isEqualTo(1.0);
+        assertThat(TaxRule.function("function(price) { if (price == 0) return 0; return 1; }").apply(0)).isEqualTo(0.0);
+        assertThat(TaxRule.function("(price) => !price").apply(0)).isEqualTo(0.0);
+        assertThat(TaxRule.function("(price) => price || 10").apply(0)).isEqualTo(0.0);
+        assertThat(TaxRule.function("(price) => +price + 1").apply(100)).isEqualTo(101.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_string_concatenation_on_the_price() {
+        TaxRule.function("function(price) { return price + 1; }");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_string_concatenation_on_a_value_that_may_be_the_price() {
+        TaxRule.function("function(price) { return 1 + (price > 10 ? price : 0); }");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unsupported_javascript() {
+        TaxRule.function("function(price) { var tax = 1.2; return price * tax; }");
+    }
+}
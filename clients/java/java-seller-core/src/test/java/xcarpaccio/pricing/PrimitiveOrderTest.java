@@ -0,0 +1,63 @@
+package xcarpaccio.pricing;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrimitiveOrderTest {
+
+    @Test
+    public void should_grow_and_be_reused_after_reset() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        for (int i = 0; i < 40; i++) {
+            order.addPrice(i);
+            order.addQuantity(1);
+        }
+        order.setCountry("DE");
+        order.setReduction("PAY THE PRICE");
+        assertThat(order.size()).isEqualTo(40);
+        assertThat(order.total()).isEqualTo(780 * 1.2);
+
+        order.reset();
+        order.addPrice(10);
+        order.addQuantity(2);
+
+        assertThat(order.getPrices()).containsExactly(10.0);
+        assertThat(order.canBePriced()).isFalse();
+    }
+
+    @Test
+    public void should_tell_missing_from_empty_items() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setCountry("FR");
+        order.setReduction("STANDARD");
+        order.startPrices();
+        assertThat(order.canBePriced()).isFalse();
+
+        order.setQuantities(new int[0]);
+        assertThat(order.canBePriced()).isTrue();
+        assertThat(order.total()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void should_refuse_mismatching_items() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setPrices(new double[]{1, 2});
+        order.setQuantities(new int[]{1});
+        order.setCountry("FR");
+        order.setReduction("STANDARD");
+
+        assertThat(order.canBePriced()).isFalse();
+    }
+
+    @Test
+    public void should_render_like_the_previous_orders() {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setPrices(new double[]{15.99, 3.5});
+        order.setQuantities(new int[]{1, 2});
+        order.setCountry("ES");
+        order.setReduction("STANDARD");
+
+        assertThat(order.toString()).isEqualTo("Order{prices=[15.99, 3.5], quantities=[1, 2], country='ES', reduction='STANDARD'}");
+    }
+}
@@ -0,0 +1,67 @@
+package xcarpaccio.pricing;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.logging.AsyncLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RulesFileTest {
+
+    private static final int FR = Country.indexOf("FR");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    private final AsyncLog log = new AsyncLog(16, 1, new PrintStream(new ByteArrayOutputStream()), new PrintStream(errors));
+
+    @After
+    public void restore_default_rules() {
+        PricingRules.install(PricingRules.defaults());
+    }
+
+    @Test
+    public void should_install_the_rules_of_the_file_when_it_changes() throws Exception {
+        Path path = folder.newFile("rules.json").toPath();
+        RulesFile file = new RulesFile(path, 1000, log);
+        write(path, "{\"taxes\": {\"FR\": 1.5}}", 1000);
+
+        assertThat(file.reloadIfChanged()).isTrue();
+        assertThat(PricingRules.current().applyTax(FR, 100)).isEqualTo(150.0);
+        assertThat(file.reloadIfChanged()).isFalse();
+
+        write(path, "{\"taxes\": {\"FR\": 2}}", 2000);
+        assertThat(file.reloadIfChanged()).isTrue();
+        assertThat(PricingRules.current().applyTax(FR, 100)).isEqualTo(200.0);
+    }
+
+    @Test
+    public void should_keep_the_current_rules_when_the_file_is_invalid() throws Exception {
+        Path path = folder.newFile("rules.json").toPath();
+        RulesFile file = new RulesFile(path, 1000, log);
+        write(path, "{\"taxes\": {\"FR\": 1.5}}", 1000);
+        file.reloadIfChanged();
+
+        write(path, "{\"taxes\": {\"FR\": \"function(price) { return price *; }\"}}", 2000);
+
+        assertThat(file.reloadIfChanged()).isFalse();
+        assertThat(PricingRules.current().applyTax(FR, 100)).isEqualTo(150.0);
+        log.start().stop();
+        assertThat(new String(errors.toByteArray(), StandardCharsets.UTF_8)).contains("rejected, keeping the current rules");
+    }
+
+    private static void write(Path path, String json, long modifiedMillis) throws Exception {
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modifiedMillis));
+    }
+}
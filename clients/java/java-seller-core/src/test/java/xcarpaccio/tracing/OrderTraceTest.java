@@ -0,0 +1,114 @@
+package xcarpaccio.tracing;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PrimitiveOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class OrderTraceTest {
+    private static final byte[] ORDER = "{\"prices\":[3.5,1],\"quantities\":[2,1],\"country\":\"ES\",\"reduction\":\"STANDARD\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void require_flight_recorder() {
+        assumeTrue("JDK Flight Recorder is needed", FlightRecorder.isAvailable());
+    }
+
+    @Test
+    public void should_be_inert_without_a_recording() {
+        OrderTrace trace = OrderTrace.start();
+
+        assertThat(OrderTrace.enabled()).isFalse();
+        assertThat(trace.recording()).isFalse();
+        assertThat(OrderTrace.current()).isSameAs(trace);
+        trace.mark(OrderTrace.Phase.DECODE).outcome(OrderTrace.Outcome.PRICED).end(200);
+    }
+
+    @Test
+    public void should_record_the_phases_of_an_order_with_its_country_items_and_outcome() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(OrderEvent.class);
+            recording.start();
+
+            OrderTrace.queued(System.nanoTime() - 2_000_000);
+            price(OrderTrace.start());
+
+            recording.stop();
+            events = events(recording);
+        }
+
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("country")).isEqualTo("ES");
+        assertThat(event.getString("reduction")).isEqualTo("STANDARD");
+        assertThat(event.getInt("items")).isEqualTo(2);
+        assertThat(event.getString("outcome")).isEqualTo("priced");
+        assertThat(event.getInt("status")).isEqualTo(200);
+        assertThat(event.getDuration("queueWait")).isGreaterThanOrEqualTo(Duration.ofMillis(2));
+        assertThat(event.getDuration("read")).isGreaterThanOrEqualTo(Duration.ofMillis(1));
+        for (String phase : new String[]{"decode", "validate", "price", "encode", "write"}) {
+            assertThat(event.getDuration(phase)).isGreaterThan(Duration.ZERO);
+        }
+        assertThat(event.getDuration()).isGreaterThanOrEqualTo(event.getDuration("read"));
+    }
+
+    @Test
+    public void should_leave_out_orders_quicker_than_the_threshold() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(OrderEvent.class).withThreshold(Duration.ofSeconds(10));
+            recording.start();
+
+            price(OrderTrace.start());
+
+            recording.stop();
+            events = events(recording);
+        }
+
+        assertThat(events).isEmpty();
+    }
+
+    private static void price(OrderTrace trace) throws InterruptedException {
+        assertThat(trace.recording()).isTrue();
+        Thread.sleep(1);
+        trace.mark(OrderTrace.Phase.READ);
+        OrderCodec codec = new OrderCodec();
+        PrimitiveOrder order = codec.decode(ORDER, 0, ORDER.length);
+        trace.mark(OrderTrace.Phase.DECODE).order(order);
+        boolean priced = order.canBePriced();
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        double total = order.total();
+        trace.mark(OrderTrace.Phase.PRICE);
+        codec.encode(total);
+        trace.mark(OrderTrace.Phase.ENCODE);
+        trace.mark(OrderTrace.Phase.WRITE).outcome(priced ? OrderTrace.Outcome.PRICED : OrderTrace.Outcome.DECLINED);
+        OrderTrace.current().end(200);
+    }
+
+    private List<RecordedEvent> events(Recording recording) throws Exception {
+        Path file = folder.newFile("orders.jfr").toPath();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("xcarpaccio.Order"))
+                .collect(Collectors.toList());
+    }
+}
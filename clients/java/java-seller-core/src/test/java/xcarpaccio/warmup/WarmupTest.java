@@ -0,0 +1,70 @@
+package xcarpaccio.warmup;
+
+import org.junit.Test;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.pricing.OrderCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WarmupTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final AsyncLog log = new AsyncLog(16, 1, new PrintStream(out), System.err);
+
+    @Test
+    public void should_not_be_ready_before_warming_up() {
+        Warmup warmup = new Warmup(60000, log);
+
+        assertThat(warmup.ready()).isFalse();
+        assertThat(warmup.answer()).isEqualTo(Warmup.WARMING_UP);
+    }
+
+    @Test
+    public void should_be_ready_after_pricing_orders_and_log_how_long_it_took() throws Exception {
+        Warmup warmup = new Warmup(60000, log);
+
+        warmup.run();
+        log.start().stop();
+
+        assertThat(warmup.ready()).isTrue();
+        assertThat(warmup.answer()).isEqualTo(Warmup.READY);
+        assertThat(warmup.orders()).isGreaterThan((long) Warmup.MIN_BATCHES * Warmup.BATCH);
+        assertThat(warmup.firstOrderNanos()).isPositive();
+        assertThat(warmup.warmOrderNanos()).isPositive();
+        assertThat(out.toString()).startsWith("Warm-up: " + warmup.orders() + " orders in ").contains(", first order ");
+    }
+
+    @Test
+    public void should_stop_warming_up_after_the_longest_time() {
+        Warmup warmup = new Warmup(1, log);
+
+        long start = System.nanoTime();
+        warmup.run();
+
+        assertThat(warmup.ready()).isTrue();
+        assertThat(System.nanoTime() - start).isLessThan(1000000000L);
+    }
+
+    @Test
+    public void should_be_ready_at_once_when_disabled() {
+        Warmup warmup = new Warmup(0, log).start();
+
+        assertThat(warmup.ready()).isTrue();
+        assertThat(warmup.orders()).isZero();
+    }
+
+    @Test
+    public void should_warm_up_with_valid_and_corrupt_orders() {
+        OrderCodec codec = new OrderCodec();
+        int corrupt = 0;
+        for (byte[] body : Warmup.bodies(64)) {
+            if (codec.decode(body, 0, body.length) == null) {
+                corrupt++;
+            }
+        }
+
+        assertThat(corrupt).isEqualTo(4);
+    }
+}
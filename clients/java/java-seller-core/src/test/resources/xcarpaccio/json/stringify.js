@@ -0,0 +1,22 @@
+// Writes JSON.stringify of doubles, as the game server does when it logs and compares totals.
+//
+// Reads one double per line on stdin, the 16 hex digits of the IEEE 754 double, writes its JSON, one per line.
+'use strict'
+
+var readline = require('readline')
+
+var buffer = Buffer.alloc(8)
+var out = []
+
+readline.createInterface({ input: process.stdin }).on('line', function (line) {
+  buffer.write(line, 0, 8, 'hex')
+  out.push(JSON.stringify(buffer.readDoubleBE(0)))
+  if (out.length === 4096) {
+    process.stdout.write(out.join('\n') + '\n')
+    out = []
+  }
+}).on('close', function () {
+  if (out.length > 0) {
+    process.stdout.write(out.join('\n') + '\n')
+  }
+})
@@ -0,0 +1,97 @@
+// Bills orders with the game server's formulas, copied from server/javascripts: services/order.js (bill),
+// services/reduction.js and repositories.js (taxes), without lodash so that it runs on a bare node.
+//
+// Reads the taxes of a configuration.json on the first line of stdin, then one order per line:
+//   <country> <reduction> <quantity>,<quantity>,... <price bits>,<price bits>,...
+// where price bits are the 16 hex digits of the IEEE 754 double. Writes the bits of each total, one per line.
+'use strict'
+
+var readline = require('readline')
+
+var taxFactors = {
+  DE: 1.2, UK: 1.21, FR: 1.2, IT: 1.25, ES: 1.19, PL: 1.21, RO: 1.2, NL: 1.2, BE: 1.24, EL: 1.2,
+  CZ: 1.19, PT: 1.23, HU: 1.27, SE: 1.23, AT: 1.22, BG: 1.21, DK: 1.21, FI: 1.17, SK: 1.18, IE: 1.21,
+  HR: 1.23, LT: 1.23, SI: 1.24, LV: 1.2, EE: 1.22, CY: 1.21, LU: 1.25, MT: 1.2
+}
+
+function scale (factor) {
+  return function (price) { return price * factor }
+}
+
+var standardSteps = [[50000, 0.15], [10000, 0.10], [7000, 0.07], [5000, 0.05], [1000, 0.03]]
+
+function reductionFor (total) {
+  for (var i = 0; i < standardSteps.length; i++) {
+    if (standardSteps[i][0] <= total) {
+      return standardSteps[i][1]
+    }
+  }
+  return 0
+}
+
+var reductions = {
+  'STANDARD': function (amount) { return amount * (1 - reductionFor(amount)) },
+  'HALF PRICE': function (amount) { return amount / 2 },
+  'PAY THE PRICE': function (amount) { return amount }
+}
+
+var taxRules = {}
+
+function readTaxes (line) {
+  var taxes = JSON.parse(line)
+  Object.keys(taxFactors).forEach(function (country) {
+    var def = taxes[country]
+    if (!def) {
+      taxRules[country] = scale(taxFactors[country])
+    } else if (typeof def === 'number') {
+      taxRules[country] = scale(def)
+    } else {
+      taxRules[country] = new Function('return ' + def)() // eslint-disable-line no-new-func
+    }
+  })
+}
+
+var bits = Buffer.alloc(8)
+
+function toDouble (hex) {
+  bits.write(hex, 0, 'hex')
+  return bits.readDoubleBE(0)
+}
+
+function toBits (value) {
+  bits.writeDoubleBE(value, 0)
+  return bits.toString('hex')
+}
+
+function bill (line) {
+  var fields = line.split(' ')
+  var country = fields[0]
+  var reduction = fields[1].replace(/_/g, ' ')
+  var quantities = fields[2].split(',').map(Number)
+  var prices = fields[3].split(',').map(toDouble)
+
+  var sum = quantities
+    .map(function (q, i) { return q * prices[i] })
+    .reduce(function (sum, current) { return sum + current }, 0)
+  // the server hands the subtotal to the rule wrapped in an array
+  sum = taxRules[country]([sum])
+  sum = reductions[reduction](sum)
+  return toBits(sum)
+}
+
+var output = []
+var first = true
+readline.createInterface({ input: process.stdin }).on('line', function (line) {
+  if (first) {
+    readTaxes(line)
+    first = false
+    return
+  }
+  output.push(bill(line))
+  if (output.length === 4096) {
+    process.stdout.write(output.join('\n') + '\n')
+    output = []
+  }
+}).on('close', function () {
+  process.stdout.write(output.length > 0 ? output.join('\n') + '\n' : '')
+})
@@ -1,21 +1,43 @@
 package extremecarpaccio;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import spark.ResponseTransformer;
+import spark.Request;
+import spark.Response;
+import spark.Route;
 import spark.Spark;
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.pricing.RulesFile;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import static spark.Spark.get;
 import static spark.Spark.post;
+import static spark.Spark.put;
 import static spark.SparkBase.port;
 
 public class HttpServer {
-    private static final Logger logger = LoggerFactory.getLogger(HttpServer.class);
+    private static final AsyncLog log = AsyncLog.shared();
+    private static final FeedbackQueue feedback = FeedbackQueue.shared();
+    private static final Metrics metrics = Metrics.shared();
+    private static final AdmissionControl admission = AdmissionControl.shared();
+    private static final Journal journal = Journal.shared();
+    private static final Warmup warmup = Warmup.shared();
+    // the game does not penalise a declined order
+    private static final String DECLINED = "";
+    private static final byte[] NO_ANSWER = {};
+    private static final ThreadLocal<OrderCodec> CODECS = ThreadLocal.withInitial(OrderCodec::new);
 
     public static void main(String[] args) {
+        RulesFile.watchFromEnvironment();
         start(1337);
     }
 
@@ -29,33 +51,145 @@ public class HttpServer {
     }
 
     private static void configureRoutes() {
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        ResponseTransformer asJson = new JsonResponseTransformer(gson);
-
-        get("/ping", (req, res) -> "pong");
-        post("/feedback", (req, res) -> {
-            JsonObject body = gson.fromJson(req.body(), JsonObject.class);
-            String feedbackType = body.get("type").getAsString();
-            String feedbackContent = body.get("content").getAsString();
-
-            if ("ERROR".equals(feedbackType)) {
-                logger.error(feedbackContent);
-            } else {
-                logger.info(feedbackContent);
-            }
+        // one handler for both paths, each path keeps its own metrics
+        Route order = admitted(HttpServer::answerOrder);
 
+        get("/ping", measured("/ping", (req, res) -> "pong"));
+        post("/feedback", measured("/feedback", (req, res) -> {
+            // parsed and logged by the queue's thread, a full queue tells the server to back off
+            byte[] body = req.bodyAsBytes();
+            journal.feedback(body, 0, body.length);
+            if (!feedback.offer(body)) {
+                res.status(503);
+            }
             return "";
-        }, asJson);
-        post("/order", (req, res) -> {
-            JsonObject body = gson.fromJson(req.body(), JsonObject.class);
-            logger.info("Incoming request on '/order': {}", body.entrySet());
-            return "";
-        }, asJson);
-        post("/", (req, res) -> {
-            JsonObject body = gson.fromJson(req.body(), JsonObject.class);
-            logger.info("Incoming request on '/': {}", body.entrySet());
-            return "";
-        }, asJson);
+        }));
+        post("/order", measured("/order", order));
+        get("/rules", measured("/rules", (req, res) -> {
+            res.type("application/json");
+            return PricingRules.current().toJson();
+        }));
+        post("/rules", measured("/rules", HttpServer::installRules));
+        put("/rules", measured("/rules", HttpServer::installRules));
+        get("/metrics", measured("/metrics", (req, res) -> {
+            res.type(Metrics.CONTENT_TYPE);
+            return metrics.scrape();
+        }));
+        get("/stats/earnings", measured("/stats/earnings", (req, res) -> {
+            res.type("application/json");
+            return feedback.earnings().toJson(System.currentTimeMillis());
+        }));
+        get("/ready", measured("/ready", (req, res) -> {
+            // 503 until the warm-up is over
+            if (!warmup.ready()) {
+                res.status(503);
+            }
+            return warmup.answer();
+        }));
+        post("/", measured("/", order));
+    }
+
+    /**
+     * Declines the orders {@link AdmissionControl} would not answer within the budget, before parsing them. Traces
+     * the orders with {@link OrderTrace}, until the route returns: Spark writes the answer after.
+     */
+    private static Route admitted(Route route) {
+        return (req, res) -> {
+            OrderTrace trace = OrderTrace.start();
+            long admitted = admission.admit();
+            if (admitted == AdmissionControl.DECLINED) {
+                metrics.shed();
+                trace.outcome(OrderTrace.Outcome.SHED).end(200);
+                return DECLINED;
+            }
+            try {
+                return route.handle(req, res);
+            } finally {
+                admission.done(admitted);
+                int status = res.raw().getStatus();
+                trace.end(status != 0 ? status : 200);
+            }
+        };
+    }
+
+    /**
+     * Records the requests of {@code route} in the metrics, without the time Spark then takes to write the response.
+     */
+    private static Route measured(String path, Route route) {
+        Metrics.Route measured = metrics.route(path);
+        return (req, res) -> {
+            long start = measured.begin();
+            int status = 500;
+            try {
+                Object body = route.handle(req, res);
+                // 0 until a route sets it, Jetty then answers 200
+                int set = res.raw().getStatus();
+                status = set != 0 ? set : 200;
+                return body;
+            } finally {
+                measured.end(start, status);
+            }
+        };
+    }
+
+    /**
+     * Replaces the pricing rules with rules in the shape of the server's configuration.json.
+     */
+    private static Object installRules(Request req, Response res) {
+        try {
+            PricingRules.install(PricingRules.parse(req.body()));
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            res.status(400);
+            return e.getMessage();
+        }
+        String rules = PricingRules.current().toJson();
+        log.log("Rules installed: " + rules);
+        res.type("application/json");
+        return rules;
+    }
+
+    private static Object answerOrder(Request req, Response res) {
+        long start = System.nanoTime();
+        byte[] body = req.bodyAsBytes();
+        if (log.sampleOrder()) {
+            log.log("Incoming request on '" + req.pathInfo() + "': " + new String(body, StandardCharsets.UTF_8));
+        }
+        OrderTrace.current().mark(OrderTrace.Phase.READ);
+        byte[] answer = bill(body, res);
+        int status = res.raw().getStatus();
+        journal.order(body, 0, body.length, status != 0 ? status : 200, answer, 0, answer.length, System.nanoTime() - start);
+        return answer.length > 0 ? answer : DECLINED;
+    }
+
+    /**
+     * @return the bill, or no answer when the order is declined or rejected
+     */
+    private static byte[] bill(byte[] body, Response res) {
+        OrderTrace trace = OrderTrace.current();
+        OrderCodec codec = CODECS.get();
+        PrimitiveOrder order = codec.decode(body, 0, body.length);
+        trace.mark(OrderTrace.Phase.DECODE).order(order);
+        if (order == null) {
+            // a corrupt order, the server expects a 400
+            res.status(400);
+            trace.outcome(OrderTrace.Outcome.REJECTED);
+            return NO_ANSWER;
+        }
+        boolean priceable = order.canBePriced();
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        if (!priceable) {
+            metrics.declined();
+            trace.outcome(OrderTrace.Outcome.DECLINED);
+            return NO_ANSWER;
+        }
+        double total = order.total();
+        trace.mark(OrderTrace.Phase.PRICE);
+        res.type("application/json");
+        // a byte array is written as it is by Spark
+        byte[] bill = Arrays.copyOf(codec.encoded(), codec.encode(total));
+        trace.mark(OrderTrace.Phase.ENCODE).outcome(OrderTrace.Outcome.PRICED);
+        return bill;
     }
 
 }
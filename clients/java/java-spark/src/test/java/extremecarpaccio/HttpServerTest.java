@@ -2,6 +2,8 @@ package extremecarpaccio;
 
 import org.junit.Rule;
 import org.junit.Test;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.warmup.Warmup;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -23,6 +25,73 @@ public class HttpServerTest {
         assertThat(get("/ping")).isEqualTo("pong");
     }
 
+    @Test
+    public void should_report_ready_once_the_shared_warm_up_is_over() throws Exception {
+        // 503 while warming up, at most WARMUP_MILLIS
+        for (int i = 0; i < 300 && !Warmup.shared().ready(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(get("/ready")).isEqualTo("ready");
+    }
+
+    @Test
+    public void should_answer_the_bill_of_an_order() throws IOException {
+        String body = post(resource.baseURL() + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(body.replaceAll("\\s", "")).isEqualTo("{\"total\":8.33}");
+    }
+
+    @Test
+    public void should_answer_the_bill_compactly_on_both_order_paths() throws IOException {
+        String order = "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}";
+
+        assertThat(post(resource.baseURL() + "/order", order)).isEqualTo("{\"total\":8.33}");
+        assertThat(post(resource.baseURL() + "/", order)).isEqualTo("{\"total\":8.33}");
+    }
+
+    @Test
+    public void should_skip_the_fields_an_order_does_not_need() throws IOException {
+        String body = post(resource.baseURL() + "/order",
+                "{\"id\":{\"seq\":[1,2]},\"prices\":[3.5],\"quantities\":[2],\"names\":null,\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+        assertThat(body).isEqualTo("{\"total\":8.33}");
+    }
+
+    @Test
+    public void should_answer_nothing_to_an_order_that_cannot_be_priced() throws IOException {
+        assertThat(post(resource.baseURL() + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"US\",\"reduction\":\"STANDARD\"}")).isEmpty();
+    }
+
+    @Test
+    public void should_answer_400_to_corrupt_orders() throws IOException {
+        assertThat(postForStatus(resource.baseURL() + "/order", "{\"prices\":[3.5],\"country\":\"ES\"}")).isEqualTo(400);
+        assertThat(postForStatus(resource.baseURL() + "/order", "[true,false,true]")).isEqualTo(400);
+        assertThat(postForStatus(resource.baseURL() + "/", "null")).isEqualTo(400);
+    }
+
+    @Test
+    public void should_price_orders_with_the_posted_rules() throws IOException {
+        try {
+            post(resource.baseURL() + "/rules", "{\"taxes\":{\"ES\":2}}");
+            String body = post(resource.baseURL() + "/order", "{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}");
+
+            assertThat(get("/rules")).isEqualTo("{\"taxes\":{\"ES\":2.0}}");
+            assertThat(body.replaceAll("\\s", "")).isEqualTo("{\"total\":14}");
+        } finally {
+            PricingRules.install(PricingRules.defaults());
+        }
+    }
+
+    @Test
+    public void should_expose_metrics_of_the_answered_requests() throws IOException {
+        get("/ping");
+
+        assertThat(get("/metrics"))
+                .contains("# TYPE seller_http_request_duration_seconds histogram")
+                .contains("seller_http_requests_total{route=\"/ping\",status=\"200\"} ");
+    }
+
     protected String get(String path) throws IOException {
         return get(path, null);
     }
@@ -41,6 +110,27 @@ public class HttpServerTest {
     }
 
     protected String post(String path, String body) throws IOException {
+        HttpURLConnection connection = send(path, body);
+        try {
+            return stringify(connection.getInputStream(), UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return the status code of the response, which may be an error
+     */
+    protected int postForStatus(String path, String body) throws IOException {
+        HttpURLConnection connection = send(path, body);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection send(String path, String body) throws IOException {
         URL url = new URL(path);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setDoOutput(true);
@@ -53,10 +143,8 @@ public class HttpServerTest {
         connection.setUseCaches(false);
         try( DataOutputStream wr = new DataOutputStream( connection.getOutputStream())) {
             wr.write( body.getBytes(UTF_8) );
-            return stringify(connection.getInputStream(), UTF_8);
-        } finally {
-            connection.disconnect();
         }
+        return connection;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package xcarpaccio;
+
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.ConnectionLimit;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import xcarpaccio.logging.AsyncLog;
+
+/**
+ * Applies the {@link ConnectorSettings} to the Jetty connector, after Spring Boot's own {@code server.jetty.*}.
+ */
+@Component
+@Profile("!reactive")
+public class EngineConnector implements WebServerFactoryCustomizer<JettyServletWebServerFactory>, Ordered {
+    // acceptors and selectors run on the pool too, Jetty starts at most 4 selectors by default
+    private static final int SELECTORS = 4;
+
+    private final ConnectorSettings settings;
+
+    public EngineConnector(ConnectorSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void customize(JettyServletWebServerFactory factory) {
+        if (settings.getAcceptors() > 0) {
+            factory.setAcceptors(settings.getAcceptors());
+        }
+        if (settings.getWorkers() > 0) {
+            int acceptors = settings.getAcceptors() > 0 ? settings.getAcceptors() : 4;
+            int threads = settings.getWorkers() + acceptors + SELECTORS;
+            factory.setThreadPool(new QueuedThreadPool(threads, Math.min(8, threads)));
+        }
+        factory.addServerCustomizers(server -> {
+            if (settings.getKeepAliveSeconds() > 0) {
+                for (Connector connector : server.getConnectors()) {
+                    ((AbstractConnector) connector).setIdleTimeout(settings.getKeepAliveSeconds() * 1000L);
+                }
+            }
+            if (settings.getMaxConnections() > 0) {
+                server.addBean(new ConnectionLimit(settings.getMaxConnections(), server));
+            }
+        });
+        AsyncLog.shared().log("Jetty connector: " + settings);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -2,10 +2,12 @@ package xcarpaccio;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import xcarpaccio.pricing.RulesFile;
 
 @SpringBootApplication
 public class CarpaccioApplication {
     public static void main(String[] args) {
+        RulesFile.watchFromEnvironment();
         SpringApplication.run(CarpaccioApplication.class, args);
     }
 }
@@ -0,0 +1,75 @@
+package xcarpaccio;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connector settings of the embedded server {@link WebController} answers on, from the {@code carpaccio.server.*}
+ * properties, or environment variables such as {@code CARPACCIO_SERVER_WORKERS}. A setting left at 0 keeps the default
+ * of the engine. The {@code EngineConnector} of the engine the build selected applies them, see
+ * {@code src/<engine>/java}.
+ */
+@Component
+@Profile("!reactive")
+@ConfigurationProperties("carpaccio.server")
+public class ConnectorSettings {
+    private int acceptors;
+    private int workers;
+    private int keepAliveSeconds;
+    private int maxConnections;
+
+    /**
+     * @return threads accepting connections: Tomcat acceptor threads, Jetty acceptors, Undertow I/O threads
+     */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    /**
+     * @return threads running the requests
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @return how long an idle keep-alive connection is kept open
+     */
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    /**
+     * @return connections open at once, beyond them new ones wait in the backlog
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    @Override
+    public String toString() {
+        return setting("acceptors", acceptors) + ", " + setting("workers", workers) + ", "
+                + setting("keep-alive seconds", keepAliveSeconds) + ", " + setting("max connections", maxConnections);
+    }
+
+    private static String setting(String name, int value) {
+        return name + " " + (value > 0 ? String.valueOf(value) : "default");
+    }
+}
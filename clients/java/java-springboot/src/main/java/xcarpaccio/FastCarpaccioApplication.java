@@ -0,0 +1,82 @@
+package xcarpaccio;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import xcarpaccio.pricing.RulesFile;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Starts the seller in a fraction of the time of {@link CarpaccioApplication}, to be back quickly after a restart.
+ * <p>
+ * Nothing is scanned and no auto-configuration is imported: the web server and the {@code /order}, {@code /feedback},
+ * {@code /ping} and {@code /ready} routes of {@link ReactiveWebController} are registered with functions on WebFlux and Reactor
+ * Netty, and any other bean is only created when first needed.
+ * <p>
+ * With the {@code carpaccio.exit-after-start} system property the application stops as soon as it has started, which
+ * is how the build lists the classes to put in its AppCDS archive.
+ */
+public class FastCarpaccioApplication {
+
+    public static void main(String[] args) {
+        RulesFile.watchFromEnvironment();
+        SpringApplication application = new SpringApplication(FastCarpaccioApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.addInitializers((GenericApplicationContext context) -> register(context));
+        ConfigurableApplicationContext context = application.run(args);
+        if (Boolean.getBoolean("carpaccio.exit-after-start")) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    static void register(GenericApplicationContext context) {
+        context.addBeanFactoryPostProcessor(lazyInitialization());
+        context.registerBean(NettyReactiveWebServerFactory.class,
+                () -> new NettyReactiveWebServerFactory(context.getEnvironment().getProperty("server.port", Integer.class, 8080)));
+        context.registerBean(HttpHandler.class, () -> RouterFunctions.toHttpHandler(routes(new ReactiveWebController()), strategies()));
+    }
+
+    static RouterFunction<ServerResponse> routes(ReactiveWebController controller) {
+        return route(POST("/order"), request -> controller.answerQuote(request.bodyToMono(byte[].class)).flatMap(FastCarpaccioApplication::respond))
+                .andRoute(POST("/feedback"), request -> controller.logFeedback(request.bodyToMono(byte[].class)).flatMap(FastCarpaccioApplication::respond))
+                .andRoute(GET("/ping"), request -> controller.ping().flatMap(pong -> ServerResponse.ok().syncBody(pong)))
+                .andRoute(GET("/ready"), request -> controller.ready().flatMap(FastCarpaccioApplication::respond));
+    }
+
+    /**
+     * The default codecs, with bills written by {@link AmountEncoder} rather than Jackson.
+     */
+    static HandlerStrategies strategies() {
+        return HandlerStrategies.builder().codecs(configurer -> configurer.customCodecs().encoder(new AmountEncoder())).build();
+    }
+
+    private static Mono<ServerResponse> respond(ResponseEntity<?> entity) {
+        ServerResponse.BodyBuilder response = ServerResponse.status(entity.getStatusCode()).headers(headers -> headers.addAll(entity.getHeaders()));
+        return entity.hasBody() ? response.syncBody(entity.getBody()) : response.build();
+    }
+
+    private static BeanFactoryPostProcessor lazyInitialization() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                definition.setLazyInit(true);
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package xcarpaccio;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.tracing.OrderTrace;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records every request in the metrics, by route and status code. Traces the orders with {@link OrderTrace}: read is
+ * the time until {@link WebController} gets the body, write the time from its answer to the end of the response.
+ */
+@Component
+@Profile("!reactive")
+public class MetricsFilter extends OncePerRequestFilter {
+    private final Metrics metrics = Metrics.shared();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Metrics.Route route = metrics.route(request.getRequestURI());
+        long start = route.begin();
+        OrderTrace trace = request.getRequestURI().startsWith("/order") ? OrderTrace.start() : null;
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            int status = failed ? 500 : response.getStatus();
+            route.end(start, status);
+            if (trace != null) {
+                trace.mark(OrderTrace.Phase.WRITE).end(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package xcarpaccio;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Runs {@link ReactiveWebController} on Reactor Netty when the {@code reactive} profile is active.
+ * <p>
+ * Tomcat stays on the classpath for the default servlet stack, and Spring Boot would pick it to run WebFlux too,
+ * hence the explicit Netty factory.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Bills are written by {@link AmountEncoder} rather than Jackson.
+     */
+    @Bean
+    public CodecCustomizer amountEncoder() {
+        return configurer -> configurer.customCodecs().encoder(new AmountEncoder());
+    }
+}
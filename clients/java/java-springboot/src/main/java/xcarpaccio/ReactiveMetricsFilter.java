@@ -0,0 +1,36 @@
+package xcarpaccio;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import xcarpaccio.metrics.Metrics;
+
+/**
+ * Records every request in the metrics, by route and status code, like {@link MetricsFilter} does on the servlet stack.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveMetricsFilter implements WebFilter {
+    private final Metrics metrics = Metrics.shared();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Metrics.Route route = metrics.route(exchange.getRequest().getPath().value());
+        long start = route.begin();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    route.end(start, status != null ? status.value() : 200);
+                })
+                // errors are turned into answers after the filters
+                .doOnError(error -> route.end(start, error instanceof ResponseStatusException
+                        ? ((ResponseStatusException) error).getStatus().value() : 500))
+                // the caller went away, 499 as nginx logs it
+                .doOnCancel(() -> route.end(start, 499));
+    }
+}
@@ -0,0 +1,146 @@
+package xcarpaccio;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The contract of {@link WebController} on WebFlux: bodies are decoded without blocking the event loop
+ * and the answers are computed on it, pricing an order never blocks.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveWebController {
+    private static final Mono<ResponseEntity<Amount>> DECLINED = Mono.just(WebController.DECLINED);
+    private static final Mono<ResponseEntity<Amount>> REJECTED = Mono.just(WebController.REJECTED);
+    private static final Mono<ResponseEntity<String>> READY = Mono.just(WebController.READY);
+    private static final Mono<ResponseEntity<String>> WARMING_UP = Mono.just(WebController.WARMING_UP);
+
+    private final AsyncLog log = AsyncLog.shared();
+    private final FeedbackQueue feedback = FeedbackQueue.shared();
+    private final Metrics metrics = Metrics.shared();
+    private final AdmissionControl admission = AdmissionControl.shared();
+    private final Journal journal = Journal.shared();
+    private final Warmup warmup = Warmup.shared();
+
+    @RequestMapping(value = "/order", method = RequestMethod.POST)
+    public Mono<ResponseEntity<Amount>> answerQuote(@RequestBody(required = false) Mono<byte[]> body) {
+        long start = System.nanoTime();
+        long admitted = admission.admit();
+        if (admitted == AdmissionControl.DECLINED) {
+            // the body is not even decoded
+            metrics.shed();
+            OrderTrace.start().outcome(OrderTrace.Outcome.SHED).end(WebController.DECLINED.getStatusCodeValue());
+            return DECLINED;
+        }
+        return body.map(bytes -> {
+            // from the body to the answer, on the event loop that got the body
+            OrderTrace trace = OrderTrace.start();
+            ResponseEntity<Amount> answer = answer(bytes, trace);
+            trace.end(answer.getStatusCodeValue());
+            WebController.journal(journal, bytes, answer, start);
+            return answer;
+        }).switchIfEmpty(REJECTED).doFinally(signal -> admission.done(admitted));
+    }
+
+    private ResponseEntity<Amount> answer(byte[] bytes, OrderTrace trace) {
+        if (log.sampleOrder())
+            log.log("Order received: " + new String(bytes, StandardCharsets.UTF_8));
+        PrimitiveOrder received = WebController.CODECS.get().decode(bytes, 0, bytes.length);
+        trace.mark(OrderTrace.Phase.DECODE).order(received);
+        if (received == null) {
+            trace.outcome(OrderTrace.Outcome.REJECTED);
+            return WebController.REJECTED;
+        }
+        boolean priceable = received.canBePriced();
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        if (priceable) {
+            double total = received.total();
+            trace.mark(OrderTrace.Phase.PRICE).outcome(OrderTrace.Outcome.PRICED);
+            return ResponseEntity.ok(new Amount(total));
+        }
+
+        // Answer a 404 if you don't want to respond to an order, without penalty
+        metrics.declined();
+        trace.outcome(OrderTrace.Outcome.DECLINED);
+        return WebController.DECLINED;
+    }
+
+    /**
+     * Hands the raw body to the {@link FeedbackQueue}, which parses and logs it on its own thread.
+     */
+    @RequestMapping(value = "/feedback", method = RequestMethod.POST)
+    public Mono<ResponseEntity<Void>> logFeedback(@RequestBody Mono<byte[]> body) {
+        return body.map(bytes -> {
+            journal.feedback(bytes, 0, bytes.length);
+            return new ResponseEntity<>(feedback.offer(bytes) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+        });
+    }
+
+    @RequestMapping(value = "/ping", method = RequestMethod.GET)
+    public Mono<String> ping() {
+        log.log("ping received");
+        return Mono.just("pong");
+    }
+
+    @RequestMapping(value = "/rules", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<String> rules() {
+        return Mono.just(PricingRules.current().toJson());
+    }
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public Mono<ResponseEntity<String>> metrics() {
+        return Mono.just(ResponseEntity.ok().contentType(MediaType.parseMediaType(Metrics.CONTENT_TYPE)).body(metrics.scrape()));
+    }
+
+    /**
+     * The cash the game server reported, second by second.
+     */
+    @RequestMapping(value = "/stats/earnings", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<String> earnings() {
+        return Mono.just(feedback.earnings().toJson(System.currentTimeMillis()));
+    }
+
+    /**
+     * 503 until the {@link Warmup} of the order path is over.
+     */
+    @RequestMapping(value = "/ready", method = RequestMethod.GET)
+    public Mono<ResponseEntity<String>> ready() {
+        return warmup.ready() ? READY : WARMING_UP;
+    }
+
+    /**
+     * Replaces the pricing rules with rules in the shape of the server's configuration.json.
+     */
+    @RequestMapping(value = "/rules", method = {RequestMethod.POST, RequestMethod.PUT})
+    public Mono<ResponseEntity<String>> installRules(@RequestBody Mono<String> rules) {
+        return rules.map(body -> {
+            try {
+                PricingRules.install(PricingRules.parse(body));
+            } catch (IllegalArgumentException e) {
+                log.error(e.getMessage());
+                return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+            }
+            String installed = PricingRules.current().toJson();
+            log.log("Rules installed: " + installed);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(installed);
+        });
+    }
+}
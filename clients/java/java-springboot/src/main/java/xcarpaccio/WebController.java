@@ -1,37 +1,170 @@
 package xcarpaccio;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.server.ResponseStatusException;
+import xcarpaccio.admission.AdmissionControl;
+import xcarpaccio.feedback.FeedbackQueue;
+import xcarpaccio.journal.Journal;
+import xcarpaccio.logging.AsyncLog;
+import xcarpaccio.metrics.Metrics;
+import xcarpaccio.pricing.OrderCodec;
+import xcarpaccio.pricing.PricingRules;
+import xcarpaccio.pricing.PrimitiveOrder;
+import xcarpaccio.tracing.OrderTrace;
+import xcarpaccio.warmup.Warmup;
+
+import java.nio.charset.StandardCharsets;
 
 @RestController
+@Profile("!reactive")
 public class WebController {
+    // a 404 declines an order without penalty, answered without throwing and the same instance every time
+    static final ResponseEntity<Amount> DECLINED = ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    // a corrupt order, the server expects a 400: the body is decoded by OrderCodec, which rejects without throwing
+    static final ResponseEntity<Amount> REJECTED = ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    static final ResponseEntity<String> READY = ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN)
+            .body(new String(Warmup.READY, StandardCharsets.UTF_8));
+    // until the warm-up is over
+    static final ResponseEntity<String> WARMING_UP = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN)
+            .body(new String(Warmup.WARMING_UP, StandardCharsets.UTF_8));
+    static final ThreadLocal<OrderCodec> CODECS = ThreadLocal.withInitial(OrderCodec::new);
+
+    private final AsyncLog log = AsyncLog.shared();
+    private final FeedbackQueue feedback = FeedbackQueue.shared();
+    private final Metrics metrics = Metrics.shared();
+    private final AdmissionControl admission = AdmissionControl.shared();
+    private final Journal journal = Journal.shared();
+    private final Warmup warmup = Warmup.shared();
 
     @RequestMapping(value = "/order", method = RequestMethod.POST)
-    public Amount answerQuote(@RequestBody Order order) {
-        System.out.println("Order received: " + order.toString());
-        if (order.prices.length == 0)
-            return new Amount(computeAmount(order));
+    public ResponseEntity<Amount> answerQuote(@RequestBody(required = false) byte[] body) {
+        long start = System.nanoTime();
+        // started by MetricsFilter
+        OrderTrace trace = OrderTrace.current().mark(OrderTrace.Phase.READ);
+        long admitted = admission.admit();
+        if (admitted == AdmissionControl.DECLINED) {
+            metrics.shed();
+            trace.outcome(OrderTrace.Outcome.SHED);
+            return DECLINED;
+        }
+        try {
+            if (body == null) {
+                trace.outcome(OrderTrace.Outcome.REJECTED);
+                return REJECTED;
+            }
+            ResponseEntity<Amount> answer = answer(body, trace);
+            journal(journal, body, answer, start);
+            return answer;
+        } finally {
+            admission.done(admitted);
+        }
+    }
 
-        // Throw a 404 if you don't want to respond to an order, without penalty
-        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "cannot answer");
+    /**
+     * Decode, validate and price are phases of the {@link OrderTrace}, {@link AmountMessageConverter} then times encode.
+     */
+    private ResponseEntity<Amount> answer(byte[] body, OrderTrace trace) {
+        if (log.sampleOrder())
+            log.log("Order received: " + new String(body, StandardCharsets.UTF_8));
+        PrimitiveOrder order = CODECS.get().decode(body, 0, body.length);
+        trace.mark(OrderTrace.Phase.DECODE).order(order);
+        if (order == null) {
+            trace.outcome(OrderTrace.Outcome.REJECTED);
+            return REJECTED;
+        }
+        boolean computable = canCompute(order);
+        trace.mark(OrderTrace.Phase.VALIDATE);
+        if (computable) {
+            Double amount = computeAmount(order);
+            trace.mark(OrderTrace.Phase.PRICE).outcome(OrderTrace.Outcome.PRICED);
+            return ResponseEntity.ok(new Amount(amount));
+        }
+
+        // Answer a 404 if you don't want to respond to an order, without penalty
+        metrics.declined();
+        trace.outcome(OrderTrace.Outcome.DECLINED);
+        return DECLINED;
     }
 
+    /**
+     * Journals an order with its answer, the amount encoded by {@link OrderCodec} as {@link AmountMessageConverter} writes it later.
+     */
+    static void journal(Journal journal, byte[] body, ResponseEntity<Amount> answer, long start) {
+        if (!journal.enabled())
+            return;
+        OrderCodec codec = CODECS.get();
+        int length = answer.hasBody() ? codec.encode(answer.getBody().total) : 0;
+        journal.order(body, 0, body.length, answer.getStatusCodeValue(), codec.encoded(), 0, length, System.nanoTime() - start);
+    }
+
+    /**
+     * Hands the raw body to the {@link FeedbackQueue}, which parses and logs it on its own thread.
+     */
     @RequestMapping(value = "/feedback", method = RequestMethod.POST)
-    public void logFeedback(@RequestBody FeedbackMessage message) {
-        System.out.println("feedback received: " + message.toString());
+    public ResponseEntity<Void> logFeedback(@RequestBody byte[] body) {
+        journal.feedback(body, 0, body.length);
+        return new ResponseEntity<>(feedback.offer(body) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     @RequestMapping(value = "/ping", method = RequestMethod.GET)
     public String ping() {
-        System.out.println("ping received");
+        log.log("ping received");
         return "pong";
     }
 
-    Double computeAmount(Order order) {
-        return 0.0;
+    @RequestMapping(value = "/rules", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String rules() {
+        return PricingRules.current().toJson();
+    }
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Metrics.CONTENT_TYPE)).body(metrics.scrape());
+    }
+
+    /**
+     * The cash the game server reported, second by second.
+     */
+    @RequestMapping(value = "/stats/earnings", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String earnings() {
+        return feedback.earnings().toJson(System.currentTimeMillis());
+    }
+
+    /**
+     * 503 until the {@link Warmup} of the order path is over.
+     */
+    @RequestMapping(value = "/ready", method = RequestMethod.GET)
+    public ResponseEntity<String> ready() {
+        return warmup.ready() ? READY : WARMING_UP;
+    }
+
+    /**
+     * Replaces the pricing rules with rules in the shape of the server's configuration.json.
+     */
+    @RequestMapping(value = "/rules", method = {RequestMethod.POST, RequestMethod.PUT})
+    public ResponseEntity<String> installRules(@RequestBody String rules) {
+        try {
+            PricingRules.install(PricingRules.parse(rules));
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        String installed = PricingRules.current().toJson();
+        log.log("Rules installed: " + installed);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(installed);
+    }
+
+    boolean canCompute(PrimitiveOrder order) {
+        return order.canBePriced();
+    }
+
+    Double computeAmount(PrimitiveOrder order) {
+        return order.total();
     }
-}
\ No newline at end of file
+}
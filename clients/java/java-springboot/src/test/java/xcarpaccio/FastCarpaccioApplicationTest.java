@@ -0,0 +1,83 @@
+package xcarpaccio;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import xcarpaccio.warmup.Warmup;
+
+/**
+ * Testing the routes of the fast-start mode, without starting the server
+ */
+public class FastCarpaccioApplicationTest {
+
+    private final WebTestClient client = WebTestClient.bindToRouterFunction(FastCarpaccioApplication.routes(new ReactiveWebController()))
+            .handlerStrategies(FastCarpaccioApplication.strategies()).build();
+
+    @Test
+    public void aNominalTest() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"total\":8.33}");
+    }
+
+    @Test
+    public void totalsAreWrittenLikeTheServerWritesThem() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[],\"quantities\":[],\"country\":\"FR\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"total\":0}");
+    }
+
+    @Test
+    public void corruptOrdersShouldBeRejected() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[1],\"quantities\":[1,2],\"country\":\"FR\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void orderFromUnknownCountryShouldNotBeAnswered() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[1],\"quantities\":[1],\"country\":\"US\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void feedbackIsAcceptedWithoutWaitingForItsProcessing() {
+        client.post().uri("/feedback")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void pingAnswersPong() {
+        client.get().uri("/ping")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("pong");
+    }
+
+    @Test
+    public void readyAnswersOnceTheWarmUpIsOver() throws InterruptedException {
+        // 503 while warming up, at most WARMUP_MILLIS
+        for (int i = 0; i < 300 && !Warmup.shared().ready(); i++) {
+            Thread.sleep(100);
+        }
+
+        client.get().uri("/ready")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("ready");
+    }
+}
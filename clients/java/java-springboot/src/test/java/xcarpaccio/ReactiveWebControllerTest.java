@@ -0,0 +1,92 @@
+package xcarpaccio;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testing web API of the reactive profile, starting the Netty server
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveWebControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void runsOnNetty() {
+        assertThat(context).isInstanceOf(ReactiveWebServerApplicationContext.class);
+        assertThat(((ReactiveWebServerApplicationContext) context).getWebServer().getClass().getSimpleName())
+                .isEqualTo("NettyWebServer");
+    }
+
+    @Test
+    public void aNominalTest() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"total\":8.33}");
+    }
+
+    @Test
+    public void totalsAreWrittenLikeTheServerWritesThem() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[],\"quantities\":[],\"country\":\"FR\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"total\":0}");
+    }
+
+    @Test
+    public void corruptOrdersShouldBeRejected() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[1],\"quantities\":[1,2],\"country\":\"FR\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void orderFromUnknownCountryShouldNotBeAnswered() {
+        client.post().uri("/order")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"prices\":[1],\"quantities\":[1],\"country\":\"US\",\"reduction\":\"STANDARD\"}")
+                .exchange()
+                // Answers a 404, to avoid penalty
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void feedbackIsAcceptedWithoutWaitingForItsProcessing() {
+        client.post().uri("/feedback")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void pingAnswersPong() {
+        client.get().uri("/ping")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("pong");
+    }
+}
@@ -0,0 +1,49 @@
+package xcarpaccio;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testing the embedded server of the engine profile the build ran with, with connector settings
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "carpaccio.server.acceptors=1", "carpaccio.server.workers=4",
+        "carpaccio.server.keep-alive-seconds=30", "carpaccio.server.max-connections=64"})
+public class ServerEngineTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private ConnectorSettings settings;
+
+    @Test
+    public void ordersAreAnsweredByTheEngineOfTheBuild() {
+        ResponseEntity<Amount> response = new TestRestTemplate().postForEntity("http://localhost:" + port + "/order",
+                WebControllerBusinessTest.order(new double[] {3.5}, new int[] {2}, "ES", "STANDARD"), Amount.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().total).isEqualTo(8.33);
+        assertThat(context.getWebServer().getClass().getSimpleName().toLowerCase())
+                .startsWith(System.getProperty("engine.name", "tomcat"));
+    }
+
+    @Test
+    public void connectorSettingsAreBoundFromProperties() {
+        assertThat(settings.toString()).isEqualTo("acceptors 1, workers 4, keep-alive seconds 30, max connections 64");
+    }
+}
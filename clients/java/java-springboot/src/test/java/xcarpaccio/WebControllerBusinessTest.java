@@ -1,6 +1,7 @@
 package xcarpaccio;
 
 import org.junit.Test;
+import xcarpaccio.pricing.PrimitiveOrder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -10,7 +11,32 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class WebControllerBusinessTest {
 
     @Test
-    public void defaultComputedAmountShouldBeZero() {
-        assertThat((new WebController()).computeAmount(new Order())).isEqualTo(0.0);
+    public void emptyOrderAmountShouldBeZero() {
+        PrimitiveOrder order = order(new double[] {}, new int[] {}, "FR", "STANDARD");
+
+        assertThat((new WebController()).computeAmount(order)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void amountShouldIncludeTaxesAndReduction() {
+        PrimitiveOrder order = order(new double[] {15.99}, new int[] {1}, "ES", "HALF PRICE");
+
+        assertThat((new WebController()).computeAmount(order)).isEqualTo(15.99 * 1.19 / 2);
+    }
+
+    @Test
+    public void orderFromUnknownCountryCannotBeComputed() {
+        PrimitiveOrder order = order(new double[] {15.99}, new int[] {1}, "US", "STANDARD");
+
+        assertThat((new WebController()).canCompute(order)).isFalse();
+    }
+
+    static PrimitiveOrder order(double[] prices, int[] quantities, String country, String reduction) {
+        PrimitiveOrder order = new PrimitiveOrder();
+        order.setPrices(prices);
+        order.setQuantities(quantities);
+        order.setCountry(country);
+        order.setReduction(reduction);
+        return order;
     }
 }
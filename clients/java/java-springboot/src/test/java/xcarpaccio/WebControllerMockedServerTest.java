@@ -8,7 +8,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import xcarpaccio.pricing.PricingRules;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -29,10 +32,11 @@ public class WebControllerMockedServerTest {
     public void orderWithEmptyPriceListShouldReturn0() throws Exception {
         this.mockMvc.perform(
                 post("/order/")
-                        .content("{\"prices\":[]}")
+                        .content("{\"prices\":[],\"quantities\":[],\"country\":\"FR\",\"reduction\":\"STANDARD\"}")
                         .contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk())
-                .andExpect(content().json("{\"total\":0}"))
+                // written like the server writes it, not 0.0
+                .andExpect(content().string("{\"total\":0}"))
         ;
     }
 
@@ -40,9 +44,77 @@ public class WebControllerMockedServerTest {
     public void aNominalTest() throws Exception {
         this.mockMvc.perform(
                 post("/order/")
-                        .content("{\"prices\":[1]}")
+                        .content("{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}")
                         .contentType(MediaType.APPLICATION_JSON_UTF8))
-                // Throws a 404 for now, to avoid penalty
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"total\":8.33}"));
+    }
+
+    @Test
+    public void corruptOrdersShouldBeRejected() throws Exception {
+        for (String corrupt : new String[]{"{}", "null", "[true,false,true]", "{\"prices\":[1],\"quantities\":{\"error\":\"datacenter unreachable\"},\"country\":\"FR\",\"reduction\":\"STANDARD\"}"}) {
+            this.mockMvc.perform(
+                    post("/order/")
+                            .content(corrupt)
+                            .contentType(MediaType.APPLICATION_JSON_UTF8))
+                    // The server expects a 400 for a corrupt order
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void orderFromUnknownCountryShouldNotBeAnswered() throws Exception {
+        this.mockMvc.perform(
+                post("/order/")
+                        .content("{\"prices\":[1],\"quantities\":[1],\"country\":\"US\",\"reduction\":\"STANDARD\"}")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8))
+                // Throws a 404, to avoid penalty
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void ordersArePricedWithThePostedRules() throws Exception {
+        try {
+            this.mockMvc.perform(
+                    post("/rules")
+                            .content("{\"taxes\":{\"ES\":\"function(price) { return price * 2; }\"}}")
+                            .contentType(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk());
+            this.mockMvc.perform(
+                    post("/order/")
+                            .content("{\"prices\":[3.5],\"quantities\":[2],\"country\":\"ES\",\"reduction\":\"STANDARD\"}")
+                            .contentType(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("{\"total\":14}"));
+        } finally {
+            PricingRules.install(PricingRules.defaults());
+        }
+    }
+
+    @Test
+    public void invalidRulesAreRejected() throws Exception {
+        this.mockMvc.perform(
+                post("/rules")
+                        .content("{\"reduction\":\"FREE\"}")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void feedbackIsAcceptedWithoutWaitingForItsProcessing() throws Exception {
+        this.mockMvc.perform(
+                post("/feedback")
+                        .content("{\"type\":\"INFO\",\"content\":\"Hey, bob earned 8.33\"}")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void metricsCountTheAnsweredRequests() throws Exception {
+        this.mockMvc.perform(get("/ping")).andExpect(status().isOk());
+        this.mockMvc.perform(get("/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("# TYPE seller_http_request_duration_seconds histogram")))
+                .andExpect(content().string(containsString("seller_http_requests_total{route=\"/ping\",status=\"200\"} ")));
+    }
+}
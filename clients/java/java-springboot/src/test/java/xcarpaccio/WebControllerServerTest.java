@@ -9,6 +9,7 @@ import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import xcarpaccio.pricing.PrimitiveOrder;
 
 import static org.junit.Assert.assertEquals;
 
@@ -28,8 +29,7 @@ public class WebControllerServerTest {
     @Test
     public void orderWithEmptyPriceListShouldReturn0() {
         TestRestTemplate testRestTemplate = new TestRestTemplate();
-        Order order = new Order();
-        order.prices = new Double[] {};
+        PrimitiveOrder order = WebControllerBusinessTest.order(new double[] {}, new int[] {}, "FR", "STANDARD");
         ResponseEntity<Amount> response = testRestTemplate.
                 postForEntity("http://localhost:" + this.port + "/order", order, Amount.class);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -39,11 +39,20 @@ public class WebControllerServerTest {
     @Test
     public void aNominalTest() {
         TestRestTemplate testRestTemplate = new TestRestTemplate();
-        Order order = new Order();
-        order.prices = new Double[] {0.0};
+        PrimitiveOrder order = WebControllerBusinessTest.order(new double[] {3.5}, new int[] {2}, "ES", "STANDARD");
         ResponseEntity<Amount> response = testRestTemplate.
                 postForEntity("http://localhost:" + this.port + "/order", order, Amount.class);
-        // Throws a 404 for now, to avoid penalty
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new Double(8.33), response.getBody().total);
+    }
+
+    @Test
+    public void orderFromUnknownCountryShouldNotBeAnswered() {
+        TestRestTemplate testRestTemplate = new TestRestTemplate();
+        PrimitiveOrder order = WebControllerBusinessTest.order(new double[] {0.0}, new int[] {1}, "US", "STANDARD");
+        ResponseEntity<Amount> response = testRestTemplate.
+                postForEntity("http://localhost:" + this.port + "/order", order, Amount.class);
+        // Throws a 404, to avoid penalty
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 }
@@ -0,0 +1,50 @@
+package xcarpaccio;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import xcarpaccio.logging.AsyncLog;
+
+/**
+ * Applies the {@link ConnectorSettings} to the Tomcat NIO connector, after Spring Boot's own {@code server.tomcat.*}.
+ */
+@Component
+@Profile("!reactive")
+public class EngineConnector implements WebServerFactoryCustomizer<TomcatServletWebServerFactory>, Ordered {
+    private final ConnectorSettings settings;
+
+    public EngineConnector(ConnectorSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.setProtocol(Http11NioProtocol.class.getName());
+        factory.addConnectorCustomizers(connector -> {
+            AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+            if (settings.getAcceptors() > 0) {
+                protocol.setAcceptorThreadCount(settings.getAcceptors());
+            }
+            if (settings.getWorkers() > 0) {
+                protocol.setMinSpareThreads(Math.min(protocol.getMinSpareThreads(), settings.getWorkers()));
+                protocol.setMaxThreads(settings.getWorkers());
+            }
+            if (settings.getKeepAliveSeconds() > 0) {
+                protocol.setKeepAliveTimeout(settings.getKeepAliveSeconds() * 1000);
+            }
+            if (settings.getMaxConnections() > 0) {
+                protocol.setMaxConnections(settings.getMaxConnections());
+            }
+        });
+        AsyncLog.shared().log("Tomcat NIO connector: " + settings);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
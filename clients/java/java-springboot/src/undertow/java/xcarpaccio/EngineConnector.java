@@ -0,0 +1,50 @@
+package xcarpaccio;
+
+import io.undertow.UndertowOptions;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.xnio.Options;
+import xcarpaccio.logging.AsyncLog;
+
+/**
+ * Applies the {@link ConnectorSettings} to the Undertow listener, after Spring Boot's own {@code server.undertow.*}.
+ * Its I/O threads accept the connections and read the requests, the acceptors of the other engines.
+ */
+@Component
+@Profile("!reactive")
+public class EngineConnector implements WebServerFactoryCustomizer<UndertowServletWebServerFactory>, Ordered {
+    private final ConnectorSettings settings;
+
+    public EngineConnector(ConnectorSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public void customize(UndertowServletWebServerFactory factory) {
+        if (settings.getAcceptors() > 0) {
+            factory.setIoThreads(settings.getAcceptors());
+        }
+        if (settings.getWorkers() > 0) {
+            factory.setWorkerThreads(settings.getWorkers());
+        }
+        factory.addBuilderCustomizers(builder -> {
+            if (settings.getKeepAliveSeconds() > 0) {
+                builder.setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, settings.getKeepAliveSeconds() * 1000);
+            }
+            if (settings.getMaxConnections() > 0) {
+                // stops accepting above the high water mark, until connections fall to the low one
+                builder.setSocketOption(Options.CONNECTION_HIGH_WATER, settings.getMaxConnections());
+                builder.setSocketOption(Options.CONNECTION_LOW_WATER, settings.getMaxConnections());
+            }
+        });
+        AsyncLog.shared().log("Undertow listener: " + settings);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}